@@ -1,6 +1,8 @@
 package com.paypilot;
 
 import com.paypilot.controller.AuthenticationController;
+import com.paypilot.controller.RecurringExpenseScheduler;
+import com.paypilot.dao.ReceiptBlobStore;
 import com.paypilot.view.LoginView;
 import com.paypilot.view.UITheme;
 
@@ -11,6 +13,11 @@ import javax.swing.SwingUtilities;
  */
 public class Main {
     public static void main(String[] args) {
+        // Recurring expenses of every user are generated in the background as they fall due
+        RecurringExpenseScheduler.getInstance().start();
+        // Receipt files no expense refers to any more are deleted in the background
+        ReceiptBlobStore.getInstance().startCollector();
+
         // Ensure UI updates happen on the Event Dispatch Thread (EDT)
         SwingUtilities.invokeLater(() -> {
             try {
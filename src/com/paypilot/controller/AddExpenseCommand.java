@@ -23,7 +23,7 @@ public class AddExpenseCommand implements Command {
     
     @Override
     public void undo() {
-        expenseManager.deleteExpense(username, expense);
+        expenseManager.deleteExpense(username, expense.getId());
     }
     
     @Override
@@ -1,5 +1,6 @@
 package com.paypilot.controller;
 
+import com.paypilot.dao.ExpenseDAO;
 import com.paypilot.dao. UserDAO;
 import com.paypilot.model.User;
 import java.security.MessageDigest;
@@ -42,7 +43,19 @@ public class AuthenticationController {
         if (user == null) {
             return false;
         }
-        return user.getPasswordHash().equals(hashPassword(password));
+        if (!user.getPasswordHash().equals(hashPassword(password))) {
+            return false;
+        }
+        userDAO.setActiveUser(username);
+        return true;
+    }
+    
+    /**
+     * End the user's session: unpin their data and release what was derived from it
+     */
+    public void logout(String username) {
+        userDAO.setActiveUser(null);
+        ExpenseDAO.release(username);
     }
     
     /**
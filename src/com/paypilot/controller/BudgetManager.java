@@ -1,11 +1,16 @@
 package com.paypilot.controller;
 
+import com.paypilot.controller.event.BudgetEvent;
+import com.paypilot.controller.event.EventBus;
 import com.paypilot.dao.BudgetDAO;
+import com.paypilot.dao.ExpenseColumnStore;
+import com.paypilot.dao.ExpenseDAO;
 import com.paypilot.model.Budget;
 import com.paypilot.model.Expense;
+import com.paypilot.model.Money;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -14,9 +19,11 @@ import java.util.Map;
  */
 public class BudgetManager {
     private BudgetDAO budgetDAO;
+    private ExpenseDAO expenseDAO;
     
     public BudgetManager() {
         this.budgetDAO = new BudgetDAO();
+        this.expenseDAO = new ExpenseDAO();
     }
     
     /**
@@ -35,31 +42,64 @@ public class BudgetManager {
      */
     public void saveBudget(Budget budget) {
         budgetDAO.saveBudget(budget);
+        EventBus.getInstance().publish(new BudgetEvent(budget));
+    }
+    
+    /**
+     * Calculate current month's spending over all of the user's expenses
+     * Read from the snapshot's spending rollup, or the columnar store when enabled
+     */
+    public double calculateMonthlySpending(String username) {
+        LocalDate now = LocalDate.now();
+        LocalDate monthStart = now.withDayOfMonth(1);
+        LocalDate monthEnd = now.withDayOfMonth(now.lengthOfMonth());
+        ExpenseColumnStore columns = expenseDAO.getColumnStore(username);
+        if (columns == null) {
+            return Money.toAmount(expenseDAO.getSnapshot(username).getRollup().totalCentsBetween(monthStart, monthEnd));
+        }
+        return Money.toAmount(columns.sumCentsBetween(monthStart.toEpochDay(), monthEnd.toEpochDay()));
+    }
+    
+    /**
+     * Calculate category-wise spending for the current month over all of the user's expenses
+     */
+    public Map<String, Double> calculateCategorySpending(String username) {
+        LocalDate now = LocalDate.now();
+        LocalDate monthStart = now.withDayOfMonth(1);
+        LocalDate monthEnd = now.withDayOfMonth(now.lengthOfMonth());
+        ExpenseColumnStore columns = expenseDAO.getColumnStore(username);
+        Map<String, Long> categoryCents = columns == null
+            ? expenseDAO.getSnapshot(username).getRollup().categoryTotalsBetween(monthStart, monthEnd)
+            : columns.categoryCentsBetween(monthStart.toEpochDay(), monthEnd.toEpochDay());
+        Map<String, Double> categoryTotals = new HashMap<>();
+        categoryCents.forEach((category, cents) -> categoryTotals.put(category, Money.toAmount(cents)));
+        return categoryTotals;
     }
     
     /**
      * Calculate current month's spending
      */
-    public double calculateMonthlySpending(String username, ArrayList<Expense> expenses) {
+    public double calculateMonthlySpending(String username, List<Expense> expenses) {
         LocalDate now = LocalDate.now();
         int currentMonth = now.getMonthValue();
         int currentYear = now.getYear();
         
-        return expenses.stream()
+        long cents = expenses.stream()
             .filter(e -> {
                 LocalDate expenseDate = e.getDate();
                 return expenseDate.getMonthValue() == currentMonth && 
                        expenseDate.getYear() == currentYear;
             })
-            .mapToDouble(Expense::getAmount)
+            .mapToLong(Expense::getAmountCents)
             .sum();
+        return Money.toAmount(cents);
     }
     
     /**
      * Calculate category-wise spending for current month
      */
-    public Map<String, Double> calculateCategorySpending(String username, ArrayList<Expense> expenses) {
-        Map<String, Double> categoryTotals = new HashMap<>();
+    public Map<String, Double> calculateCategorySpending(String username, List<Expense> expenses) {
+        Map<String, Long> categoryCents = new HashMap<>();
         LocalDate now = LocalDate.now();
         int currentMonth = now.getMonthValue();
         int currentYear = now.getYear();
@@ -70,19 +110,17 @@ public class BudgetManager {
                 return expenseDate.getMonthValue() == currentMonth && 
                        expenseDate.getYear() == currentYear;
             })
-            .forEach(e -> {
-                String category = e.getCategory();
-                categoryTotals.put(category, 
-                    categoryTotals.getOrDefault(category, 0.0) + e.getAmount());
-            });
+            .forEach(e -> categoryCents.merge(e.getCategory(), e.getAmountCents(), Long::sum));
         
+        Map<String, Double> categoryTotals = new HashMap<>();
+        categoryCents.forEach((category, cents) -> categoryTotals.put(category, Money.toAmount(cents)));
         return categoryTotals;
     }
     
     /**
      * Get budget status with alert level
      */
-    public BudgetStatus getBudgetStatus(String username, ArrayList<Expense> expenses) {
+    public BudgetStatus getBudgetStatus(String username, List<Expense> expenses) {
         Budget budget = getBudget(username);
         double spent = calculateMonthlySpending(username, expenses);
         Map<String, Double> categorySpending = calculateCategorySpending(username, expenses);
@@ -90,6 +128,17 @@ public class BudgetManager {
         return new BudgetStatus(budget, spent, categorySpending);
     }
     
+    /**
+     * Get budget status over all of the user's expenses
+     */
+    public BudgetStatus getBudgetStatus(String username) {
+        Budget budget = getBudget(username);
+        double spent = calculateMonthlySpending(username);
+        Map<String, Double> categorySpending = calculateCategorySpending(username);
+        
+        return new BudgetStatus(budget, spent, categorySpending);
+    }
+    
     /**
      * Inner class to hold budget status information
      */
@@ -104,16 +153,16 @@ public class BudgetManager {
             this.budget = budget;
             this.totalSpent = totalSpent;
             this.categorySpending = categorySpending;
-            this.percentage = Budget.calculatePercentage(totalSpent, budget.getMonthlyBudget());
+            this.percentage = Budget.calculatePercentage(Money.ofAmount(totalSpent), budget.getMonthlyBudgetCents());
             this.alertLevel = Budget.getAlertLevel(percentage);
         }
         
         public Map<String, CategoryBudgetStatus> getCategoryStatuses() {
             Map<String, CategoryBudgetStatus> statuses = new HashMap<>();
             
-            for (Map.Entry<String, Double> entry : budget.getCategoryBudgets().entrySet()) {
+            for (Map.Entry<String, Long> entry : budget.getCategoryBudgetCents().entrySet()) {
                 String category = entry.getKey();
-                double categoryBudget = entry.getValue();
+                double categoryBudget = Money.toAmount(entry.getValue());
                 double spent = categorySpending.getOrDefault(category, 0.0);
                 
                 statuses.put(category, new CategoryBudgetStatus(
@@ -139,7 +188,7 @@ public class BudgetManager {
             this.category = category;
             this.budget = budget;
             this.spent = spent;
-            this.percentage = Budget.calculatePercentage(spent, budget);
+            this.percentage = Budget.calculatePercentage(Money.ofAmount(spent), Money.ofAmount(budget));
             this.alertLevel = Budget.getAlertLevel(percentage);
         }
     }
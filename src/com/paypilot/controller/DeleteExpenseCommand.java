@@ -18,7 +18,7 @@ public class DeleteExpenseCommand implements Command {
     
     @Override
     public void execute() {
-        expenseManager.deleteExpense(username, expense);
+        expenseManager.deleteExpense(username, expense.getId());
     }
     
     @Override
@@ -29,6 +29,6 @@ public class DeleteExpenseCommand implements Command {
     @Override
     public String getDescription() {
         return "Delete expense: " + expense.getCategory() + " - $" + 
-               String.format("%. 2f", expense.getAmount());
+               String.format("%.2f", expense.getAmount());
     }
 }
\ No newline at end of file
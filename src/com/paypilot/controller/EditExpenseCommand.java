@@ -4,6 +4,7 @@ import com.paypilot.model. Expense;
 
 /**
  * Command to edit an expense
+ * oldExpense and newExpense share an ID; each step swaps in the other version
  */
 public class EditExpenseCommand implements Command {
     private ExpenseManager expenseManager;
@@ -21,12 +22,12 @@ public class EditExpenseCommand implements Command {
     
     @Override
     public void execute() {
-        expenseManager.updateExpense(username, oldExpense, newExpense);
+        expenseManager.updateExpense(username, newExpense);
     }
     
     @Override
     public void undo() {
-        expenseManager.updateExpense(username, newExpense, oldExpense);
+        expenseManager.updateExpense(username, oldExpense);
     }
     
     @Override
@@ -1,13 +1,21 @@
 package com.paypilot.controller;
 
+import com.paypilot.controller.event.EventBus;
+import com.paypilot.controller.event.ExpenseEvent;
+import com.paypilot.controller.query.ExpenseQuery;
+import com.paypilot.controller.query.ExpenseQueryResult;
+import com.paypilot.dao.ExpenseColumnStore;
 import com.paypilot.dao.ExpenseDAO;
+import com.paypilot.dao.ExpenseSearchIndex;
+import com.paypilot.dao.StorageBatch;
+import com.paypilot.model.ExpenseSnapshot;
 import com.paypilot.model.Expense;
+import com.paypilot.model.Money;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * ExpenseManager - Handles logic for adding, retrieving, and managing expenses.
- * Uses DAO pattern for persistence.
+ * Uses DAO pattern for persistence. Every change is published as an ExpenseEvent.
  */
 public class ExpenseManager {
 
@@ -21,92 +29,166 @@ public class ExpenseManager {
 
     public void addExpense(Expense expense) {
         if (expense != null && expense.getUsername() != null) {
-            expenseDAO.addExpense(expense.getUsername(), expense);
+            addExpense(expense.getUsername(), expense);
         }
     }
     
     // Overloaded method to match your specific command pattern needs
     public void addExpense(String username, Expense expense) {
         if (expense != null) {
-            expenseDAO.addExpense(username, expense);
+            ExpenseSnapshot snapshot = expenseDAO.addExpense(username, expense);
+            publish(ExpenseEvent.added(username, expense, snapshot.getVersion()));
         }
     }
 
-    public void deleteExpense(String username, Expense expense) {
-        expenseDAO.deleteExpense(username, expense);
+    /**
+     * Add many expenses with one storage write and one new snapshot
+     * @return The expenses added; those whose ID is already stored are skipped
+     */
+    public List<Expense> addExpenses(String username, List<Expense> expenses) {
+        return addExpenses(username, expenses, new StorageBatch());
     }
 
-    public void updateExpense(String username, Expense oldExpense, Expense newExpense) {
-        expenseDAO.updateExpense(username, oldExpense, newExpense);
+    /**
+     * Add many expenses, committed atomically with the writes already staged in batch
+     */
+    public List<Expense> addExpenses(String username, List<Expense> expenses, StorageBatch batch) {
+        ExpenseDAO.Added added = expenseDAO.addExpenses(username, expenses, batch);
+        for (Expense expense : added.getExpenses()) {
+            publish(ExpenseEvent.added(username, expense, added.getSnapshot().getVersion()));
+        }
+        return added.getExpenses();
+    }
+
+    public boolean deleteExpense(String username, long expenseId) {
+        Expense previous = expenseDAO.getExpense(username, expenseId);
+        ExpenseSnapshot snapshot = expenseDAO.deleteExpense(username, expenseId);
+        if (snapshot != null) {
+            publish(ExpenseEvent.deleted(username, previous, snapshot.getVersion()));
+        }
+        return snapshot != null;
+    }
+
+    /**
+     * Replace the stored expense with the same ID as the given one
+     */
+    public boolean updateExpense(String username, Expense expense) {
+        Expense previous = expenseDAO.getExpense(username, expense.getId());
+        ExpenseSnapshot snapshot = expenseDAO.updateExpense(username, expense);
+        if (snapshot != null) {
+            publish(ExpenseEvent.updated(username, previous, expense, snapshot.getVersion()));
+        }
+        return snapshot != null;
+    }
+
+    private void publish(ExpenseEvent event) {
+        EventBus.getInstance().publish(event);
     }
 
     // --- Data Retrieval ---
 
-    public ArrayList<Expense> getAllExpenses(String username) {
-        return expenseDAO.loadExpenses(username);
+    public Expense getExpense(String username, long expenseId) {
+        return expenseDAO.getExpense(username, expenseId);
+    }
+
+    /**
+     * Versioned, immutable view of the user's expenses
+     * Views can compare getVersion() with the last one they rendered and skip the refresh.
+     */
+    public ExpenseSnapshot getSnapshot(String username) {
+        return expenseDAO.getSnapshot(username);
+    }
+
+    /**
+     * @return Read-only list shared with other readers; copy it before sorting
+     */
+    public List<Expense> getAllExpenses(String username) {
+        return expenseDAO.getSnapshot(username).getExpenses();
     }
 
     public void clearAllExpenses(String username) {
-        expenseDAO.clearAllExpenses(username);
+        ExpenseSnapshot snapshot = expenseDAO.clearAllExpenses(username);
+        publish(ExpenseEvent.cleared(username, snapshot.getVersion()));
     }
 
     // --- Filtering & Sorting ---
 
+    /**
+     * Run a query against the user's current snapshot
+     */
+    public ExpenseQueryResult query(String username, ExpenseQuery query) {
+        return query.execute(expenseDAO.getSnapshot(username));
+    }
+
+    /**
+     * Expenses of one category (ignoring case), oldest first
+     */
     public ArrayList<Expense> filterByCategory(String username, String category) {
-        return getAllExpenses(username).stream()
-                .filter(e -> e.getCategory().equalsIgnoreCase(category))
-                .collect(Collectors.toCollection(ArrayList::new));
+        return new ArrayList<>(query(username, ExpenseQuery.all().inCategories(category)).getExpenses());
     }
 
     public ArrayList<Expense> sortByAmount(String username, boolean descending) {
-        ArrayList<Expense> list = getAllExpenses(username);
-        list.sort(Comparator.comparingDouble(Expense::getAmount));
-        if (descending) Collections.reverse(list);
-        return list;
+        return new ArrayList<>(query(username, ExpenseQuery.all()
+                .orderBy(ExpenseQuery.Sort.AMOUNT, descending)).getExpenses());
     }
 
     public ArrayList<Expense> sortByDate(String username, boolean descending) {
-        ArrayList<Expense> list = getAllExpenses(username);
-        list.sort(Comparator.comparing(Expense::getDate));
-        if (descending) Collections.reverse(list);
-        return list;
+        return new ArrayList<>(query(username, ExpenseQuery.all()
+                .orderBy(ExpenseQuery.Sort.DATE, descending)).getExpenses());
+    }
+
+    /**
+     * Expenses whose category or description match every word of the query,
+     * by prefix and with small typos; least recently added or edited first, none for a blank query
+     */
+    public ExpenseSearchIndex.Results search(String username, String query) {
+        return expenseDAO.search(username, query);
+    }
+
+    /**
+     * Same matching rule as search(), for a single expense
+     */
+    public boolean matchesSearch(Expense expense, String query) {
+        return ExpenseSearchIndex.matches(expense, query);
     }
 
     // --- Statistics ---
 
+    /**
+     * Categories in use, sorted; kept by the snapshot's rollup, so no scan of the expenses
+     */
     public List<String> getUniqueCategories(String username) {
-        return getAllExpenses(username).stream()
-                .map(Expense::getCategory)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return expenseDAO.getSnapshot(username).getRollup().getCategories();
     }
 
     public double calculateTotal(String username) {
-        return getAllExpenses(username).stream()
-                .mapToDouble(Expense::getAmount)
-                .sum();
+        ExpenseColumnStore columns = expenseDAO.getColumnStore(username);
+        if (columns != null) {
+            return Money.toAmount(columns.sumCents());
+        }
+        return Money.toAmount(query(username, ExpenseQuery.all().limit(0)
+                .aggregate(ExpenseQuery.Measure.SUM)).getTotals().getSumCents());
     }
 
     public double calculateAverage(String username) {
-        ArrayList<Expense> list = getAllExpenses(username);
-        return list.isEmpty() ? 0.0 : calculateTotal(username) / list.size();
+        int count = getExpenseCount(username);
+        return count == 0 ? 0.0 : calculateTotal(username) / count;
     }
 
     public double getMaxExpense(String username) {
-        return getAllExpenses(username).stream()
-                .mapToDouble(Expense::getAmount)
-                .max()
-                .orElse(0.0);
+        ExpenseColumnStore columns = expenseDAO.getColumnStore(username);
+        if (columns != null) {
+            return Money.toAmount(columns.maxCents());
+        }
+        return Money.toAmount(query(username, ExpenseQuery.all().limit(0)
+                .aggregate(ExpenseQuery.Measure.MAX)).getTotals().getMaxCents());
     }
 
     public int getExpenseCount(String username) {
-        return getAllExpenses(username).size();
+        return expenseDAO.getSnapshot(username).size();
     }
 
     public ArrayList<Expense> getSplitExpenses(String username) {
-        return getAllExpenses(username).stream()
-                .filter(Expense::isSplit)
-                .collect(Collectors.toCollection(ArrayList::new));
+        return new ArrayList<>(query(username, ExpenseQuery.all().split(true)).getExpenses());
     }
 }
\ No newline at end of file
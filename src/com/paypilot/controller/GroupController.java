@@ -1,8 +1,12 @@
 package com.paypilot.controller;
 
+import com.paypilot.controller.event.EventBus;
+import com.paypilot.controller.event.GroupEvent;
 import com.paypilot.controller.strategy.*;
 import com.paypilot.dao.GroupDAO;
 import com.paypilot.model.Group;
+import com.paypilot.model.GroupLedger;
+import com.paypilot.model.Money;
 import com.paypilot.model.SharedExpense;
 import com.paypilot.model.SplitDetail;
 import java.time.LocalDate; // Ensure this import is here!
@@ -29,23 +33,27 @@ public class GroupController {
             throw new IllegalArgumentException("Group name cannot be empty");
         }
         Group group = new Group(groupName, createdBy);
-        return groupDAO.createGroup(group);
+        boolean created = groupDAO.createGroup(group);
+        if (created) {
+            EventBus.getInstance().publish(GroupEvent.created(groupName, createdBy));
+        }
+        return created;
     }
     
     public boolean addMemberToGroup(String groupName, String username) {
-        Group group = groupDAO.getGroup(groupName);
-        if (group == null) return false;
-        group.addMember(username);
-        groupDAO.updateGroup(group);
-        return true;
+        boolean added = groupDAO.addMember(groupName, username);
+        if (added) {
+            EventBus.getInstance().publish(GroupEvent.memberAdded(groupName, username));
+        }
+        return added;
     }
     
     public boolean removeMemberFromGroup(String groupName, String username) {
-        Group group = groupDAO.getGroup(groupName);
-        if (group == null) return false;
-        group.removeMember(username);
-        groupDAO.updateGroup(group);
-        return true;
+        boolean removed = groupDAO.removeMember(groupName, username);
+        if (removed) {
+            EventBus.getInstance().publish(GroupEvent.memberRemoved(groupName, username));
+        }
+        return removed;
     }
     
     public ArrayList<Group> getUserGroups(String username) {
@@ -68,58 +76,101 @@ public class GroupController {
         SplitStrategy strategy = strategies.get(strategyType);
         if (strategy == null) strategy = strategies.get("EQUAL");
         
-        ArrayList<SplitDetail> splitDetails = strategy.computeShares(totalAmount, participants, weights);
+        ArrayList<SplitDetail> splitDetails = strategy.computeShares(Money.ofAmount(totalAmount), participants, weights);
         
         // FIX: Added LocalDate.now() here to fix the red line error
         SharedExpense expense = new SharedExpense(category, totalAmount, description,
                                                  LocalDate.now(), paidBy, groupName);
         expense.setParticipantUserIds(participants);
         expense.setSplitStrategyType(strategyType);
+        expense.setShares(splitDetails);
         
         groupDAO.addSharedExpense(expense);
+        EventBus.getInstance().publish(GroupEvent.expenseAdded(expense));
     }
     
     public ArrayList<SharedExpense> getGroupExpenses(String groupName) {
         return groupDAO.getGroupExpenses(groupName);
     }
     
+    /**
+     * Net balance per member, read from the group's running ledger
+     */
     public Map<String, Double> calculateGroupBalances(String groupName) {
-        ArrayList<SharedExpense> expenses = groupDAO.getGroupExpenses(groupName);
         Map<String, Double> balances = new HashMap<>();
+        for (Map.Entry<String, Long> entry : calculateGroupBalanceCents(groupName).entrySet()) {
+            balances.put(entry.getKey(), Money.toAmount(entry.getValue()));
+        }
+        return balances;
+    }
+    
+    /**
+     * Net balance per member in cents
+     * The ledger is rebuilt from the raw expenses if it is missing or out of step.
+     */
+    public Map<String, Long> calculateGroupBalanceCents(String groupName) {
+        Map<String, Long> balances = new HashMap<>();
         
         Group group = groupDAO.getGroup(groupName);
         if (group == null) return balances;
         
         for (String member : group.getMembers()) {
-            balances.put(member, 0.0);
+            balances.put(member, 0L);
         }
         
-        for (SharedExpense expense : expenses) {
-            String paidBy = expense.getPaidByUsername();
-            double totalAmount = expense.getTotalAmount();
-            List<String> participants = expense.getParticipantUserIds();
-            
-            SplitStrategy strategy = strategies.get(expense.getSplitStrategyType());
-            if (strategy == null) strategy = strategies.get("EQUAL");
-            
-            ArrayList<SplitDetail> shares = strategy.computeShares(totalAmount, participants, null);
-            
-            balances.put(paidBy, balances.getOrDefault(paidBy, 0.0) + totalAmount);
-            
-            for (SplitDetail share : shares) {
-                String person = share.getPersonName();
-                double amount = share.getAmount();
-                balances.put(person, balances.getOrDefault(person, 0.0) - amount);
-            }
+        GroupLedger ledger = groupDAO.getLedger(groupName);
+        if (ledger == null || ledger.getExpenseCount() != groupDAO.getGroupExpenseCount(groupName)) {
+            ledger = rebuildLedger(groupName);
         }
+        balances.putAll(ledger.getBalanceCents());
         return balances;
     }
     
+    /**
+     * Recompute a group's ledger from its expenses and store it
+     */
+    public GroupLedger rebuildLedger(String groupName) {
+        GroupLedger ledger = computeLedger(groupName);
+        groupDAO.saveLedger(ledger);
+        return ledger;
+    }
+    
+    /**
+     * Check the stored ledger against a recomputation from the raw expenses
+     */
+    public boolean verifyLedger(String groupName) {
+        return computeLedger(groupName).sameBalances(groupDAO.getLedger(groupName));
+    }
+    
+    private GroupLedger computeLedger(String groupName) {
+        GroupLedger ledger = new GroupLedger(groupName);
+        for (SharedExpense expense : groupDAO.getGroupExpenses(groupName)) {
+            ledger.apply(expense.getPaidByUsername(), expense.getTotalCents(), sharesOf(expense));
+        }
+        return ledger;
+    }
+    
+    /**
+     * Stored shares, or an equal split for expenses saved before shares were kept
+     * (their weights were never stored, so WEIGHTED/PERCENTAGE cannot be recomputed)
+     */
+    private List<SplitDetail> sharesOf(SharedExpense expense) {
+        if (expense.hasShares()) {
+            return expense.getShares();
+        }
+        List<String> participants = expense.getParticipantUserIds();
+        if (participants == null || participants.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return strategies.get("EQUAL").computeShares(expense.getTotalCents(), participants, null);
+    }
+    
     public List<String> getAvailableStrategies() {
         return new ArrayList<>(strategies.keySet());
     }
     
     public void deleteGroup(String groupName) {
         groupDAO.deleteGroup(groupName);
+        EventBus.getInstance().publish(GroupEvent.deleted(groupName));
     }
 }
\ No newline at end of file
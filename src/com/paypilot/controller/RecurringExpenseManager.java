@@ -1,16 +1,25 @@
 package com.paypilot.controller;
 
 import com.paypilot.dao.RecurringExpenseDAO;
+import com.paypilot.dao.StorageBatch;
 import com.paypilot.model.Expense;
 import com.paypilot.model.RecurringExpense;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * RecurringExpenseManager - Controller for recurring expense operations
  * Handles auto-generation of recurring expenses
+ * Changes to a user's rules are serialized with that user's generation runs
+ * and reported to the RecurringExpenseScheduler, which decides when to run.
  */
 public class RecurringExpenseManager {
+    private static final int MAX_OCCURRENCES_PER_RULE = 1000; // Per run; the rest follows in the next run
+    private static final Map<String, Object> userLocks = new ConcurrentHashMap<>();
+    
     private RecurringExpenseDAO recurringDAO;
     private ExpenseManager expenseManager;
     
@@ -20,82 +29,102 @@ public class RecurringExpenseManager {
     }
     
     /**
-     * Get all recurring expenses for user
+     * Serializes rule changes and generation runs of one user across manager instances
+     */
+    private static Object lockFor(String username) {
+        return userLocks.computeIfAbsent(username, key -> new Object());
+    }
+    
+    /**
+     * Get all recurring expenses for user (a copy, safe to iterate while rules change)
      */
     public ArrayList<RecurringExpense> getRecurringExpenses(String username) {
-        return recurringDAO.loadRecurringExpenses(username);
+        synchronized (lockFor(username)) {
+            return new ArrayList<>(recurringDAO.loadRecurringExpenses(username));
+        }
     }
     
     /**
      * Add new recurring expense
      */
     public void addRecurringExpense(RecurringExpense expense) {
-        recurringDAO.addRecurringExpense(expense.getUsername(), expense);
+        synchronized (lockFor(expense.getUsername())) {
+            recurringDAO.addRecurringExpense(expense.getUsername(), expense);
+        }
+        RecurringExpenseScheduler.getInstance().reschedule(expense.getUsername());
     }
     
     /**
      * Update recurring expense
      */
     public void updateRecurringExpense(RecurringExpense expense) {
-        recurringDAO.updateRecurringExpense(expense.getUsername(), expense);
+        synchronized (lockFor(expense.getUsername())) {
+            recurringDAO.updateRecurringExpense(expense.getUsername(), expense);
+        }
+        RecurringExpenseScheduler.getInstance().reschedule(expense.getUsername());
     }
     
     /**
      * Delete recurring expense
      */
-    public void deleteRecurringExpense(String username, int id) {
-        recurringDAO.deleteRecurringExpense(username, id);
+    public void deleteRecurringExpense(String username, long id) {
+        synchronized (lockFor(username)) {
+            recurringDAO.deleteRecurringExpense(username, id);
+        }
+        RecurringExpenseScheduler.getInstance().reschedule(username);
     }
     
     /**
      * Toggle active status
      */
-    public void toggleRecurringExpense(String username, int id) {
-        ArrayList<RecurringExpense> expenses = recurringDAO.loadRecurringExpenses(username);
-        for (RecurringExpense expense : expenses) {
-            if (expense.getId() == id) {
-                expense.setActive(!expense.isActive());
-                break;
+    public void toggleRecurringExpense(String username, long id) {
+        synchronized (lockFor(username)) {
+            ArrayList<RecurringExpense> expenses = recurringDAO.loadRecurringExpenses(username);
+            for (RecurringExpense expense : expenses) {
+                if (expense.getId() == id) {
+                    expense.setActive(!expense.isActive());
+                    break;
+                }
             }
+            recurringDAO.saveRecurringExpenses(username, expenses);
         }
-        recurringDAO.saveRecurringExpenses(username, expenses);
+        RecurringExpenseScheduler.getInstance().reschedule(username);
     }
     
     /**
      * Process all due recurring expenses for a user
-     * Should be called on app startup
+     * Called by RecurringExpenseScheduler when one of the user's rules is due.
+     * The number of missed occurrences of each rule is computed directly, all
+     * of them are generated in memory, and the expenses and the rules' new
+     * lastGenerated dates are then written in one atomic batch. Occurrence IDs
+     * are derived from rule and date, so even a half-applied catch-up is never
+     * duplicated.
      */
     public int processDueRecurringExpenses(String username) {
-        ArrayList<RecurringExpense> recurringExpenses = recurringDAO.loadRecurringExpenses(username);
-        int generated = 0;
-        
-        for (RecurringExpense recurring : recurringExpenses) {
-            if (!recurring.isActive()) continue;
-            
-            // Generate all missed occurrences
+        synchronized (lockFor(username)) {
+            ArrayList<RecurringExpense> recurringExpenses = recurringDAO.loadRecurringExpenses(username);
+            List<Expense> due = new ArrayList<>();
             LocalDate today = LocalDate.now();
-            while (recurring.shouldGenerateToday()) {
-                LocalDate nextDate = recurring.getNextOccurrence();
-                if (nextDate.isAfter(today)) break;
-                
-                // Create expense instance
-                Expense expense = recurring.createExpenseInstance(nextDate);
-                expenseManager.addExpense(username, expense);
-                
-                // Update last generated date
-                recurring.setLastGenerated(nextDate);
-                generated++;
+            
+            for (RecurringExpense recurring : recurringExpenses) {
+                if (!recurring.isActive()) continue;
                 
-                // Safety check to avoid infinite loops
-                if (generated > 100) break;
+                // Generate all missed occurrences
+                long count = Math.min(recurring.countDueThrough(today), MAX_OCCURRENCES_PER_RULE);
+                for (long k = 1; k <= count; k++) {
+                    due.add(recurring.createExpenseInstance(recurring.getOccurrence(k)));
+                }
+                if (count > 0) {
+                    recurring.setLastGenerated(recurring.getOccurrence(count));
+                }
             }
+            
+            if (due.isEmpty()) {
+                return 0;
+            }
+            StorageBatch batch = new StorageBatch();
+            recurringDAO.stageRecurringExpenses(batch, username, recurringExpenses);
+            return expenseManager.addExpenses(username, due, batch).size();
         }
-        
-        // Save updated recurring expenses
-        if (generated > 0) {
-            recurringDAO.saveRecurringExpenses(username, recurringExpenses);
-        }
-        
-        return generated;
     }
 }
@@ -0,0 +1,185 @@
+package com.paypilot.controller;
+
+import com.paypilot.dao.UserDAO;
+import com.paypilot.model.RecurringExpense;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * RecurringExpenseScheduler - Background service that generates recurring expenses as they fall due
+ * Every active rule of every registered user sits in a priority queue keyed by
+ * its next occurrence date. A daemon thread sleeps until the earliest date
+ * begins, runs RecurringExpenseManager.processDueRecurringExpenses() once per
+ * user with a due rule, and queues those rules again at their new next date.
+ * RecurringExpenseManager calls reschedule() whenever a user's rules change,
+ * so nothing is rescanned on login and users who are not logged in still get
+ * their expenses.
+ *
+ * Headless: java com.paypilot.controller.RecurringExpenseScheduler [--once]
+ */
+public class RecurringExpenseScheduler {
+    private static volatile RecurringExpenseScheduler instance;
+    private static final Object lock = new Object();
+    private static final long MAX_SLEEP_MS = 60L * 60 * 1000; // Re-check hourly in case the clock jumps
+
+    /**
+     * Next occurrence of one rule
+     */
+    private static final class Scheduled {
+        final LocalDate due;
+        final String username;
+
+        Scheduled(LocalDate due, String username) {
+            this.due = due;
+            this.username = username;
+        }
+    }
+
+    private final Object mutex = new Object();
+    private final PriorityQueue<Scheduled> queue = new PriorityQueue<>(
+        Comparator.comparing((Scheduled scheduled) -> scheduled.due).thenComparing(scheduled -> scheduled.username));
+    private final RecurringExpenseManager recurringManager = new RecurringExpenseManager(new ExpenseManager());
+    private Thread worker;
+
+    private RecurringExpenseScheduler() {
+    }
+
+    public static RecurringExpenseScheduler getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new RecurringExpenseScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Start the background thread, which first queues the rules of every user
+     * Later calls do nothing.
+     */
+    public void start() {
+        synchronized (mutex) {
+            if (worker != null) {
+                return;
+            }
+            worker = new Thread(this::run, "paypilot-recurring-scheduler");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Re-read the user's rules after they changed
+     */
+    public void reschedule(String username) {
+        synchronized (mutex) {
+            if (worker == null) {
+                return; // Everything is queued on start()
+            }
+            queueRules(username, LocalDate.MIN);
+            mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Generate every due occurrence for every user now, without the background thread
+     * @return Number of expenses generated
+     */
+    public int processAllDue() {
+        int generated = 0;
+        for (String username : new UserDAO().getUsernames()) {
+            generated += recurringManager.processDueRecurringExpenses(username);
+        }
+        return generated;
+    }
+
+    // === WORKER ===
+
+    private void run() {
+        synchronized (mutex) {
+            for (String username : new UserDAO().getUsernames()) {
+                queueRules(username, LocalDate.MIN);
+            }
+        }
+        while (true) {
+            Set<String> dueUsers = new LinkedHashSet<>();
+            synchronized (mutex) {
+                try {
+                    waitForDueRule();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                LocalDate today = LocalDate.now();
+                while (!queue.isEmpty() && !queue.peek().due.isAfter(today)) {
+                    dueUsers.add(queue.poll().username);
+                }
+            }
+            for (String username : dueUsers) {
+                process(username);
+            }
+        }
+    }
+
+    /**
+     * Sleep until the earliest queued date has begun
+     */
+    private void waitForDueRule() throws InterruptedException {
+        while (true) {
+            Scheduled next = queue.peek();
+            if (next == null) {
+                mutex.wait();
+                continue;
+            }
+            long millis = next.due.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                - System.currentTimeMillis();
+            if (millis <= 0) {
+                return;
+            }
+            mutex.wait(Math.min(millis, MAX_SLEEP_MS));
+        }
+    }
+
+    private void process(String username) {
+        try {
+            recurringManager.processDueRecurringExpenses(username); // Views learn of them through ExpenseEvents
+            synchronized (mutex) {
+                queueRules(username, LocalDate.MIN);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error generating recurring expenses for " + username + ": " + e.getMessage());
+            e.printStackTrace();
+            synchronized (mutex) {
+                queueRules(username, LocalDate.now().plusDays(1)); // Try again tomorrow, not in a loop
+            }
+        }
+    }
+
+    /**
+     * Replace the user's queued entries with the next occurrence of each active rule
+     */
+    private void queueRules(String username, LocalDate notBefore) {
+        queue.removeIf(scheduled -> scheduled.username.equals(username));
+        for (RecurringExpense rule : recurringManager.getRecurringExpenses(username)) {
+            if (!rule.isActive()) continue;
+            LocalDate next = rule.getNextOccurrence();
+            if (!next.isAfter(rule.getLastGenerated())) continue; // Interval that never advances
+            queue.add(new Scheduled(next.isBefore(notBefore) ? notBefore : next, username));
+        }
+    }
+
+    /**
+     * Run the scheduler without the UI, or with --once generate what is due and exit
+     */
+    public static void main(String[] args) throws InterruptedException {
+        RecurringExpenseScheduler scheduler = getInstance();
+        if (args.length > 0 && args[0].equals("--once")) {
+            System.out.println("Generated " + scheduler.processAllDue() + " recurring expenses");
+            return;
+        }
+        scheduler.start();
+        scheduler.worker.join();
+    }
+}
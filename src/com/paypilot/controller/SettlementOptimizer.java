@@ -1,133 +1,232 @@
 package com.paypilot.controller;
 
+import com.paypilot.model.Money;
 import java.util.*;
 
 /**
  * SettlementOptimizer - Implements minimal transaction settlement algorithm
- * Uses greedy approach to minimize number of transactions needed to settle group balances
- * 
- * Algorithm: Min-Cash-Flow
- * 1. Calculate net balance for each person
- * 2. Find person with max credit and max debit
- * 3. Settle between them
- * 4. Repeat until all settled
+ * Works in integer cents so large groups settle to the exact cent.
+ *
+ * GREEDY mode (Min-Cash-Flow), O(n log n):
+ * 1. Convert each net balance to cents
+ * 2. Put creditors and debtors in two max-heaps
+ * 3. Settle the largest debtor against the largest creditor
+ * 4. Push back whoever still has a balance; repeat until a heap is empty
+ *
+ * EXACT mode finds the true minimum number of payments by splitting people
+ * into as many zero-sum subsets as possible (each subset of k people needs
+ * k - 1 payments). It is exponential, so groups with more than
+ * EXACT_MAX_PEOPLE unsettled members fall back to GREEDY.
  */
 public class SettlementOptimizer {
-    
+
+    /**
+     * Largest number of unsettled people the exact mode will handle
+     */
+    public static final int EXACT_MAX_PEOPLE = 20;
+
+    public enum Mode {
+        GREEDY("Fast (greedy)"),
+        EXACT("Fewest payments (exact)");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
     /**
      * Transaction represents a payment from one person to another
      */
     public static class Transaction {
         public final String from;
         public final String to;
+        public final long cents;
         public final double amount;
-        
-        public Transaction(String from, String to, double amount) {
+
+        public Transaction(String from, String to, long cents) {
             this.from = from;
             this.to = to;
-            this.amount = amount;
+            this.cents = cents;
+            this.amount = Money.toAmount(cents);
         }
-        
+
         @Override
         public String toString() {
             return String.format("%s → %s: $%.2f", from, to, amount);
         }
     }
-    
+
     /**
-     * Optimize settlement transactions to minimize number of payments
+     * Optimize settlement transactions with the greedy mode
      * @param balances Map of username to net balance (positive = owed money, negative = owes money)
-     * @return List of optimal transactions to settle all balances
+     * @return List of transactions to settle all balances
      */
     public static List<Transaction> optimizeSettlement(Map<String, Double> balances) {
-        List<Transaction> transactions = new ArrayList<>();
-        
-        // Filter out zero balances and create working copy
-        Map<String, Double> workingBalances = new HashMap<>();
-        for (Map.Entry<String, Double> entry : balances.entrySet()) {
-            if (Math.abs(entry.getValue()) > 0.01) { // Ignore tiny amounts
-                workingBalances.put(entry.getKey(), entry.getValue());
+        return optimizeSettlement(balances, Mode.GREEDY);
+    }
+
+    /**
+     * Optimize settlement transactions to minimize number of payments
+     * @param balances Map of username to net balance (positive = owed money, negative = owes money)
+     * @param mode GREEDY, or EXACT for the minimum number of payments on small groups
+     * @return List of transactions to settle all balances
+     */
+    public static List<Transaction> optimizeSettlement(Map<String, Double> balances, Mode mode) {
+        return optimizeSettlementCents(toCents(balances), mode);
+    }
+
+    /**
+     * Optimize settlement of balances given in cents
+     */
+    public static List<Transaction> optimizeSettlementCents(Map<String, Long> balanceCents, Mode mode) {
+        List<String> people = new ArrayList<>();
+        List<Long> cents = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : new TreeMap<>(balanceCents).entrySet()) {
+            long value = entry.getValue();
+            if (value != 0) { // Already settled
+                people.add(entry.getKey());
+                cents.add(value);
             }
         }
-        
-        // Process until all balances are settled
-        while (!workingBalances.isEmpty()) {
-            // Find person with maximum credit (is owed most)
-            String maxCreditor = null;
-            double maxCredit = 0;
-            
-            for (Map.Entry<String, Double> entry : workingBalances.entrySet()) {
-                if (entry.getValue() > maxCredit) {
-                    maxCredit = entry.getValue();
-                    maxCreditor = entry.getKey();
-                }
-            }
-            
-            // Find person with maximum debit (owes most)
-            String maxDebtor = null;
-            double maxDebit = 0;
-            
-            for (Map.Entry<String, Double> entry : workingBalances.entrySet()) {
-                if (entry.getValue() < maxDebit) {
-                    maxDebit = entry.getValue();
-                    maxDebtor = entry.getKey();
+
+        List<Transaction> transactions = new ArrayList<>();
+        if (mode == Mode.EXACT && people.size() <= EXACT_MAX_PEOPLE) {
+            for (int[] subset : zeroSumSubsets(cents)) {
+                List<String> subsetPeople = new ArrayList<>(subset.length);
+                List<Long> subsetCents = new ArrayList<>(subset.length);
+                for (int index : subset) {
+                    subsetPeople.add(people.get(index));
+                    subsetCents.add(cents.get(index));
                 }
+                settleGreedy(subsetPeople, subsetCents, transactions);
             }
-            
-            // If no creditor or debtor found, we're done
-            if (maxCreditor == null || maxDebtor == null) {
-                break;
+        } else {
+            settleGreedy(people, cents, transactions);
+        }
+        return transactions;
+    }
+
+    private static Map<String, Long> toCents(Map<String, Double> balances) {
+        Map<String, Long> cents = new HashMap<>();
+        for (Map.Entry<String, Double> entry : balances.entrySet()) {
+            cents.put(entry.getKey(), Money.ofAmount(entry.getValue()));
+        }
+        return cents;
+    }
+
+    /**
+     * Heap-based Min-Cash-Flow over one set of people
+     */
+    private static void settleGreedy(List<String> people, List<Long> cents, List<Transaction> out) {
+        // Entries are {remaining cents (positive), index}; ties broken by index for stable output
+        Comparator<long[]> largestFirst = (a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]);
+        PriorityQueue<long[]> creditors = new PriorityQueue<>(largestFirst);
+        PriorityQueue<long[]> debtors = new PriorityQueue<>(largestFirst);
+        for (int i = 0; i < people.size(); i++) {
+            long value = cents.get(i);
+            if (value > 0) creditors.add(new long[]{value, i});
+            else if (value < 0) debtors.add(new long[]{-value, i});
+        }
+
+        while (!creditors.isEmpty() && !debtors.isEmpty()) {
+            long[] creditor = creditors.poll();
+            long[] debtor = debtors.poll();
+            long amount = Math.min(creditor[0], debtor[0]);
+
+            // Debtor pays creditor
+            out.add(new Transaction(people.get((int) debtor[1]), people.get((int) creditor[1]), amount));
+
+            creditor[0] -= amount;
+            debtor[0] -= amount;
+            if (creditor[0] > 0) creditors.add(creditor);
+            if (debtor[0] > 0) debtors.add(debtor);
+        }
+    }
+
+    /**
+     * Partition indexes into the largest possible number of zero-sum subsets
+     * best[mask] is the most zero-sum subsets the people in mask can be split into;
+     * any person can be the last one added, so best[mask] = max over i of
+     * best[mask without i], plus one if mask itself sums to zero.
+     */
+    private static List<int[]> zeroSumSubsets(List<Long> cents) {
+        int n = cents.size();
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        byte[] best = new byte[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            int low = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + cents.get(low);
+            int most = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                most = Math.max(most, best[mask ^ bit]);
             }
-            
-            // Settle between max creditor and max debtor
-            double settlementAmount = Math.min(maxCredit, Math.abs(maxDebit));
-            
-            // Create transaction: debtor pays creditor
-            transactions.add(new Transaction(maxDebtor, maxCreditor, settlementAmount));
-            
-            // Update balances
-            workingBalances.put(maxCreditor, maxCredit - settlementAmount);
-            workingBalances.put(maxDebtor, maxDebit + settlementAmount);
-            
-            // Remove settled accounts
-            if (Math.abs(workingBalances.get(maxCreditor)) < 0.01) {
-                workingBalances.remove(maxCreditor);
+            best[mask] = (byte) (most + (sum[mask] == 0 ? 1 : 0));
+        }
+
+        // Walk back from the full set, cutting a subset each time the running set sums to zero
+        List<int[]> subsets = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int mask = full;
+        while (mask != 0) {
+            int target = best[mask] - (sum[mask] == 0 ? 1 : 0);
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (best[mask ^ bit] == target) {
+                    current.add(Integer.numberOfTrailingZeros(bit));
+                    mask ^= bit;
+                    break;
+                }
             }
-            if (Math.abs(workingBalances.get(maxDebtor)) < 0.01) {
-                workingBalances.remove(maxDebtor);
+            if (sum[mask] == 0) {
+                subsets.add(current.stream().mapToInt(Integer::intValue).toArray());
+                current = new ArrayList<>();
             }
         }
-        
-        return transactions;
+        return subsets;
     }
-    
+
     /**
      * Calculate savings compared to direct settlement
      * @param balances Original balances
      * @return Savings information
      */
     public static SettlementSavings calculateSavings(Map<String, Double> balances) {
-        List<Transaction> optimized = optimizeSettlement(balances);
-        
-        // Count direct transactions (everyone with negative balance pays everyone with positive)
-        int directTransactions = 0;
-        for (double balance : balances.values()) {
-            if (balance < -0.01) directTransactions++;
-        }
+        return calculateSavings(balances, Mode.GREEDY);
+    }
+
+    public static SettlementSavings calculateSavings(Map<String, Double> balances, Mode mode) {
+        return calculateSavings(balances, optimizeSettlement(balances, mode));
+    }
+
+    /**
+     * Calculate savings of an already computed plan
+     */
+    public static SettlementSavings calculateSavings(Map<String, Double> balances, List<Transaction> optimized) {
+        // Direct settlement: every debtor pays every creditor
+        long debtors = 0;
+        long creditors = 0;
         for (double balance : balances.values()) {
-            if (balance > 0.01) directTransactions++;
+            long cents = Money.ofAmount(balance);
+            if (cents < 0) debtors++;
+            else if (cents > 0) creditors++;
         }
-        // Actually it's debtors * creditors
-        long debtors = balances.values().stream().filter(b -> b < -0.01).count();
-        long creditors = balances.values().stream().filter(b -> b > 0.01).count();
-        directTransactions = (int)(debtors * creditors);
-        
+        int directTransactions = (int) Math.min(Integer.MAX_VALUE, debtors * creditors);
+
         int optimizedTransactions = optimized.size();
         int saved = directTransactions - optimizedTransactions;
-        
+
         return new SettlementSavings(directTransactions, optimizedTransactions, saved);
     }
-    
+
     /**
      * Savings information
      */
@@ -135,7 +234,7 @@ public class SettlementOptimizer {
         public final int directTransactions;
         public final int optimizedTransactions;
         public final int transactionsSaved;
-        
+
         public SettlementSavings(int direct, int optimized, int saved) {
             this.directTransactions = direct;
             this.optimizedTransactions = optimized;
@@ -0,0 +1,22 @@
+package com.paypilot.controller.event;
+
+import com.paypilot.model.Budget;
+
+/**
+ * BudgetEvent - A user's budget limits were saved
+ */
+public final class BudgetEvent implements ChangeEvent {
+    private final Budget budget;
+
+    public BudgetEvent(Budget budget) {
+        this.budget = budget;
+    }
+
+    public Budget getBudget() { return budget; }
+    public String getUsername() { return budget.getUsername(); }
+
+    @Override
+    public String toString() {
+        return "BudgetEvent[" + budget.getUsername() + "]";
+    }
+}
@@ -0,0 +1,9 @@
+package com.paypilot.controller.event;
+
+/**
+ * ChangeEvent - Marker for notifications published on the EventBus
+ * Events are immutable and carry the change itself, so subscribers can
+ * update their models without reloading.
+ */
+public interface ChangeEvent {
+}
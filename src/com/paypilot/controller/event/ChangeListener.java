@@ -0,0 +1,12 @@
+package com.paypilot.controller.event;
+
+import java.util.List;
+
+/**
+ * ChangeListener - Receives the events of one type published during an EDT frame
+ * Called on the Event Dispatch Thread, with the events in publication order.
+ */
+@FunctionalInterface
+public interface ChangeListener<E extends ChangeEvent> {
+    void onChanges(List<E> events);
+}
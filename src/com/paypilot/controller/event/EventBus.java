@@ -0,0 +1,110 @@
+package com.paypilot.controller.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.SwingUtilities;
+
+/**
+ * EventBus - Typed change notifications from the controllers to the views
+ * ExpenseManager, GroupController and BudgetManager publish an event after
+ * every change; views subscribe by event type and patch their models instead
+ * of reloading everything.
+ *
+ * Events are coalesced per EDT frame: everything published while the current
+ * EDT event runs (an add plus its undo entry, a batch of recurring expenses)
+ * is delivered in one call per listener on the next pass of the event queue.
+ * Publishing is cheap and thread-safe; nothing is queued while no one listens.
+ */
+public class EventBus {
+    private static volatile EventBus instance;
+    private static final Object lock = new Object();
+
+    /**
+     * Listener registered for one event type
+     */
+    private static final class Subscription {
+        final Class<? extends ChangeEvent> type;
+        final ChangeListener<? extends ChangeEvent> listener;
+
+        Subscription(Class<? extends ChangeEvent> type, ChangeListener<? extends ChangeEvent> listener) {
+            this.type = type;
+            this.listener = listener;
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object mutex = new Object();
+    private List<ChangeEvent> queued = new ArrayList<>();
+    private boolean dispatchScheduled;
+
+    private EventBus() {
+    }
+
+    public static EventBus getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new EventBus();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public <E extends ChangeEvent> void subscribe(Class<E> type, ChangeListener<E> listener) {
+        subscriptions.add(new Subscription(type, listener));
+    }
+
+    /**
+     * Remove every subscription of listener
+     */
+    public void unsubscribe(ChangeListener<?> listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Queue an event for delivery on the Event Dispatch Thread
+     */
+    public void publish(ChangeEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        synchronized (mutex) {
+            queued.add(event);
+            if (dispatchScheduled) {
+                return; // Joins the frame that is already scheduled
+            }
+            dispatchScheduled = true;
+        }
+        SwingUtilities.invokeLater(this::dispatch);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void dispatch() {
+        List<ChangeEvent> batch;
+        synchronized (mutex) {
+            batch = queued;
+            queued = new ArrayList<>();
+            dispatchScheduled = false;
+        }
+        for (Subscription subscription : subscriptions) {
+            List<ChangeEvent> matching = new ArrayList<>();
+            for (ChangeEvent event : batch) {
+                if (subscription.type.isInstance(event)) {
+                    matching.add(event);
+                }
+            }
+            if (matching.isEmpty() || !subscriptions.contains(subscription)) {
+                continue; // Nothing for it, or unsubscribed by an earlier listener in this frame
+            }
+            try {
+                ((ChangeListener) subscription.listener).onChanges(matching);
+            } catch (RuntimeException e) {
+                // One broken view must not stop the others from updating
+                System.err.println("Error delivering " + matching.get(0) + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.paypilot.controller.event;
+
+import com.paypilot.model.Expense;
+
+/**
+ * ExpenseEvent - A personal expense was added, updated or deleted
+ * Carries the new and previous expense, plus the snapshot version that
+ * already includes the change.
+ */
+public final class ExpenseEvent implements ChangeEvent {
+    public enum Type { ADDED, UPDATED, DELETED, CLEARED }
+
+    private final Type type;
+    private final String username;
+    private final Expense expense;  // New value; null for DELETED and CLEARED
+    private final Expense previous; // Old value for UPDATED and DELETED
+    private final long version;
+
+    private ExpenseEvent(Type type, String username, Expense expense, Expense previous, long version) {
+        this.type = type;
+        this.username = username;
+        this.expense = expense;
+        this.previous = previous;
+        this.version = version;
+    }
+
+    public static ExpenseEvent added(String username, Expense expense, long version) {
+        return new ExpenseEvent(Type.ADDED, username, expense, null, version);
+    }
+
+    public static ExpenseEvent updated(String username, Expense previous, Expense expense, long version) {
+        return new ExpenseEvent(Type.UPDATED, username, expense, previous, version);
+    }
+
+    public static ExpenseEvent deleted(String username, Expense previous, long version) {
+        return new ExpenseEvent(Type.DELETED, username, null, previous, version);
+    }
+
+    public static ExpenseEvent cleared(String username, long version) {
+        return new ExpenseEvent(Type.CLEARED, username, null, null, version);
+    }
+
+    public Type getType() { return type; }
+    public String getUsername() { return username; }
+    public Expense getExpense() { return expense; }
+    public Expense getPrevious() { return previous; }
+    public long getVersion() { return version; }
+
+    /**
+     * ID of the affected expense, or 0 for CLEARED
+     */
+    public long getExpenseId() {
+        if (expense != null) return expense.getId();
+        return previous != null ? previous.getId() : 0;
+    }
+
+    /**
+     * Change in the user's total, in cents
+     */
+    public long getAmountDeltaCents() {
+        long after = expense != null ? expense.getAmountCents() : 0;
+        long before = previous != null ? previous.getAmountCents() : 0;
+        return after - before;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseEvent[" + type + " " + username + " #" + getExpenseId() + " v" + version + "]";
+    }
+}
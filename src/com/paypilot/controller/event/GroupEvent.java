@@ -0,0 +1,52 @@
+package com.paypilot.controller.event;
+
+import com.paypilot.model.SharedExpense;
+
+/**
+ * GroupEvent - A group, its membership or its shared expenses changed
+ */
+public final class GroupEvent implements ChangeEvent {
+    public enum Type { CREATED, DELETED, MEMBER_ADDED, MEMBER_REMOVED, EXPENSE_ADDED }
+
+    private final Type type;
+    private final String groupName;
+    private final String member;          // For MEMBER_ADDED / MEMBER_REMOVED, and the creator for CREATED
+    private final SharedExpense expense;  // For EXPENSE_ADDED
+
+    private GroupEvent(Type type, String groupName, String member, SharedExpense expense) {
+        this.type = type;
+        this.groupName = groupName;
+        this.member = member;
+        this.expense = expense;
+    }
+
+    public static GroupEvent created(String groupName, String createdBy) {
+        return new GroupEvent(Type.CREATED, groupName, createdBy, null);
+    }
+
+    public static GroupEvent deleted(String groupName) {
+        return new GroupEvent(Type.DELETED, groupName, null, null);
+    }
+
+    public static GroupEvent memberAdded(String groupName, String member) {
+        return new GroupEvent(Type.MEMBER_ADDED, groupName, member, null);
+    }
+
+    public static GroupEvent memberRemoved(String groupName, String member) {
+        return new GroupEvent(Type.MEMBER_REMOVED, groupName, member, null);
+    }
+
+    public static GroupEvent expenseAdded(SharedExpense expense) {
+        return new GroupEvent(Type.EXPENSE_ADDED, expense.getGroupName(), expense.getPaidByUsername(), expense);
+    }
+
+    public Type getType() { return type; }
+    public String getGroupName() { return groupName; }
+    public String getMember() { return member; }
+    public SharedExpense getExpense() { return expense; }
+
+    @Override
+    public String toString() {
+        return "GroupEvent[" + type + " " + groupName + (member != null ? " " + member : "") + "]";
+    }
+}
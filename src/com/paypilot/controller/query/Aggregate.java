@@ -0,0 +1,85 @@
+package com.paypilot.controller.query;
+
+import com.paypilot.controller.query.ExpenseQuery.Measure;
+import com.paypilot.model.Expense;
+import java.util.Set;
+
+/**
+ * Aggregate - Measures of one group of expenses (or of all matches), in cents
+ * Only the measures the query asked for are available; the others throw, since
+ * a plan that reads the rollup never sees individual expenses.
+ */
+public final class Aggregate {
+    private final Set<Measure> measures;
+    private long count;
+    private long sumCents;
+    private long minCents = Long.MAX_VALUE;
+    private long maxCents = Long.MIN_VALUE;
+
+    Aggregate(Set<Measure> measures) {
+        this.measures = measures;
+    }
+
+    static Aggregate ofSum(Set<Measure> measures, long sumCents) {
+        Aggregate aggregate = new Aggregate(measures);
+        aggregate.sumCents = sumCents;
+        return aggregate;
+    }
+
+    void add(Expense expense) {
+        long cents = expense.getAmountCents();
+        count++;
+        sumCents += cents;
+        minCents = Math.min(minCents, cents);
+        maxCents = Math.max(maxCents, cents);
+    }
+
+    void addSum(long cents) {
+        sumCents += cents;
+    }
+
+    public boolean has(Measure measure) {
+        return measures.contains(measure);
+    }
+
+    public long getCount() {
+        require(Measure.COUNT);
+        return count;
+    }
+
+    public long getSumCents() {
+        require(Measure.SUM);
+        return sumCents;
+    }
+
+    /**
+     * @return Smallest amount, or 0 without expenses
+     */
+    public long getMinCents() {
+        require(Measure.MIN);
+        return count == 0 ? 0 : minCents;
+    }
+
+    /**
+     * @return Largest amount, or 0 without expenses
+     */
+    public long getMaxCents() {
+        require(Measure.MAX);
+        return count == 0 ? 0 : maxCents;
+    }
+
+    /**
+     * Needs both COUNT and SUM
+     */
+    public long getAverageCents() {
+        require(Measure.COUNT);
+        require(Measure.SUM);
+        return count == 0 ? 0 : Math.round((double) sumCents / count);
+    }
+
+    private void require(Measure measure) {
+        if (!measures.contains(measure)) {
+            throw new IllegalStateException(measure + " was not requested by the query");
+        }
+    }
+}
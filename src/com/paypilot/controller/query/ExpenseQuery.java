@@ -0,0 +1,256 @@
+package com.paypilot.controller.query;
+
+import com.paypilot.model.Expense;
+import com.paypilot.model.ExpenseSnapshot;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * ExpenseQuery - Immutable description of which expenses to read and what to compute
+ * Filters (categories, amount range, date range, split flag, receipt) are
+ * ANDed; each with...() style method returns a modified copy, so queries can
+ * be built up step by step and shared. execute() hands the query to
+ * ExpenseQueryPlanner, which picks the cheapest way to answer it from a
+ * snapshot's rollup and date index, or falls back to a single pass.
+ *
+ * Example: the ten largest food expenses this month, plus the month's total
+ *     ExpenseQuery.all()
+ *         .inCategories("Food")
+ *         .between(monthStart, monthEnd)
+ *         .orderBy(ExpenseQuery.Sort.AMOUNT, true)
+ *         .limit(10)
+ *         .aggregate(ExpenseQuery.Measure.SUM)
+ *         .execute(snapshot);
+ */
+public final class ExpenseQuery {
+    private static final ExpenseQuery ALL = new ExpenseQuery();
+
+    public enum Sort {
+        DATE(Comparator.comparing(Expense::getDate)),
+        AMOUNT(Comparator.comparingLong(Expense::getAmountCents)),
+        CATEGORY(Comparator.comparing(Expense::getCategory));
+
+        final Comparator<Expense> ascending;
+
+        Sort(Comparator<Expense> ascending) {
+            this.ascending = ascending;
+        }
+    }
+
+    public enum GroupKey {
+        CATEGORY(Expense::getCategory),                   // String
+        DAY(Expense::getDate),                            // LocalDate
+        MONTH(expense -> YearMonth.from(expense.getDate())), // YearMonth
+        SPLIT(Expense::isSplit);                          // Boolean
+
+        final Function<Expense, Object> keyOf;
+
+        GroupKey(Function<Expense, Object> keyOf) {
+            this.keyOf = keyOf;
+        }
+    }
+
+    public enum Measure { COUNT, SUM, MIN, MAX }
+
+    List<String> categories;    // null = any
+    long minCents = Long.MIN_VALUE;
+    long maxCents = Long.MAX_VALUE;
+    LocalDate from = LocalDate.MIN;
+    LocalDate to = LocalDate.MAX;
+    Boolean split;              // null = either
+    Boolean hasReceipt;         // null = either
+    Sort sort;                  // null = the order the plan reads expenses in
+    boolean descending;
+    int offset;
+    int limit = Integer.MAX_VALUE;
+    GroupKey groupKey;
+    Set<Measure> groupMeasures = EnumSet.noneOf(Measure.class);
+    Set<Measure> totalMeasures = EnumSet.noneOf(Measure.class);
+
+    private ExpenseQuery() {
+    }
+
+    private ExpenseQuery copy() {
+        ExpenseQuery copy = new ExpenseQuery();
+        copy.categories = categories;
+        copy.minCents = minCents;
+        copy.maxCents = maxCents;
+        copy.from = from;
+        copy.to = to;
+        copy.split = split;
+        copy.hasReceipt = hasReceipt;
+        copy.sort = sort;
+        copy.descending = descending;
+        copy.offset = offset;
+        copy.limit = limit;
+        copy.groupKey = groupKey;
+        copy.groupMeasures = groupMeasures;
+        copy.totalMeasures = totalMeasures;
+        return copy;
+    }
+
+    /**
+     * Every expense, in the order the plan reads them, with no aggregates
+     */
+    public static ExpenseQuery all() {
+        return ALL;
+    }
+
+    // === FILTERS ===
+
+    /**
+     * Only expenses in one of these categories, ignoring case
+     */
+    public ExpenseQuery inCategories(String... categories) {
+        return inCategories(Arrays.asList(categories));
+    }
+
+    public ExpenseQuery inCategories(Collection<String> categories) {
+        if (categories.isEmpty()) {
+            throw new IllegalArgumentException("At least one category is required");
+        }
+        ExpenseQuery copy = copy();
+        copy.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+        return copy;
+    }
+
+    /**
+     * Only expenses of minCents..maxCents, both inclusive
+     */
+    public ExpenseQuery amountBetween(long minCents, long maxCents) {
+        if (minCents > maxCents) {
+            throw new IllegalArgumentException("Minimum amount is above the maximum");
+        }
+        ExpenseQuery copy = copy();
+        copy.minCents = minCents;
+        copy.maxCents = maxCents;
+        return copy;
+    }
+
+    /**
+     * Only expenses dated from..to, both inclusive
+     */
+    public ExpenseQuery between(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date is after the end date");
+        }
+        ExpenseQuery copy = copy();
+        copy.from = from;
+        copy.to = to;
+        return copy;
+    }
+
+    public ExpenseQuery split(boolean split) {
+        ExpenseQuery copy = copy();
+        copy.split = split;
+        return copy;
+    }
+
+    public ExpenseQuery withReceipt(boolean hasReceipt) {
+        ExpenseQuery copy = copy();
+        copy.hasReceipt = hasReceipt;
+        return copy;
+    }
+
+    // === ROWS ===
+
+    /**
+     * Sort the rows; descending is the exact reverse of ascending, ties included
+     */
+    public ExpenseQuery orderBy(Sort sort, boolean descending) {
+        ExpenseQuery copy = copy();
+        copy.sort = sort;
+        copy.descending = descending;
+        return copy;
+    }
+
+    /**
+     * Skip this many matching rows; aggregates still cover all of them
+     */
+    public ExpenseQuery offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        ExpenseQuery copy = copy();
+        copy.offset = offset;
+        return copy;
+    }
+
+    /**
+     * Return at most this many rows; 0 for aggregates only
+     */
+    public ExpenseQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        ExpenseQuery copy = copy();
+        copy.limit = limit;
+        return copy;
+    }
+
+    // === AGGREGATES ===
+
+    /**
+     * Compute these measures per group of matching expenses
+     */
+    public ExpenseQuery groupBy(GroupKey key, Measure... measures) {
+        if (measures.length == 0) {
+            throw new IllegalArgumentException("At least one measure is required");
+        }
+        ExpenseQuery copy = copy();
+        copy.groupKey = key;
+        copy.groupMeasures = EnumSet.copyOf(Arrays.asList(measures));
+        return copy;
+    }
+
+    /**
+     * Compute these measures over all matching expenses
+     */
+    public ExpenseQuery aggregate(Measure... measures) {
+        if (measures.length == 0) {
+            throw new IllegalArgumentException("At least one measure is required");
+        }
+        ExpenseQuery copy = copy();
+        copy.totalMeasures = EnumSet.copyOf(Arrays.asList(measures));
+        return copy;
+    }
+
+    // === EXECUTION ===
+
+    public ExpenseQueryResult execute(ExpenseSnapshot snapshot) {
+        return ExpenseQueryPlanner.execute(this, snapshot);
+    }
+
+    /**
+     * Run over a plain collection; always a single pass, as there are no indexes
+     */
+    public ExpenseQueryResult execute(Collection<Expense> expenses) {
+        return ExpenseQueryPlanner.execute(this, expenses);
+    }
+
+    /**
+     * Whether the expense passes every filter; lets views patch query results incrementally
+     */
+    public boolean matches(Expense expense) {
+        if (categories != null && !inCategories(expense.getCategory())) return false;
+        if (expense.getAmountCents() < minCents || expense.getAmountCents() > maxCents) return false;
+        if (expense.getDate().isBefore(from) || expense.getDate().isAfter(to)) return false;
+        if (split != null && expense.isSplit() != split) return false;
+        return hasReceipt == null || expense.hasReceipt() == hasReceipt;
+    }
+
+    boolean inCategories(String category) {
+        for (String wanted : categories) {
+            if (wanted.equalsIgnoreCase(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isDateBounded() {
+        return !from.equals(LocalDate.MIN) || !to.equals(LocalDate.MAX);
+    }
+}
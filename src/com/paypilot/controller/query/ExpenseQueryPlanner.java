@@ -0,0 +1,247 @@
+package com.paypilot.controller.query;
+
+import com.paypilot.controller.query.ExpenseQuery.GroupKey;
+import com.paypilot.controller.query.ExpenseQuery.Measure;
+import com.paypilot.controller.query.ExpenseQuery.Sort;
+import com.paypilot.model.Expense;
+import com.paypilot.model.ExpenseDateIndex;
+import com.paypilot.model.ExpenseSnapshot;
+import com.paypilot.model.SpendingRollup;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * ExpenseQueryPlanner - Answers an ExpenseQuery with the cheapest plan the snapshot allows
+ * 1. Sums only, filtered by date and category at most: read the SpendingRollup,
+ *    O(log d) per total, without touching expenses.
+ * 2. Otherwise pick the narrowest source: the per-category date index for a
+ *    category filter, the date index for a date range or date order, else all
+ *    expenses. Index sources arrive in date order, so a date sort is free.
+ * 3. Make one pass over the source that applies the remaining filters and feeds
+ *    the aggregates and the rows together. Sorting with a limit keeps only the
+ *    best offset+limit rows in a heap; without sorting the pass stops as soon
+ *    as the page is full, unless aggregates still need the rest.
+ */
+final class ExpenseQueryPlanner {
+    private static final Set<Measure> SUM_ONLY = EnumSet.of(Measure.SUM);
+
+    private ExpenseQueryPlanner() {
+    }
+
+    static ExpenseQueryResult execute(ExpenseQuery query, ExpenseSnapshot snapshot) {
+        if (canUseRollup(query)) {
+            return fromRollup(query, snapshot);
+        }
+        if (query.categories != null) {
+            return scan(query, byCategory(query, snapshot.getDateIndex()), true, snapshot.getVersion(),
+                        "category index");
+        }
+        if (query.isDateBounded() || query.sort == Sort.DATE) {
+            return scan(query, snapshot.between(query.from, query.to), true, snapshot.getVersion(), "date index");
+        }
+        return scan(query, snapshot.getExpenses(), false, snapshot.getVersion(), "scan");
+    }
+
+    static ExpenseQueryResult execute(ExpenseQuery query, Collection<Expense> expenses) {
+        List<Expense> source = expenses instanceof List ? (List<Expense>) expenses : new ArrayList<>(expenses);
+        return scan(query, source, false, -1, "scan");
+    }
+
+    // === ROLLUP PLAN ===
+
+    private static boolean canUseRollup(ExpenseQuery query) {
+        if (query.limit != 0 || (query.totalMeasures.isEmpty() && query.groupKey == null)) {
+            return false; // Rows are needed, or nothing to compute
+        }
+        if (query.minCents != Long.MIN_VALUE || query.maxCents != Long.MAX_VALUE
+                || query.split != null || query.hasReceipt != null) {
+            return false; // The rollup only knows dates and categories
+        }
+        if (!SUM_ONLY.containsAll(query.totalMeasures)) {
+            return false;
+        }
+        return query.groupKey == null || (query.groupKey != GroupKey.SPLIT && SUM_ONLY.containsAll(query.groupMeasures));
+    }
+
+    private static ExpenseQueryResult fromRollup(ExpenseQuery query, ExpenseSnapshot snapshot) {
+        SpendingRollup rollup = snapshot.getRollup();
+        Map<String, Long> categoryTotals = new TreeMap<>();
+        rollup.categoryTotalsBetween(query.from, query.to).forEach((category, cents) -> {
+            if (query.categories == null || query.inCategories(category)) {
+                categoryTotals.put(category, cents);
+            }
+        });
+
+        long total = 0;
+        if (query.categories == null) {
+            total = rollup.totalCentsBetween(query.from, query.to);
+        } else {
+            for (long cents : categoryTotals.values()) {
+                total += cents;
+            }
+        }
+
+        Map<Object, Aggregate> groups = newGroups();
+        if (query.groupKey == GroupKey.CATEGORY) {
+            categoryTotals.forEach((category, cents) -> groups.put(category, Aggregate.ofSum(query.groupMeasures, cents)));
+        } else if (query.groupKey != null) {
+            Collection<String> series = query.categories == null
+                ? Collections.singletonList(null) : categoryTotals.keySet();
+            for (String category : series) {
+                rollup.dailyTotals(query.from, query.to, category).forEach((day, cents) -> {
+                    Object key = query.groupKey == GroupKey.DAY ? day : YearMonth.from(day);
+                    groups.computeIfAbsent(key, k -> Aggregate.ofSum(query.groupMeasures, 0)).addSum(cents);
+                });
+            }
+        }
+        return new ExpenseQueryResult(snapshot.getVersion(), Collections.emptyList(),
+            Aggregate.ofSum(query.totalMeasures, total), groups, "rollup");
+    }
+
+    // === INDEX SOURCES ===
+
+    /**
+     * Expenses of the wanted categories in the date range, oldest first
+     */
+    private static List<Expense> byCategory(ExpenseQuery query, ExpenseDateIndex index) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String category : query.categories) {
+            keys.add(category.toLowerCase(Locale.ROOT)); // The index ignores case too
+        }
+        if (keys.size() == 1) {
+            return index.between(query.from, query.to, keys.iterator().next());
+        }
+        List<Expense> merged = new ArrayList<>();
+        for (String key : keys) {
+            merged.addAll(index.between(query.from, query.to, key));
+        }
+        merged.sort(Comparator.comparing(Expense::getDate)); // Stable: each category keeps its order
+        return merged;
+    }
+
+    // === SINGLE PASS ===
+
+    private static ExpenseQueryResult scan(ExpenseQuery query, List<Expense> source, boolean dateOrdered,
+                                           long version, String plan) {
+        boolean readInOrder = query.sort == null || (query.sort == Sort.DATE && dateOrdered);
+        boolean backwards = readInOrder && query.sort != null && query.descending;
+        boolean aggregating = !query.totalMeasures.isEmpty() || query.groupKey != null;
+
+        Aggregate totals = new Aggregate(query.totalMeasures);
+        Map<Object, Aggregate> groups = newGroups();
+        List<Expense> rows = new ArrayList<>();
+        RowRanking ranking = readInOrder || query.limit == 0 ? null : new RowRanking(query);
+        int matched = 0;
+        int size = source.size();
+        for (int i = 0; i < size; i++) {
+            Expense expense = source.get(backwards ? size - 1 - i : i);
+            if (!query.matches(expense)) {
+                continue;
+            }
+            if (aggregating) {
+                totals.add(expense);
+                if (query.groupKey != null) {
+                    groups.computeIfAbsent(query.groupKey.keyOf.apply(expense),
+                                           key -> new Aggregate(query.groupMeasures)).add(expense);
+                }
+            }
+            if (ranking != null) {
+                ranking.add(expense, matched);
+            } else if (readInOrder && matched >= query.offset && rows.size() < query.limit) {
+                rows.add(expense);
+            } else if (readInOrder && rows.size() >= query.limit && !aggregating) {
+                break; // Page is full and nothing else needs the rest
+            }
+            matched++;
+        }
+        if (ranking != null) {
+            rows = ranking.rows();
+        }
+        return new ExpenseQueryResult(version, rows, totals, groups, describe(query, plan, readInOrder));
+    }
+
+    private static Map<Object, Aggregate> newGroups() {
+        return new TreeMap<>(Comparator.nullsFirst((a, b) -> {
+            @SuppressWarnings("unchecked")
+            Comparable<Object> comparable = (Comparable<Object>) a;
+            return comparable.compareTo(b);
+        }));
+    }
+
+    private static String describe(ExpenseQuery query, String source, boolean readInOrder) {
+        StringBuilder plan = new StringBuilder(source);
+        boolean residual = query.minCents != Long.MIN_VALUE || query.maxCents != Long.MAX_VALUE
+            || query.split != null || query.hasReceipt != null
+            || (source.equals("scan") && (query.categories != null || query.isDateBounded()));
+        if (residual) {
+            plan.append(" -> filter");
+        }
+        if (query.limit == 0) {
+            plan.append(" -> no rows");
+        } else if (!readInOrder) {
+            plan.append(query.limit == Integer.MAX_VALUE ? " -> sort" : " -> top " + query.limit);
+        } else if (query.limit < Integer.MAX_VALUE) {
+            plan.append(" -> first ").append(query.limit);
+        }
+        if (query.groupKey != null) {
+            plan.append(" -> group by ").append(query.groupKey);
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Sorted rows of the page; with a limit only the best offset+limit are kept
+     * Ties keep the order the rows were matched in (reversed when descending).
+     */
+    private static final class RowRanking {
+        private final ExpenseQuery query;
+        private final Comparator<Ranked> order;
+        private final long keep;
+        private final PriorityQueue<Ranked> best; // Worst kept row first
+        private final List<Ranked> all;
+
+        RowRanking(ExpenseQuery query) {
+            this.query = query;
+            Comparator<Ranked> ascending = Comparator.<Ranked, Expense>comparing(r -> r.expense, query.sort.ascending)
+                .thenComparingInt(r -> r.sequence);
+            this.order = query.descending ? ascending.reversed() : ascending;
+            this.keep = query.limit == Integer.MAX_VALUE ? Long.MAX_VALUE : (long) query.offset + query.limit;
+            this.best = keep == Long.MAX_VALUE ? null : new PriorityQueue<>(order.reversed());
+            this.all = best == null ? new ArrayList<>() : null;
+        }
+
+        void add(Expense expense, int sequence) {
+            Ranked ranked = new Ranked(expense, sequence);
+            if (best == null) {
+                all.add(ranked);
+                return;
+            }
+            if (best.size() < keep) {
+                best.add(ranked);
+            } else if (order.compare(ranked, best.peek()) < 0) {
+                best.poll();
+                best.add(ranked);
+            }
+        }
+
+        List<Expense> rows() {
+            List<Ranked> sorted = best == null ? all : new ArrayList<>(best);
+            sorted.sort(order);
+            List<Expense> rows = new ArrayList<>();
+            for (int i = query.offset; i < sorted.size() && rows.size() < query.limit; i++) {
+                rows.add(sorted.get(i).expense);
+            }
+            return rows;
+        }
+    }
+
+    private static final class Ranked {
+        final Expense expense;
+        final int sequence;
+
+        Ranked(Expense expense, int sequence) {
+            this.expense = expense;
+            this.sequence = sequence;
+        }
+    }
+}
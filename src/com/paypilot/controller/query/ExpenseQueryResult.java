@@ -0,0 +1,55 @@
+package com.paypilot.controller.query;
+
+import com.paypilot.model.Expense;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ExpenseQueryResult - Rows and aggregates of one executed ExpenseQuery
+ */
+public final class ExpenseQueryResult {
+    private final long version;
+    private final List<Expense> expenses;
+    private final Aggregate totals;
+    private final Map<Object, Aggregate> groups;
+    private final String plan;
+
+    ExpenseQueryResult(long version, List<Expense> expenses, Aggregate totals,
+                       Map<Object, Aggregate> groups, String plan) {
+        this.version = version;
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.totals = totals;
+        this.groups = Collections.unmodifiableMap(groups);
+        this.plan = plan;
+    }
+
+    /**
+     * @return Snapshot version the query ran against, or -1 for a plain collection
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * @return Matching rows after sorting, offset and limit
+     */
+    public List<Expense> getExpenses() { return expenses; }
+
+    /**
+     * @return Measures from aggregate() over every match, ignoring offset and limit
+     */
+    public Aggregate getTotals() { return totals; }
+
+    /**
+     * Measures from groupBy(), in key order; empty without grouping
+     * Keys are String for CATEGORY, LocalDate for DAY, YearMonth for MONTH and
+     * Boolean for SPLIT. Groups whose only measure is SUM may be answered from
+     * the rollup, which leaves out groups that total zero.
+     */
+    @SuppressWarnings("unchecked")
+    public <K> Map<K, Aggregate> getGroups() { return (Map<K, Aggregate>) groups; }
+
+    /**
+     * @return How the planner answered the query, e.g. "category index -> filter -> top 10"
+     */
+    public String getPlan() { return plan; }
+}
@@ -0,0 +1,110 @@
+package com.paypilot.controller.report;
+
+import com.paypilot.model.Expense;
+import com.paypilot.model.ExpenseSnapshot;
+import com.paypilot.model.SpendingRollup;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * ExpenseAggregates - Totals and series of one expense snapshot, read from its rollup
+ * Immutable, so it can be built on a background thread and handed to the EDT;
+ * charts and stat cards read it instead of scanning the expenses on every paint.
+ * All amounts are in cents.
+ */
+public class ExpenseAggregates {
+    private final long version;
+    private final int count;
+    private final long totalCents;
+    private final long minCents;
+    private final long maxCents;
+    private final Map<String, Long> categoryTotals;     // Largest first
+    private final NavigableMap<LocalDate, Long> dailyTotals;
+    private final NavigableMap<YearMonth, Long> monthlyTotals;
+
+    private ExpenseAggregates(long version, int count, long totalCents, long minCents, long maxCents,
+                              Map<String, Long> categoryTotals, NavigableMap<LocalDate, Long> dailyTotals,
+                              NavigableMap<YearMonth, Long> monthlyTotals) {
+        this.version = version;
+        this.count = count;
+        this.totalCents = totalCents;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+        this.categoryTotals = Collections.unmodifiableMap(categoryTotals);
+        this.dailyTotals = Collections.unmodifiableNavigableMap(dailyTotals);
+        this.monthlyTotals = Collections.unmodifiableNavigableMap(monthlyTotals);
+    }
+
+    /**
+     * Aggregate a snapshot; safe to call off the EDT since snapshots never change
+     * Totals and series come from the snapshot's rollup; only min/max scan the expenses.
+     */
+    public static ExpenseAggregates of(ExpenseSnapshot snapshot) {
+        SpendingRollup rollup = snapshot.getRollup();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Expense expense : snapshot.getExpenses()) {
+            min = Math.min(min, expense.getAmountCents());
+            max = Math.max(max, expense.getAmountCents());
+        }
+
+        List<Map.Entry<String, Long>> byTotal =
+            new ArrayList<>(rollup.categoryTotalsBetween(LocalDate.MIN, LocalDate.MAX).entrySet());
+        byTotal.sort((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+        Map<String, Long> sortedCategories = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : byTotal) {
+            sortedCategories.put(entry.getKey(), entry.getValue());
+        }
+
+        NavigableMap<LocalDate, Long> daily = new TreeMap<>(rollup.dailyTotals());
+        NavigableMap<YearMonth, Long> monthly = new TreeMap<>();
+        daily.forEach((day, cents) -> monthly.merge(YearMonth.from(day), cents, Long::sum));
+
+        int count = snapshot.size();
+        return new ExpenseAggregates(snapshot.getVersion(), count, rollup.getTotalCents(),
+            count == 0 ? 0 : min, count == 0 ? 0 : max, sortedCategories, daily, monthly);
+    }
+
+    /**
+     * @return Snapshot version these aggregates were computed from
+     */
+    public long getVersion() { return version; }
+
+    public int getCount() { return count; }
+
+    public boolean isEmpty() { return count == 0; }
+
+    public long getTotalCents() { return totalCents; }
+
+    public long getMinCents() { return minCents; }
+
+    public long getMaxCents() { return maxCents; }
+
+    public long getAverageCents() {
+        return count == 0 ? 0 : Math.round((double) totalCents / count);
+    }
+
+    /**
+     * @return Total per category, largest first
+     */
+    public Map<String, Long> getCategoryTotals() { return categoryTotals; }
+
+    public NavigableMap<LocalDate, Long> getDailyTotals() { return dailyTotals; }
+
+    public NavigableMap<YearMonth, Long> getMonthlyTotals() { return monthlyTotals; }
+
+    /**
+     * Monthly totals for the last N months up to and including the current one,
+     * with months without expenses as zero
+     */
+    public Map<YearMonth, Long> getRecentMonths(int months, LocalDate today) {
+        Map<YearMonth, Long> recent = new LinkedHashMap<>();
+        YearMonth current = YearMonth.from(today);
+        for (int i = months - 1; i >= 0; i--) {
+            YearMonth month = current.minusMonths(i);
+            recent.put(month, monthlyTotals.getOrDefault(month, 0L));
+        }
+        return recent;
+    }
+}
@@ -1,6 +1,7 @@
 package com.paypilot.controller.report;
 
 import com.paypilot.model.Group;
+import com.paypilot.model.Money;
 import com.paypilot.model.SharedExpense;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -55,7 +56,7 @@ public class GroupReportGenerator implements ReportGenerator {
         report.append("\n");
         
         // Calculate statistics
-        double total = expenses.stream().mapToDouble(SharedExpense::getTotalAmount).sum();
+        double total = Money.toAmount(expenses.stream().mapToLong(SharedExpense::getTotalCents).sum());
         double average = expenses.isEmpty() ? 0 : total / expenses.size();
         
         report.append("SUMMARY STATISTICS\n");
@@ -71,7 +72,7 @@ public class GroupReportGenerator implements ReportGenerator {
         for (Map.Entry<String, Double> entry : balances.entrySet()) {
             String status;
             double amount = entry.getValue();
-            if (Math.abs(amount) < 0.01) {
+            if (Money.ofAmount(amount) == 0) {
                 status = "Settled";
             } else if (amount > 0) {
                 status = "Is owed";
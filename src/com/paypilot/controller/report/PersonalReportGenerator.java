@@ -1,13 +1,18 @@
 package com.paypilot.controller.report;
 
+import com.paypilot.controller.query.Aggregate;
+import com.paypilot.controller.query.ExpenseQuery;
+import com.paypilot.controller.query.ExpenseQueryResult;
 import com.paypilot.model.Expense;
+import com.paypilot.model.Money;
 import com.paypilot.model.SplitDetail;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Personal Report Generator Implementation
@@ -15,13 +20,32 @@ import java.util.ArrayList;
  * OCP: Extends functionality without modifying interface
  */
 public class PersonalReportGenerator implements ReportGenerator {
+    /**
+     * Everything the report shows, computed in one pass
+     */
+    public static final ExpenseQuery REPORT_QUERY = ExpenseQuery.all()
+        .aggregate(ExpenseQuery.Measure.COUNT, ExpenseQuery.Measure.SUM,
+                   ExpenseQuery.Measure.MIN, ExpenseQuery.Measure.MAX)
+        .groupBy(ExpenseQuery.GroupKey.CATEGORY, ExpenseQuery.Measure.SUM);
+    
     private String username;
-    private ArrayList<Expense> expenses;
+    private List<Expense> expenses;
+    private Aggregate totals;
+    private Map<String, Aggregate> categories;
     private String reportContent;
     
-    public PersonalReportGenerator(String username, ArrayList<Expense> expenses) {
+    public PersonalReportGenerator(String username, List<Expense> expenses) {
+        this(username, REPORT_QUERY.execute(expenses));
+    }
+    
+    /**
+     * @param result REPORT_QUERY executed against the expenses to report
+     */
+    public PersonalReportGenerator(String username, ExpenseQueryResult result) {
         this.username = username;
-        this.expenses = expenses;
+        this.expenses = result.getExpenses();
+        this.totals = result.getTotals();
+        this.categories = result.getGroups();
         this.reportContent = null;
     }
     
@@ -51,10 +75,10 @@ public class PersonalReportGenerator implements ReportGenerator {
         report.append("\n");
         
         // Calculate statistics
-        double total = expenses.stream().mapToDouble(Expense::getAmount).sum();
-        double average = expenses.isEmpty() ? 0 : total / expenses.size();
-        double max = expenses.stream().mapToDouble(Expense::getAmount).max().orElse(0);
-        double min = expenses.stream().mapToDouble(Expense::getAmount).min().orElse(0);
+        double total = Money.toAmount(totals.getSumCents());
+        double average = Money.toAmount(totals.getAverageCents());
+        double max = Money.toAmount(totals.getMaxCents());
+        double min = Money.toAmount(totals.getMinCents());
         
         // Beautiful Summary Statistics
         report.append("┌─────────────────────────────────────────────────────────────────────────┐\n");
@@ -69,9 +93,7 @@ public class PersonalReportGenerator implements ReportGenerator {
         
         // Category breakdown
         java.util.Map<String, Double> categoryTotals = new java.util.HashMap<>();
-        for (Expense exp : expenses) {
-            categoryTotals.merge(exp.getCategory(), exp.getAmount(), Double::sum);
-        }
+        categories.forEach((category, aggregate) -> categoryTotals.put(category, Money.toAmount(aggregate.getSumCents())));
         
         if (!categoryTotals.isEmpty()) {
             report.append("┌─────────────────────────────────────────────────────────────────────────┐\n");
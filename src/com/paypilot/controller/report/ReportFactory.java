@@ -2,10 +2,10 @@ package com.paypilot.controller.report;
 
 import com.paypilot.controller.ExpenseManager;
 import com.paypilot.controller.GroupController;
-import com.paypilot.model.Expense;
 import com.paypilot.model.Group;
 import com.paypilot.model.SharedExpense;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,8 +23,8 @@ public class ReportFactory {
      */
     public static ReportGenerator createPersonalReport(String username, 
                                                       ExpenseManager expenseManager) {
-        ArrayList<Expense> expenses = expenseManager.getAllExpenses(username);
-        return new PersonalReportGenerator(username, expenses);
+        return new PersonalReportGenerator(username,
+            expenseManager.query(username, PersonalReportGenerator.REPORT_QUERY));
     }
     
     /**
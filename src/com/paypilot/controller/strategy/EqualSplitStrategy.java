@@ -1,5 +1,6 @@
 package com.paypilot.controller.strategy;
 
+import com.paypilot.model.Money;
 import com.paypilot.model.SplitDetail;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,7 +13,7 @@ import java.util.List;
 public class EqualSplitStrategy implements SplitStrategy {
     
     @Override
-    public ArrayList<SplitDetail> computeShares(double totalAmount, 
+    public ArrayList<SplitDetail> computeShares(long totalCents, 
                                                List<String> participants, 
                                                List<Double> weights) {
         ArrayList<SplitDetail> splits = new ArrayList<>();
@@ -21,10 +22,11 @@ public class EqualSplitStrategy implements SplitStrategy {
             return splits;
         }
         
-        double sharePerPerson = totalAmount / participants.size();
+        // Leftover cents go to the first participants
+        long[] shares = Money.split(totalCents, participants.size());
         
-        for (String participant : participants) {
-            splits.add(new SplitDetail(participant, sharePerPerson));
+        for (int i = 0; i < participants.size(); i++) {
+            splits.add(SplitDetail.ofCents(participants.get(i), shares[i]));
         }
         
         return splits;
@@ -1,5 +1,6 @@
 package com.paypilot.controller.strategy;
 
+import com.paypilot.model.Money;
 import com.paypilot.model.SplitDetail;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,7 +12,7 @@ import java.util.List;
 public class PercentageSplitStrategy implements SplitStrategy {
     
     @Override
-    public ArrayList<SplitDetail> computeShares(double totalAmount, 
+    public ArrayList<SplitDetail> computeShares(long totalCents, 
                                                List<String> participants, 
                                                List<Double> percentages) {
         ArrayList<SplitDetail> splits = new ArrayList<>();
@@ -30,12 +31,14 @@ public class PercentageSplitStrategy implements SplitStrategy {
             throw new IllegalArgumentException("Percentages must sum to 100%.  Current sum: " + totalPercentage);
         }
         
-        // Calculate shares based on percentage
+        // Calculate shares based on percentage, leftover cents by largest remainder
+        double[] percentageArray = new double[percentages.size()];
+        for (int i = 0; i < percentageArray.length; i++) {
+            percentageArray[i] = percentages.get(i);
+        }
+        long[] shares = Money.allocate(totalCents, percentageArray);
         for (int i = 0; i < participants.size(); i++) {
-            String participant = participants.get(i);
-            double percentage = percentages.get(i);
-            double share = (percentage / 100.0) * totalAmount;
-            splits.add(new SplitDetail(participant, share));
+            splits.add(SplitDetail.ofCents(participants.get(i), shares[i]));
         }
         
         return splits;
@@ -1,5 +1,6 @@
 package com.paypilot.controller.strategy;
 
+import com.paypilot.model.Money;
 import com.paypilot.model.SplitDetail;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,15 +16,26 @@ import java.util.List;
 public interface SplitStrategy {
     /**
      * Computes individual shares from total amount
-     * @param totalAmount The total expense amount
+     * Shares always add up to totalCents exactly; leftover cents are handed
+     * out deterministically (see Money.split / Money.allocate).
+     * @param totalCents The total expense amount in cents
      * @param participants List of participant names
      * @param weights Optional weights/percentages (can be null for equal split)
      * @return List of SplitDetail objects with computed shares
      */
-    ArrayList<SplitDetail> computeShares(double totalAmount, 
+    ArrayList<SplitDetail> computeShares(long totalCents, 
                                         List<String> participants, 
                                         List<Double> weights);
     
+    /**
+     * Computes individual shares from a decimal total amount
+     */
+    default ArrayList<SplitDetail> computeShares(double totalAmount, 
+                                                List<String> participants, 
+                                                List<Double> weights) {
+        return computeShares(Money.ofAmount(totalAmount), participants, weights);
+    }
+    
     /**
      * Returns the strategy type identifier
      */
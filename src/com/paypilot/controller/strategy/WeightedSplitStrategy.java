@@ -1,5 +1,6 @@
 package com.paypilot.controller.strategy;
 
+import com.paypilot.model.Money;
 import com.paypilot.model.SplitDetail;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,7 +12,7 @@ import java.util.List;
 public class WeightedSplitStrategy implements SplitStrategy {
     
     @Override
-    public ArrayList<SplitDetail> computeShares(double totalAmount, 
+    public ArrayList<SplitDetail> computeShares(long totalCents, 
                                                List<String> participants, 
                                                List<Double> weights) {
         ArrayList<SplitDetail> splits = new ArrayList<>();
@@ -30,12 +31,14 @@ public class WeightedSplitStrategy implements SplitStrategy {
             throw new IllegalArgumentException("Total weight cannot be zero");
         }
         
-        // Calculate proportional shares
+        // Calculate proportional shares, leftover cents by largest remainder
+        double[] weightArray = new double[weights.size()];
+        for (int i = 0; i < weightArray.length; i++) {
+            weightArray[i] = weights.get(i);
+        }
+        long[] shares = Money.allocate(totalCents, weightArray);
         for (int i = 0; i < participants.size(); i++) {
-            String participant = participants.get(i);
-            double weight = weights.get(i);
-            double share = (weight / totalWeight) * totalAmount;
-            splits.add(new SplitDetail(participant, share));
+            splits.add(SplitDetail.ofCents(participants.get(i), shares[i]));
         }
         
         return splits;
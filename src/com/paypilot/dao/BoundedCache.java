@@ -0,0 +1,189 @@
+package com.paypilot.dao;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * BoundedCache - LRU cache bounded by entry count and estimated heap size
+ * Used by DatabaseManager in place of an unbounded HashMap. Evicted values
+ * are simply reloaded from storage on the next miss. Pinned keys (the active
+ * user's data) are never evicted. An eviction listener hears about every
+ * key dropped for space, e.g. to free data derived from it.
+ *
+ * Sizes are rough estimates from collection sizes, not measured object graphs;
+ * they only need to keep a long-running install from growing without limit.
+ * Images are the exception: their pixel buffers are counted exactly.
+ * Not thread-safe: DatabaseManager synchronizes on the cache around every call.
+ */
+public class BoundedCache {
+    private static final long BASE_BYTES = 256;
+    private static final long ELEMENT_BYTES = 200; // One Expense with its strings and date
+    private static final long ENTRY_BYTES = 300;   // One map entry, e.g. a User or Group
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Object> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> sizes = new HashMap<>();
+    private Predicate<String> pinned = key -> false;
+    private Consumer<String> evictionListener = key -> { };
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BoundedCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return Cached value, or null on a miss
+     */
+    public Object get(String key) {
+        Object value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public boolean containsKey(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Add or refresh a value, then evict least recently used entries over the bounds
+     * Call again after growing a cached collection in place so its size is re-estimated.
+     */
+    public void put(String key, Object value) {
+        entries.put(key, value);
+        long size = estimateBytes(value);
+        Long previous = sizes.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict(key);
+    }
+
+    public void remove(String key) {
+        entries.remove(key);
+        Long size = sizes.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    /**
+     * Remove every entry whose key matches, e.g. all cached data of one file
+     */
+    public void removeIf(Predicate<String> filter) {
+        Iterator<Map.Entry<String, Object>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next().getKey();
+            if (filter.test(key)) {
+                it.remove();
+                totalBytes -= sizes.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        sizes.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Keys matching the predicate are never evicted
+     */
+    public void setPinned(Predicate<String> pinned) {
+        this.pinned = pinned != null ? pinned : key -> false;
+    }
+
+    /**
+     * Called with each key evicted for space (not for remove() or clear()),
+     * while the caller's lock on the cache is held
+     */
+    public void setEvictionListener(Consumer<String> listener) {
+        this.evictionListener = listener != null ? listener : key -> { };
+    }
+
+    private void evict(String justAdded) {
+        if (entries.size() <= maxEntries && totalBytes <= maxBytes) {
+            return;
+        }
+        Iterator<Map.Entry<String, Object>> it = entries.entrySet().iterator(); // Least recently used first
+        while (it.hasNext() && (entries.size() > maxEntries || totalBytes > maxBytes)) {
+            String key = it.next().getKey();
+            if (key.equals(justAdded) || pinned.test(key)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= sizes.remove(key);
+            evictions++;
+            evictionListener.accept(key);
+        }
+    }
+
+    static long estimateBytes(Object value) {
+        if (value instanceof Collection) {
+            return BASE_BYTES + ((Collection<?>) value).size() * ELEMENT_BYTES;
+        }
+        if (value instanceof Map) {
+            return BASE_BYTES + ((Map<?, ?>) value).size() * ENTRY_BYTES;
+        }
+        if (value instanceof BufferedImage) {
+            DataBuffer pixels = ((BufferedImage) value).getRaster().getDataBuffer();
+            return BASE_BYTES + (long) pixels.getSize() * pixels.getNumBanks()
+                * DataBuffer.getDataTypeSize(pixels.getDataType()) / 8;
+        }
+        return BASE_BYTES;
+    }
+
+    public Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), totalBytes, maxEntries, maxBytes);
+    }
+
+    /**
+     * Point-in-time cache counters
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int entries;
+        public final long estimatedBytes;
+        public final int maxEntries;
+        public final long maxBytes;
+
+        public Stats(long hits, long misses, long evictions, int entries, long estimatedBytes,
+                     int maxEntries, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.estimatedBytes = estimatedBytes;
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d (%.1f%% hit) evictions=%d entries=%d/%d ~%dKB/%dKB",
+                hits, misses, getHitRate() * 100, evictions, entries, maxEntries,
+                estimatedBytes / 1024, maxBytes / 1024);
+        }
+    }
+}
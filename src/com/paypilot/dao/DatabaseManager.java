@@ -1,23 +1,70 @@
 package com.paypilot.dao;
 
+import com.paypilot.model.Identifiable;
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Singleton DatabaseManager for centralized data access
+ * Durable storage is delegated to a pluggable StorageEngine, selected with
+ * -Dpaypilot.storage=log (append-only log, default) or file (one .dat per key).
+ * Writes go through a background write-behind queue unless -Dpaypilot.writeBehind=false,
+ * so mutations only touch the in-memory cache on the caller's thread.
+ * The cache is a bounded LRU (-Dpaypilot.cache.maxEntries, -Dpaypilot.cache.maxBytes);
+ * the active user's keys are pinned and evicted keys are reloaded on demand.
+ *
+ * Keys are guarded by striped read/write locks instead of one global monitor,
+ * so a slow write of one user's expenses never blocks reads of other keys.
+ * Every operation on a key is atomic with respect to other operations on the
+ * same key; the cache has its own short lock that is never held during I/O.
+ * commit() writes several keys at once and holds all of their stripes,
+ * taken in stripe order so two batches can never deadlock.
  */
 public class DatabaseManager {
-    private static DatabaseManager instance;
-    private static final String DATA_DIR = "data/";
+    private static volatile DatabaseManager instance;
+    static final String DATA_DIR = dataDir(); // -Dpaypilot.dataDir, default "data"
     private static final Object lock = new Object();
+    private static final int DEFAULT_CACHE_ENTRIES = 256;
+    private static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int LOCK_STRIPES = 64; // Power of two
+    private static final String[] USER_KEY_PREFIXES = {"expenses_", "rollup_", "budgets_", "recurring_"};
     
     // In-memory cache for better performance
-    private Map<String, Object> cache;
+    private final BoundedCache cache;
+    private final StorageEngine storage;
+    private final ReadWriteLock[] stripes = new ReadWriteLock[LOCK_STRIPES];
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> shutdownListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService evictionNotifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "paypilot-cache-evictions");
+        t.setDaemon(true);
+        return t;
+    });
     
     private DatabaseManager() {
-        cache = new HashMap<>();
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        cache = new BoundedCache(Integer.getInteger("paypilot.cache.maxEntries", DEFAULT_CACHE_ENTRIES),
+                                 Long.getLong("paypilot.cache.maxBytes", DEFAULT_CACHE_BYTES));
+        cache.setEvictionListener(this::keyEvicted);
         ensureDataDirectory();
+        storage = createStorageEngine();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "paypilot-storage-shutdown"));
     }
     
     /**
@@ -34,6 +81,11 @@ public class DatabaseManager {
         return instance;
     }
     
+    private static String dataDir() {
+        String dir = System.getProperty("paypilot.dataDir", "data");
+        return dir.endsWith("/") ? dir : dir + "/";
+    }
+    
     private void ensureDataDirectory() {
         File dir = new File(DATA_DIR);
         if (!dir.exists()) {
@@ -41,34 +93,238 @@ public class DatabaseManager {
         }
     }
     
+    private StorageEngine createStorageEngine() {
+        StorageEngine engine = openStorageEngine();
+        if (Boolean.parseBoolean(System.getProperty("paypilot.writeBehind", "true"))) {
+            return new WriteBehindStorageEngine(engine);
+        }
+        return engine;
+    }
+    
+    private StorageEngine openStorageEngine() {
+        String engine = System.getProperty("paypilot.storage", "log");
+        if ("file".equalsIgnoreCase(engine)) {
+            return new FileStorageEngine(DATA_DIR);
+        }
+        try {
+            return new LogStorageEngine(DATA_DIR);
+        } catch (IOException e) {
+            System.err.println("Error opening storage log, falling back to .dat files: " + e.getMessage());
+            e.printStackTrace();
+            return new FileStorageEngine(DATA_DIR);
+        }
+    }
+    
+    /**
+     * Lock stripe guarding key
+     */
+    private ReadWriteLock lockFor(String key) {
+        return stripes[stripeOf(key)];
+    }
+    
+    private static int stripeOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (LOCK_STRIPES - 1);
+    }
+    
     /**
      * Save data to storage
      */
-    public synchronized void saveData(String key, Object data) {
-        cache.put(key, data);
-        persistToDisk(key, data);
+    public void saveData(String key, Object data) {
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.writeLock().lock();
+        try {
+            cachePut(key, data);
+            persistToDisk(key, data);
+        } finally {
+            keyLock.writeLock().unlock();
+        }
     }
     
     /**
      * Load data from storage
      */
     @SuppressWarnings("unchecked")
-    public synchronized <T> T loadData(String key, Class<T> type) {
-        // Check cache first
-        if (cache.containsKey(key)) {
-            return (T) cache.get(key);
+    public <T> T loadData(String key, Class<T> type) {
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.readLock().lock(); // Reentrant for write-lock holders below
+        try {
+            // Check cache first
+            Object cached;
+            synchronized (cache) {
+                cached = cache.get(key);
+            }
+            if (cached != null) {
+                return (T) cached;
+            }
+            // Load from disk
+            return loadFromDisk(key, type);
+        } finally {
+            keyLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Append one element to the list stored under key
+     * Only the new element is handed to the storage engine, not the whole list.
+     */
+    @SuppressWarnings("unchecked")
+    public void appendData(String key, Object element) {
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.writeLock().lock();
+        try {
+            List<Object> list = loadData(key, List.class);
+            if (list == null) {
+                list = new ArrayList<>();
+            }
+            list.add(element);
+            cachePut(key, list); // Re-estimate the grown list
+            storage.appendToList(key, element, list);
+        } catch (IOException e) {
+            System.err.println("Error appending data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            keyLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Replace the element with the same ID in the list stored under key
+     * The change is made on a copy, cached only once storage took the write.
+     * @return false if no element with that ID exists or the write failed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean updateListElement(String key, Identifiable element) {
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.writeLock().lock();
+        try {
+            List<Object> list = loadData(key, List.class);
+            int index = indexOfId(list, element.getId());
+            if (index < 0) {
+                return false;
+            }
+            List<Object> updated = new ArrayList<>(list);
+            updated.set(index, element);
+            storage.replaceInList(key, element.getId(), element, updated);
+            cachePut(key, updated);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error updating data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            keyLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove the element with the given ID from the list stored under key
+     * The change is made on a copy, cached only once storage took the write.
+     * @return false if no element with that ID exists or the write failed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeListElement(String key, long id) {
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.writeLock().lock();
+        try {
+            List<Object> list = loadData(key, List.class);
+            int index = indexOfId(list, id);
+            if (index < 0) {
+                return false;
+            }
+            List<Object> updated = new ArrayList<>(list);
+            updated.remove(index);
+            storage.removeFromList(key, id, updated);
+            cachePut(key, updated);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error removing data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            keyLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Apply every write of the batch to the cache and hand it to storage as one unit
+     * Readers of the batch's keys see either none or all of its writes.
+     */
+    @SuppressWarnings("unchecked")
+    public void commit(StorageBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        TreeSet<Integer> held = new TreeSet<>();
+        for (StorageBatch.Op op : batch.getOps()) {
+            held.add(stripeOf(op.key));
+        }
+        for (int stripe : held) {
+            stripes[stripe].writeLock().lock();
+        }
+        try {
+            Set<Object> staged = Collections.newSetFromMap(new IdentityHashMap<>()); // Values earlier ops hand to storage
+            for (StorageBatch.Op op : batch.getOps()) {
+                if (op.kind == StorageBatch.Kind.PUT) {
+                    cachePut(op.key, op.value);
+                    staged.add(op.value);
+                    continue;
+                }
+                List<Object> list = loadData(op.key, List.class);
+                if (list == null) {
+                    list = new ArrayList<>();
+                } else if (staged.contains(list)) {
+                    list = new ArrayList<>(list); // Key written twice: leave the earlier write as it was
+                }
+                staged.add(list);
+                if (op.kind == StorageBatch.Kind.APPEND_ALL) {
+                    list.addAll((List<Object>) op.value);
+                } else {
+                    long id = op.kind == StorageBatch.Kind.REPLACE ? ((Identifiable) op.value).getId() : (Long) op.value;
+                    int index = indexOfId(list, id);
+                    if (index >= 0 && op.kind == StorageBatch.Kind.REPLACE) {
+                        list.set(index, op.value);
+                    } else if (index >= 0) {
+                        list.remove(index);
+                    }
+                }
+                cachePut(op.key, list);
+                op.current = list;
+            }
+            storage.commit(batch);
+        } catch (IOException e) {
+            System.err.println("Error committing batch: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            for (int stripe : held.descendingSet()) {
+                stripes[stripe].writeLock().unlock();
+            }
+        }
+    }
+    
+    private static int indexOfId(List<Object> list, long id) {
+        if (list == null) return -1;
+        for (int i = 0; i < list.size(); i++) {
+            Object element = list.get(i);
+            if (element instanceof Identifiable && ((Identifiable) element).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private void cachePut(String key, Object data) {
+        synchronized (cache) {
+            cache.put(key, data);
         }
-        // Load from disk
-        return loadFromDisk(key, type);
     }
     
     /**
      * Persist data to disk
      */
     private void persistToDisk(String key, Object data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(DATA_DIR + key + ".dat"))) {
-            oos.writeObject(data);
+        try {
+            storage.write(key, data);
         } catch (IOException e) {
             System.err.println("Error persisting data for key " + key + ": " + e.getMessage());
             e.printStackTrace();
@@ -80,44 +336,168 @@ public class DatabaseManager {
      */
     @SuppressWarnings("unchecked")
     private <T> T loadFromDisk(String key, Class<T> type) {
-        File file = new File(DATA_DIR + key + ".dat");
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new FileInputStream(file))) {
-                Object data = ois.readObject();
-                cache.put(key, data);
+        try {
+            Object data = storage.read(key);
+            if (data != null) {
+                // Another reader of the same key may have loaded it first; keep one copy
+                synchronized (cache) {
+                    Object raced = cache.get(key);
+                    if (raced != null) {
+                        return (T) raced;
+                    }
+                    cache.put(key, data);
+                }
                 return (T) data;
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error loading data for key " + key + ": " + e.getMessage());
-                e.printStackTrace();
             }
+        } catch (IOException e) {
+            System.err.println("Error loading data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
         }
         return null;
     }
     
     /**
      * Check if data exists
+     * Never observes a save or delete of the same key halfway through.
      */
     public boolean dataExists(String key) {
-        return cache.containsKey(key) || 
-               new File(DATA_DIR + key + ".dat").exists();
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.readLock().lock();
+        try {
+            synchronized (cache) {
+                if (cache.containsKey(key)) {
+                    return true;
+                }
+            }
+            return storage.exists(key);
+        } finally {
+            keyLock.readLock().unlock();
+        }
     }
     
     /**
      * Delete data
      */
-    public synchronized void deleteData(String key) {
-        cache.remove(key);
-        File file = new File(DATA_DIR + key + ".dat");
-        if (file.exists()) {
-            file.delete();
+    public void deleteData(String key) {
+        ReadWriteLock keyLock = lockFor(key);
+        keyLock.writeLock().lock();
+        try {
+            synchronized (cache) {
+                cache.remove(key);
+            }
+            storage.delete(key);
+        } catch (IOException e) {
+            System.err.println("Error deleting data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            keyLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Block until all queued writes have reached the storage engine
+     * No-op when write-behind is disabled.
+     */
+    public void flush() {
+        if (storage instanceof WriteBehindStorageEngine) {
+            ((WriteBehindStorageEngine) storage).flush();
+        }
+    }
+    
+    /**
+     * Wait for queued writes to reach the storage engine
+     * @return false if writes were still pending after timeoutMillis
+     */
+    public boolean awaitFlushed(long timeoutMillis) {
+        if (storage instanceof WriteBehindStorageEngine) {
+            return ((WriteBehindStorageEngine) storage).awaitFlushed(timeoutMillis);
         }
+        return true;
+    }
+    
+    /**
+     * Run shutdown listeners, then flush and close the storage engine
+     */
+    public void shutdown() {
+        for (Runnable listener : shutdownListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error in shutdown listener: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            System.err.println("Error closing storage: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Pin the given user's keys (expenses_<user>, budgets_<user>, ...) in the cache
+     * Exact names only: pinning "bob" must not pin "alice_bob".
+     * Replaces the previously pinned user.
+     */
+    public void setActiveUser(String username) {
+        if (username == null) {
+            synchronized (cache) {
+                cache.setPinned(null);
+            }
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (String prefix : USER_KEY_PREFIXES) {
+            keys.add(prefix + username);
+        }
+        keys.add("user_groups_" + URLEncoder.encode(username, StandardCharsets.UTF_8)); // As GroupDAO names it
+        synchronized (cache) {
+            cache.setPinned(keys::contains);
+        }
+    }
+    
+    /**
+     * Cache hit, miss and eviction counters
+     */
+    public BoundedCache.Stats getCacheStats() {
+        synchronized (cache) {
+            return cache.getStats();
+        }
+    }
+    
+    /**
+     * Be told when a key is evicted from the cache, e.g. to free data derived from it
+     * Listeners run on a background thread, never while a storage or cache lock is held.
+     */
+    public void addEvictionListener(Consumer<String> listener) {
+        evictionListeners.add(listener);
+    }
+    
+    /**
+     * Run a last write before storage closes, e.g. to save data kept only in memory
+     */
+    public void addShutdownListener(Runnable listener) {
+        shutdownListeners.add(listener);
+    }
+    
+    private void keyEvicted(String key) {
+        if (evictionListeners.isEmpty()) {
+            return;
+        }
+        evictionNotifier.execute(() -> {
+            for (Consumer<String> listener : evictionListeners) {
+                listener.accept(key);
+            }
+        });
     }
     
     /**
      * Clear all cache
      */
-    public synchronized void clearCache() {
-        cache.clear();
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
     }
 }
\ No newline at end of file
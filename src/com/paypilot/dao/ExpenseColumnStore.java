@@ -0,0 +1,333 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Expense;
+import java.io.*;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * ExpenseColumnStore - Optional memory-mapped columnar copy of a user's expenses
+ * Keeps parallel primitive columns (id, amount in cents, epoch day, category id)
+ * in files under data/columns/<username>/ so totals and period sums run as
+ * tight loops over mapped memory without touching Expense objects.
+ *
+ * The expense list in DatabaseManager stays the source of truth; ExpenseDAO
+ * mirrors every mutation here and the columns are verified against the list
+ * (row count, id and amount checksums) when a store is first opened.
+ * Row order is not meaningful: removal moves the last row into the hole.
+ *
+ * Enable with -Dpaypilot.columnar=true
+ */
+public class ExpenseColumnStore {
+    private static final String COLUMNS_DIR = DatabaseManager.DATA_DIR + "columns/";
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int HEADER_SIZE = 8; // [int rowCount][int reserved]
+
+    private static final Map<String, ExpenseColumnStore> openStores = new HashMap<>();
+
+    private final File dir;
+    private final FileChannel headerChannel, idChannel, centsChannel, dayChannel, categoryChannel;
+    private MappedByteBuffer header;
+    private LongBuffer ids;
+    private LongBuffer cents;
+    private IntBuffer days;
+    private ShortBuffer categories;
+    private int rowCount;
+    private int capacity;
+
+    private final List<String> categoryNames = new ArrayList<>();
+    private final Map<String, Short> categoryIds = new HashMap<>();
+
+    /**
+     * Get the shared column store for a user, opening and verifying it on first use
+     * @param current The user's expense list, used to rebuild stale columns
+     * @return Store, or null if the column files cannot be opened
+     */
+    public static synchronized ExpenseColumnStore forUser(String username, List<Expense> current) {
+        ExpenseColumnStore store = openStores.get(username);
+        if (store != null) {
+            return store;
+        }
+        try {
+            store = new ExpenseColumnStore(new File(COLUMNS_DIR + username));
+            if (!store.matches(current)) {
+                store.rebuild(current);
+            }
+            openStores.put(username, store);
+            return store;
+        } catch (IOException e) {
+            System.err.println("Error opening column store for " + username + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return The user's store if it is already open, otherwise null
+     */
+    public static synchronized ExpenseColumnStore ifOpen(String username) {
+        return openStores.get(username);
+    }
+
+    /**
+     * Close the user's store if it is open; the next forUser() opens it again
+     * Mapped columns stay readable for anyone still holding the store.
+     */
+    public static synchronized void close(String username) {
+        ExpenseColumnStore store = openStores.remove(username);
+        if (store != null) {
+            store.closeFiles();
+        }
+    }
+
+    private synchronized void closeFiles() {
+        try {
+            header.force();
+            for (FileChannel channel : List.of(headerChannel, idChannel, centsChannel, dayChannel, categoryChannel)) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing column store " + dir + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private ExpenseColumnStore(File dir) throws IOException {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        headerChannel = open("header.col");
+        idChannel = open("id.col");
+        centsChannel = open("cents.col");
+        dayChannel = open("day.col");
+        categoryChannel = open("category.col");
+        loadCategoryNames();
+
+        header = headerChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        rowCount = header.getInt(0);
+        int existing = (int) Math.min(Integer.MAX_VALUE, idChannel.size() / Long.BYTES);
+        mapColumns(Math.max(INITIAL_CAPACITY, Math.max(existing, rowCount)));
+    }
+
+    private FileChannel open(String name) throws IOException {
+        return FileChannel.open(new File(dir, name).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void mapColumns(int newCapacity) throws IOException {
+        ids = idChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Long.BYTES).asLongBuffer();
+        cents = centsChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Long.BYTES).asLongBuffer();
+        days = dayChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * Integer.BYTES).asIntBuffer();
+        categories = categoryChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+            (long) newCapacity * Short.BYTES).asShortBuffer();
+        capacity = newCapacity;
+    }
+
+    private void ensureCapacity(int rows) throws IOException {
+        if (rows > capacity) {
+            mapColumns(Math.max(rows, capacity * 2));
+        }
+    }
+
+    // === MUTATIONS ===
+
+    public synchronized void append(Expense expense) {
+        try {
+            ensureCapacity(rowCount + 1);
+            writeRow(rowCount, expense);
+            setRowCount(rowCount + 1);
+        } catch (IOException e) {
+            System.err.println("Error appending to column store: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void update(Expense expense) {
+        int row = findRow(expense.getId());
+        if (row < 0) {
+            append(expense);
+            return;
+        }
+        try {
+            writeRow(row, expense);
+        } catch (IOException e) {
+            System.err.println("Error updating column store: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void remove(long id) {
+        int row = findRow(id);
+        if (row < 0) return;
+        int last = rowCount - 1;
+        if (row != last) {
+            ids.put(row, ids.get(last));
+            cents.put(row, cents.get(last));
+            days.put(row, days.get(last));
+            categories.put(row, categories.get(last));
+        }
+        setRowCount(last);
+    }
+
+    /**
+     * Replace all columns with the contents of the list
+     */
+    public synchronized void rebuild(List<Expense> expenses) {
+        try {
+            ensureCapacity(expenses.size());
+            for (int i = 0; i < expenses.size(); i++) {
+                writeRow(i, expenses.get(i));
+            }
+            setRowCount(expenses.size());
+        } catch (IOException e) {
+            System.err.println("Error rebuilding column store: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void writeRow(int row, Expense expense) throws IOException {
+        ids.put(row, expense.getId());
+        cents.put(row, expense.getAmountCents());
+        days.put(row, (int) expense.getDate().toEpochDay());
+        categories.put(row, categoryId(expense.getCategory()));
+    }
+
+    private void setRowCount(int rows) {
+        rowCount = rows;
+        header.putInt(0, rows);
+    }
+
+    private int findRow(long id) {
+        for (int i = 0; i < rowCount; i++) {
+            if (ids.get(i) == id) return i;
+        }
+        return -1;
+    }
+
+    // === AGGREGATIONS ===
+
+    public synchronized int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Expense ID stored at a row, for materializing rows on demand
+     */
+    public synchronized long idAt(int row) {
+        return ids.get(row);
+    }
+
+    public synchronized long sumCents() {
+        long sum = 0;
+        for (int i = 0; i < rowCount; i++) {
+            sum += cents.get(i);
+        }
+        return sum;
+    }
+
+    public synchronized long maxCents() {
+        if (rowCount == 0) return 0;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < rowCount; i++) {
+            max = Math.max(max, cents.get(i));
+        }
+        return max;
+    }
+
+    /**
+     * Sum of amounts with fromDay <= epochDay <= toDay
+     */
+    public synchronized long sumCentsBetween(long fromDay, long toDay) {
+        long sum = 0;
+        for (int i = 0; i < rowCount; i++) {
+            int day = days.get(i);
+            if (day >= fromDay && day <= toDay) {
+                sum += cents.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Per-category sums of amounts with fromDay <= epochDay <= toDay
+     */
+    public synchronized Map<String, Long> categoryCentsBetween(long fromDay, long toDay) {
+        long[] totals = new long[categoryNames.size()];
+        boolean[] seen = new boolean[categoryNames.size()];
+        for (int i = 0; i < rowCount; i++) {
+            int day = days.get(i);
+            if (day >= fromDay && day <= toDay) {
+                short category = categories.get(i);
+                totals[category] += cents.get(i);
+                seen[category] = true;
+            }
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int c = 0; c < totals.length; c++) {
+            if (seen[c]) {
+                result.put(categoryNames.get(c), totals[c]);
+            }
+        }
+        return result;
+    }
+
+    // === CATEGORY DICTIONARY ===
+
+    private short categoryId(String category) throws IOException {
+        Short id = categoryIds.get(category);
+        if (id != null) return id;
+        if (categoryNames.size() >= Short.MAX_VALUE) {
+            throw new IOException("Too many distinct categories for column store");
+        }
+        short newId = (short) categoryNames.size();
+        try (DataOutputStream out = new DataOutputStream(
+                new FileOutputStream(new File(dir, "categories.dat"), true))) {
+            out.writeUTF(category);
+        }
+        categoryNames.add(category);
+        categoryIds.put(category, newId);
+        return newId;
+    }
+
+    private void loadCategoryNames() throws IOException {
+        File file = new File(dir, "categories.dat");
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                String name;
+                try {
+                    name = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                categoryIds.put(name, (short) categoryNames.size());
+                categoryNames.add(name);
+            }
+        }
+    }
+
+    // === VERIFICATION ===
+
+    /**
+     * Cheap consistency check against the authoritative list
+     */
+    private boolean matches(List<Expense> expenses) {
+        if (rowCount != expenses.size()) return false;
+        long idHash = 0, centsSum = 0;
+        for (Expense expense : expenses) {
+            idHash ^= expense.getId() * 0x9E3779B97F4A7C15L;
+            centsSum += expense.getAmountCents();
+        }
+        long columnIdHash = 0;
+        for (int i = 0; i < rowCount; i++) {
+            columnIdHash ^= ids.get(i) * 0x9E3779B97F4A7C15L;
+        }
+        return columnIdHash == idHash && sumCents() == centsSum;
+    }
+}
@@ -1,66 +1,465 @@
 package com.paypilot.dao;
 
 import com.paypilot.model.Expense;
+import com.paypilot.model.ExpenseDateIndex;
+import com.paypilot.model.ExpenseSnapshot;
+import com.paypilot.model.PersistentList;
+import com.paypilot.model.Receipt;
+import com.paypilot.model.SpendingRollup;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Data Access Object for Expense operations
+ * Reads go through immutable ExpenseSnapshots; every mutation updates the
+ * stored list and then publishes a new snapshot for that user.
+ * The snapshot's SpendingRollup is saved under "rollup_<user>" only when the
+ * user is released and at shutdown, not on every mutation; on load a saved
+ * copy that does not match the expenses is rebuilt.
+ * An open ExpenseSearchIndex is updated after each publish, with its version.
+ * Each mutation commits the expense write and the changed reference counts of
+ * receipts in the ReceiptBlobStore as one StorageBatch.
+ * Mutations return the snapshot they published, so callers can report its
+ * version without racing a later writer.
+ * A user's snapshot, search index and column store live only as long as
+ * their expense list stays in DatabaseManager's cache (the active user's is
+ * pinned), and are released on logout.
  */
 public class ExpenseDAO {
+    private static final boolean COLUMNAR = Boolean.getBoolean("paypilot.columnar");
+    private static final String EXPENSES_PREFIX = "expenses_";
+    private static volatile boolean hooked = false;
+    private static final AtomicLong versions = new AtomicLong();
+    private static final Map<String, ExpenseSnapshot> snapshots = new ConcurrentHashMap<>();
+    private static final Map<String, Object> userLocks = new ConcurrentHashMap<>();
+    private static final Set<String> unsavedRollups = ConcurrentHashMap.newKeySet(); // Stored rollup is behind the snapshot's
     private DatabaseManager dbManager;
     
+    /**
+     * Outcome of addExpenses: what was stored and the snapshot that first holds it
+     */
+    public static final class Added {
+        private final List<Expense> expenses;
+        private final ExpenseSnapshot snapshot;
+        
+        Added(List<Expense> expenses, ExpenseSnapshot snapshot) {
+            this.expenses = expenses;
+            this.snapshot = snapshot;
+        }
+        
+        /**
+         * @return The expenses added; those whose ID was already stored are left out
+         */
+        public List<Expense> getExpenses() { return expenses; }
+        
+        /**
+         * @return Snapshot published by the add, or the unchanged one if nothing was added
+         */
+        public ExpenseSnapshot getSnapshot() { return snapshot; }
+    }
+    
     public ExpenseDAO() {
         this.dbManager = DatabaseManager.getInstance();
+        hookDatabase();
+    }
+    
+    /**
+     * Release a user's derived data once their expense list leaves the cache,
+     * and save the rollups still unsaved at shutdown
+     */
+    private void hookDatabase() {
+        if (hooked) return;
+        synchronized (ExpenseDAO.class) {
+            if (hooked) return;
+            dbManager.addEvictionListener(key -> {
+                if (key.startsWith(EXPENSES_PREFIX)) {
+                    release(key.substring(EXPENSES_PREFIX.length()));
+                }
+            });
+            // No user lock: a writer still running at exit must not block it, and a stale rollup is rebuilt on load
+            dbManager.addShutdownListener(() -> new ArrayList<>(unsavedRollups).forEach(ExpenseDAO::saveRollup));
+            hooked = true;
+        }
+    }
+    
+    /**
+     * Save the user's rollup, if it changed since it was last saved
+     */
+    private static void saveRollup(String username) {
+        ExpenseSnapshot snapshot = snapshots.get(username);
+        if (snapshot != null && unsavedRollups.remove(username)) {
+            DatabaseManager.getInstance().saveData(getRollupKey(username), snapshot.getRollup());
+        }
+    }
+    
+    /**
+     * Save the user's rollup, drop their snapshot and close their search index and column store
+     * All of them are rebuilt from storage on next use.
+     */
+    public static void release(String username) {
+        synchronized (lockFor(username)) {
+            saveRollup(username);
+            snapshots.remove(username);
+            ExpenseSearchIndex.close(username);
+            ExpenseColumnStore.close(username);
+        }
     }
     
     private String getUserExpenseKey(String username) {
-        return "expenses_" + username;
+        return EXPENSES_PREFIX + username;
+    }
+    
+    private static String getRollupKey(String username) {
+        return "rollup_" + username;
+    }
+    
+    /**
+     * Current snapshot of the user's expenses, shared by all readers
+     */
+    public ExpenseSnapshot getSnapshot(String username) {
+        ExpenseSnapshot snapshot = snapshots.get(username);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (lockFor(username)) {
+            snapshot = snapshots.get(username);
+            if (snapshot == null) {
+                ArrayList<Expense> expenses = loadExpenses(username);
+                snapshot = publish(username, PersistentList.of(expenses), ExpenseDateIndex.of(expenses),
+                                   loadRollup(username, expenses));
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Serializes writers of one user's expenses so snapshots follow the stored order
+     */
+    private static Object lockFor(String username) {
+        return userLocks.computeIfAbsent(username, key -> new Object());
+    }
+    
+    private ExpenseSnapshot publish(String username, PersistentList<Expense> expenses,
+                                    ExpenseDateIndex dateIndex, SpendingRollup rollup) {
+        ExpenseSnapshot snapshot = new ExpenseSnapshot(versions.incrementAndGet(), expenses, dateIndex, rollup);
+        snapshots.put(username, snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * Publish a change; its rollup is saved later, on release or at shutdown
+     */
+    private ExpenseSnapshot publishChange(String username, PersistentList<Expense> expenses,
+                                          ExpenseDateIndex dateIndex, SpendingRollup rollup) {
+        unsavedRollups.add(username);
+        return publish(username, expenses, dateIndex, rollup);
+    }
+    
+    /**
+     * Saved rollup, or a rebuilt one if it is missing or does not match the expenses
+     * (older data, or changes made after it was last saved)
+     */
+    private SpendingRollup loadRollup(String username, List<Expense> expenses) {
+        SpendingRollup rollup = dbManager.loadData(getRollupKey(username), SpendingRollup.class);
+        if (rollup != null && rollup.matches(expenses)) {
+            return rollup;
+        }
+        unsavedRollups.add(username);
+        return SpendingRollup.of(expenses);
+    }
+    
+    /**
+     * Add sign to the count of every stored receipt the expenses hold, by content hash
+     */
+    private static void tallyReceipts(Map<String, Integer> counts, List<Expense> expenses, int sign) {
+        for (Expense expense : expenses) {
+            Receipt receipt = expense.getReceipt();
+            if (receipt != null && receipt.getContentHash() != null) {
+                counts.merge(receipt.getContentHash(), sign, Integer::sum);
+            }
+        }
+    }
+    
+    /**
+     * Commit the batch, with the receipt count changes if there are any
+     */
+    private void commit(StorageBatch batch, Map<String, Integer> receipts) {
+        if (receipts.isEmpty()) {
+            dbManager.commit(batch);
+        } else {
+            ReceiptBlobStore.getInstance().commit(batch, receipts);
+        }
+    }
+    
+    /**
+     * How many of the user's expenses hold each stored receipt, by content hash
+     * Reads the stored list if no snapshot is published, and publishes none.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> countReceipts(String username) {
+        Map<String, Integer> counts = new HashMap<>();
+        synchronized (lockFor(username)) {
+            ExpenseSnapshot snapshot = snapshots.get(username);
+            List<Expense> expenses = snapshot != null ? snapshot.getExpenses()
+                                   : dbManager.loadData(getUserExpenseKey(username), ArrayList.class);
+            if (expenses != null) {
+                tallyReceipts(counts, expenses, 1);
+            }
+        }
+        return counts;
+    }
+    
+    private static int indexOf(List<Expense> expenses, long id) {
+        for (int i = 0; i < expenses.size(); i++) {
+            if (expenses.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
     }
     
     @SuppressWarnings("unchecked")
-    public ArrayList<Expense> loadExpenses(String username) {
+    private ArrayList<Expense> loadExpenses(String username) {
         String key = getUserExpenseKey(username);
         ArrayList<Expense> expenses = dbManager.loadData(key, ArrayList.class);
-        return expenses != null ? expenses : new ArrayList<>();
+        if (expenses == null) {
+            return new ArrayList<>();
+        }
+        assignMissingIds(username, expenses);
+        return expenses;
+    }
+    
+    /**
+     * Expenses saved before IDs existed get one, persisted once
+     */
+    private void assignMissingIds(String username, ArrayList<Expense> expenses) {
+        boolean changed = false;
+        for (Expense expense : expenses) {
+            if (!expense.hasId()) {
+                expense.assignNewId();
+                changed = true;
+            }
+        }
+        if (changed) {
+            saveExpenses(username, expenses);
+        }
+    }
+    
+    /**
+     * Columnar copy of the user's expenses for fast aggregation
+     * @return Store, or null when -Dpaypilot.columnar is not set
+     */
+    public ExpenseColumnStore getColumnStore(String username) {
+        if (!COLUMNAR) return null;
+        return ExpenseColumnStore.forUser(username, getSnapshot(username).getExpenses());
+    }
+    
+    /**
+     * Full-text index of the user's expense categories and descriptions, built on first use
+     */
+    public ExpenseSearchIndex getSearchIndex(String username) {
+        ExpenseSearchIndex index = ExpenseSearchIndex.ifOpen(username);
+        if (index != null) {
+            return index;
+        }
+        synchronized (lockFor(username)) { // No write can slip in between snapshot and build
+            return ExpenseSearchIndex.forUser(username, getSnapshot(username));
+        }
     }
     
-    public void saveExpenses(String username, ArrayList<Expense> expenses) {
+    /**
+     * Expenses matching a free-text query, least recently added or edited first
+     */
+    public ExpenseSearchIndex.Results search(String username, String query) {
+        return getSearchIndex(username).search(query);
+    }
+    
+    public ExpenseSnapshot saveExpenses(String username, ArrayList<Expense> expenses) {
         String key = getUserExpenseKey(username);
-        dbManager.saveData(key, expenses);
+        synchronized (lockFor(username)) {
+            List<Expense> previous = getSnapshot(username).getExpenses();
+            Map<String, Integer> receipts = new HashMap<>();
+            tallyReceipts(receipts, expenses, 1);
+            tallyReceipts(receipts, previous, -1);
+            SpendingRollup rollup = SpendingRollup.of(expenses);
+            commit(new StorageBatch().put(key, expenses), receipts);
+            ExpenseColumnStore columns = ExpenseColumnStore.ifOpen(username);
+            if (columns != null) {
+                columns.rebuild(expenses);
+            }
+            ExpenseSnapshot snapshot = publishChange(username, PersistentList.of(expenses),
+                                                     ExpenseDateIndex.of(expenses), rollup);
+            ExpenseSearchIndex searchIndex = ExpenseSearchIndex.ifOpen(username);
+            if (searchIndex != null) {
+                searchIndex.rebuild(expenses, snapshot.getVersion());
+            }
+            return snapshot;
+        }
     }
     
-    public void addExpense(String username, Expense expense) {
-        ArrayList<Expense> expenses = loadExpenses(username);
-        expenses.add(expense);
-        saveExpenses(username, expenses);
+    /**
+     * @return The snapshot holding the new expense
+     */
+    public ExpenseSnapshot addExpense(String username, Expense expense) {
+        synchronized (lockFor(username)) {
+            ExpenseSnapshot current = getSnapshot(username);
+            ExpenseColumnStore columns = getColumnStore(username); // Open before mutating
+            SpendingRollup rollup = current.getRollup().plus(expense);
+            Map<String, Integer> receipts = new HashMap<>();
+            tallyReceipts(receipts, List.of(expense), 1);
+            commit(new StorageBatch().appendAll(getUserExpenseKey(username), List.of(expense)), receipts);
+            if (columns != null) {
+                columns.append(expense);
+            }
+            ExpenseSnapshot snapshot = publishChange(username, current.getExpenses().plus(expense),
+                                                     current.getDateIndex().plus(expense), rollup);
+            ExpenseSearchIndex searchIndex = ExpenseSearchIndex.ifOpen(username);
+            if (searchIndex != null) {
+                searchIndex.add(expense, snapshot.getVersion());
+            }
+            return snapshot;
+        }
     }
     
-    public void deleteExpense(String username, Expense expense) {
-        ArrayList<Expense> expenses = loadExpenses(username);
-        expenses.removeIf(e -> 
-            e.getCategory().equals(expense.getCategory()) &&
-            Math.abs(e.getAmount() - expense.getAmount()) < 0.01 &&
-            e.getDate().equals(expense.getDate())
-        );
-        saveExpenses(username, expenses);
+    /**
+     * Append many expenses in one storage write, committed together with
+     * whatever the caller already staged in batch, and publish one snapshot
+     * Expenses whose ID is already stored are skipped, so a repeated batch adds nothing.
+     */
+    public Added addExpenses(String username, List<Expense> expenses, StorageBatch batch) {
+        synchronized (lockFor(username)) {
+            ExpenseSnapshot current = getSnapshot(username);
+            Set<Long> ids = new HashSet<>();
+            for (Expense expense : current.getExpenses()) {
+                ids.add(expense.getId());
+            }
+            List<Expense> added = new ArrayList<>();
+            Map<String, Integer> receipts = new HashMap<>();
+            PersistentList<Expense> list = current.getExpenses();
+            SpendingRollup rollup = current.getRollup();
+            for (Expense expense : expenses) {
+                if (ids.add(expense.getId())) {
+                    added.add(expense);
+                    list = list.plus(expense);
+                    rollup = rollup.plus(expense);
+                }
+            }
+            if (!added.isEmpty()) {
+                batch.appendAll(getUserExpenseKey(username), added);
+                tallyReceipts(receipts, added, 1);
+            }
+            ExpenseColumnStore columns = added.isEmpty() ? null : getColumnStore(username);
+            commit(batch, receipts);
+            if (added.isEmpty()) {
+                return new Added(added, current);
+            }
+            if (columns != null) {
+                for (Expense expense : added) {
+                    columns.append(expense);
+                }
+            }
+            ExpenseSnapshot snapshot = publishChange(username, list, current.getDateIndex().plusAll(added), rollup);
+            ExpenseSearchIndex searchIndex = ExpenseSearchIndex.ifOpen(username);
+            if (searchIndex != null) {
+                for (Expense expense : added) {
+                    searchIndex.add(expense, snapshot.getVersion());
+                }
+            }
+            return new Added(added, snapshot);
+        }
     }
     
-    public void updateExpense(String username, Expense oldExpense, Expense newExpense) {
-        ArrayList<Expense> expenses = loadExpenses(username);
-        for (int i = 0; i < expenses.size(); i++) {
-            Expense e = expenses.get(i);
-            if (e.getCategory().equals(oldExpense.getCategory()) &&
-                Math.abs(e.getAmount() - oldExpense.getAmount()) < 0.01 &&
-                e.getDate().equals(oldExpense.getDate())) {
-                expenses.set(i, newExpense);
-                break;
+    public Expense getExpense(String username, long id) {
+        List<Expense> expenses = getSnapshot(username).getExpenses();
+        int index = indexOf(expenses, id);
+        return index < 0 ? null : expenses.get(index);
+    }
+    
+    /**
+     * Replace the stored expense that has the same ID
+     * @return The snapshot holding the change, or null if no expense with that ID exists
+     */
+    public ExpenseSnapshot updateExpense(String username, Expense expense) {
+        synchronized (lockFor(username)) {
+            ExpenseSnapshot current = getSnapshot(username); // Legacy IDs are assigned by now
+            int index = indexOf(current.getExpenses(), expense.getId());
+            if (index < 0) {
+                return null;
+            }
+            ExpenseColumnStore columns = getColumnStore(username);
+            Expense previous = current.getExpenses().get(index);
+            SpendingRollup rollup = current.getRollup().replace(previous, expense);
+            Map<String, Integer> receipts = new HashMap<>();
+            tallyReceipts(receipts, List.of(expense), 1);
+            tallyReceipts(receipts, List.of(previous), -1);
+            commit(new StorageBatch().replace(getUserExpenseKey(username), expense), receipts);
+            if (columns != null) {
+                columns.update(expense);
             }
+            ExpenseSnapshot snapshot = publishChange(username, current.getExpenses().with(index, expense),
+                                                     current.getDateIndex().replace(previous, expense), rollup);
+            ExpenseSearchIndex searchIndex = ExpenseSearchIndex.ifOpen(username);
+            if (searchIndex != null) {
+                searchIndex.update(expense, snapshot.getVersion());
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Delete the expense with the given ID
+     * @return The snapshot without it, or null if no expense with that ID exists
+     */
+    public ExpenseSnapshot deleteExpense(String username, long id) {
+        synchronized (lockFor(username)) {
+            ExpenseSnapshot current = getSnapshot(username);
+            int index = indexOf(current.getExpenses(), id);
+            if (index < 0) {
+                return null;
+            }
+            ExpenseColumnStore columns = getColumnStore(username);
+            Expense previous = current.getExpenses().get(index);
+            SpendingRollup rollup = current.getRollup().minus(previous);
+            Map<String, Integer> receipts = new HashMap<>();
+            tallyReceipts(receipts, List.of(previous), -1);
+            commit(new StorageBatch().remove(getUserExpenseKey(username), id), receipts);
+            if (columns != null) {
+                columns.remove(id);
+            }
+            ExpenseSnapshot snapshot = publishChange(username, current.getExpenses().minus(index),
+                                                     current.getDateIndex().minus(previous), rollup);
+            ExpenseSearchIndex searchIndex = ExpenseSearchIndex.ifOpen(username);
+            if (searchIndex != null) {
+                searchIndex.remove(id, snapshot.getVersion());
+            }
+            return snapshot;
         }
-        saveExpenses(username, expenses);
     }
     
-    public void clearAllExpenses(String username) {
+    public ExpenseSnapshot clearAllExpenses(String username) {
         String key = getUserExpenseKey(username);
-        dbManager.deleteData(key);
+        synchronized (lockFor(username)) {
+            List<Expense> previous = getSnapshot(username).getExpenses();
+            Map<String, Integer> receipts = new HashMap<>();
+            tallyReceipts(receipts, previous, -1);
+            commit(new StorageBatch().put(key, new ArrayList<Expense>()), receipts);
+            ExpenseColumnStore columns = ExpenseColumnStore.ifOpen(username);
+            if (columns != null) {
+                columns.rebuild(new ArrayList<>());
+            }
+            ExpenseSnapshot snapshot = publishChange(username, PersistentList.empty(), ExpenseDateIndex.empty(),
+                                                     SpendingRollup.empty());
+            ExpenseSearchIndex searchIndex = ExpenseSearchIndex.ifOpen(username);
+            if (searchIndex != null) {
+                searchIndex.rebuild(new ArrayList<>(), snapshot.getVersion());
+            }
+            return snapshot;
+        }
     }
 }
\ No newline at end of file
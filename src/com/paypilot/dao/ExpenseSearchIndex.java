@@ -0,0 +1,315 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Expense;
+import com.paypilot.model.ExpenseSnapshot;
+import java.util.*;
+
+/**
+ * ExpenseSearchIndex - In-memory inverted index over expense categories and descriptions
+ * Text is split into lower-case letter/digit tokens. Each token maps to a
+ * posting list of document numbers, stored as varint-encoded gaps in a byte
+ * array (most gaps fit in one byte). Documents are numbered in insertion order,
+ * so adding an expense only appends to the end of its terms' lists.
+ *
+ * A query matches expenses that contain, for every query token, a term that
+ * starts with it or (for tokens of 3+ characters) starts with something within
+ * 1-2 edits of it, so results update as the user types and tolerate typos.
+ *
+ * Like ExpenseColumnStore, one index per user is built on first use and
+ * ExpenseDAO mirrors every mutation into it, tagged with the version of the
+ * snapshot it published. Results carry that version, so a view can show them
+ * and then apply only newer ExpenseEvents. Deleted documents are tombstoned
+ * and the index is rebuilt once they make up half of it.
+ */
+public class ExpenseSearchIndex {
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int MIN_REBUILD_TOMBSTONES = 1024;
+
+    private static final Map<String, ExpenseSearchIndex> openIndexes = new HashMap<>();
+
+    private final List<Expense> documents = new ArrayList<>(); // Document number -> expense, null once deleted
+    private final Map<Long, Integer> documentOf = new HashMap<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private int tombstones;
+    private long version = -1; // Snapshot version the index reflects
+
+    /**
+     * Get the shared index for a user, building it from the current expenses on first use
+     */
+    public static synchronized ExpenseSearchIndex forUser(String username, ExpenseSnapshot current) {
+        ExpenseSearchIndex index = openIndexes.get(username);
+        if (index == null) {
+            index = new ExpenseSearchIndex();
+            index.rebuild(current.getExpenses(), current.getVersion());
+            openIndexes.put(username, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return The user's index if it is already built, otherwise null
+     */
+    public static synchronized ExpenseSearchIndex ifOpen(String username) {
+        return openIndexes.get(username);
+    }
+
+    /**
+     * Drop the user's index; the next forUser() builds it again
+     */
+    public static synchronized void close(String username) {
+        openIndexes.remove(username);
+    }
+
+    // === MUTATIONS ===
+
+    public synchronized void add(Expense expense, long version) {
+        this.version = version;
+        index(expense);
+    }
+
+    private void index(Expense expense) {
+        int document = documents.size();
+        documents.add(expense);
+        documentOf.put(expense.getId(), document);
+        for (String token : new HashSet<>(tokensOf(expense))) {
+            terms.computeIfAbsent(token, key -> new Postings()).add(document);
+        }
+    }
+
+    public synchronized void update(Expense expense, long version) {
+        remove(expense.getId(), version);
+        index(expense);
+    }
+
+    public synchronized void remove(long id, long version) {
+        this.version = version;
+        Integer document = documentOf.remove(id);
+        if (document == null) {
+            return;
+        }
+        documents.set(document, null);
+        tombstones++;
+        if (tombstones >= MIN_REBUILD_TOMBSTONES && tombstones * 2 >= documents.size()) {
+            List<Expense> live = new ArrayList<>(documents.size() - tombstones);
+            for (Expense expense : documents) {
+                if (expense != null) {
+                    live.add(expense);
+                }
+            }
+            rebuild(live, version);
+        }
+    }
+
+    public synchronized void rebuild(List<Expense> expenses, long version) {
+        this.version = version;
+        documents.clear();
+        documentOf.clear();
+        terms.clear();
+        tombstones = 0;
+        for (Expense expense : expenses) {
+            index(expense);
+        }
+    }
+
+    // === SEARCH ===
+
+    /**
+     * @return Matching expenses in the order they were last indexed; none for a blank query
+     */
+    public synchronized Results search(String query) {
+        return new Results(find(query), version);
+    }
+
+    private List<Expense> find(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BitSet matches = null;
+        for (String token : tokens) {
+            BitSet tokenMatches = new BitSet(documents.size());
+            for (Postings postings : matchingPostings(token)) {
+                postings.addTo(tokenMatches);
+            }
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.and(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        List<Expense> results = new ArrayList<>(matches.cardinality());
+        for (int document = matches.nextSetBit(0); document >= 0; document = matches.nextSetBit(document + 1)) {
+            Expense expense = documents.get(document);
+            if (expense != null) {
+                results.add(expense);
+            }
+        }
+        return results;
+    }
+
+    private List<Postings> matchingPostings(String token) {
+        // Prefix matches are one contiguous range of the sorted terms
+        List<Postings> matching = new ArrayList<>(terms.subMap(token, token + Character.MAX_VALUE).values());
+        int maxEdits = maxEdits(token);
+        if (maxEdits > 0) {
+            for (Map.Entry<String, Postings> term : terms.entrySet()) {
+                if (!term.getKey().startsWith(token) && prefixDistance(token, term.getKey(), maxEdits) <= maxEdits) {
+                    matching.add(term.getValue());
+                }
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Whether one expense matches a query, with the same rules as search()
+     * Lets views keep incrementally patched results consistent with the index.
+     */
+    public static boolean matches(Expense expense, String query) {
+        List<String> expenseTokens = tokensOf(expense);
+        for (String token : tokenize(query)) {
+            int maxEdits = maxEdits(token);
+            boolean found = false;
+            for (String term : expenseTokens) {
+                if (term.startsWith(token) || (maxEdits > 0 && prefixDistance(token, term, maxEdits) <= maxEdits)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // === TEXT ===
+
+    private static List<String> tokensOf(Expense expense) {
+        List<String> tokens = tokenize(expense.getCategory());
+        tokens.addAll(tokenize(expense.getDescription()));
+        return tokens;
+    }
+
+    /**
+     * Lower-case runs of letters and digits
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static int maxEdits(String token) {
+        if (token.length() < MIN_FUZZY_LENGTH) return 0;
+        return token.length() < 6 ? 1 : 2;
+    }
+
+    /**
+     * Smallest edit distance between token and any prefix of term, or maxEdits + 1
+     * once it is certain to exceed maxEdits
+     */
+    private static int prefixDistance(String token, String term, int maxEdits) {
+        int columns = Math.min(term.length(), token.length() + maxEdits);
+        if (columns < token.length() - maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] previous = new int[columns + 1];
+        int[] current = new int[columns + 1];
+        for (int j = 0; j <= columns; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= token.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c = token.charAt(i - 1);
+            for (int j = 1; j <= columns; j++) {
+                int cost = c == term.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = maxEdits + 1;
+        for (int j = 0; j <= columns; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Search hits and the snapshot version they are consistent with
+     */
+    public static final class Results {
+        private final List<Expense> expenses;
+        private final long version;
+
+        private Results(List<Expense> expenses, long version) {
+            this.expenses = Collections.unmodifiableList(expenses);
+            this.version = version;
+        }
+
+        public List<Expense> getExpenses() { return expenses; }
+
+        public long getVersion() { return version; }
+    }
+
+    /**
+     * Ascending document numbers as varint-encoded gaps
+     */
+    private static final class Postings {
+        private byte[] data = new byte[4];
+        private int length;
+        private int last;
+
+        void add(int document) {
+            int gap = document - last;
+            last = document;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+        }
+
+        void addTo(BitSet set) {
+            int document = 0;
+            int position = 0;
+            while (position < length) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                document += gap;
+                set.set(document);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.paypilot.dao;
+
+import com.paypilot.dao.codec.BinaryCodec;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FileStorageEngine - One file per key (data/<key>.dat)
+ * Every write rewrites the whole value; kept for compatibility and as a fallback.
+ * Values are encoded with BinaryCodec, which still reads Java-serialized files.
+ * A batch writes every file to a temporary name first and then renames them,
+ * so each key is replaced atomically but a crash can land between two renames.
+ */
+public class FileStorageEngine implements StorageEngine {
+    private final String dataDir;
+
+    public FileStorageEngine(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    private File fileFor(String key) {
+        return new File(dataDir + key + ".dat");
+    }
+
+    @Override
+    public Object read(String key) throws IOException {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return BinaryCodec.read(in);
+        }
+    }
+
+    @Override
+    public void write(String key, Object value) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileFor(key)))) {
+            BinaryCodec.write(out, value);
+        }
+    }
+
+    @Override
+    public void appendToList(String key, Object element, List<?> current) throws IOException {
+        write(key, current);
+    }
+
+    @Override
+    public void replaceInList(String key, long id, Object element, List<?> current) throws IOException {
+        write(key, current);
+    }
+
+    @Override
+    public void removeFromList(String key, long id, List<?> current) throws IOException {
+        write(key, current);
+    }
+
+    @Override
+    public void commit(StorageBatch batch) throws IOException {
+        Map<String, File> staged = new LinkedHashMap<>(); // Last write per key wins
+        try {
+            for (StorageBatch.Op op : batch.getOps()) {
+                Object value = op.kind == StorageBatch.Kind.PUT ? op.value : op.current;
+                File tmp = new File(dataDir + op.key + ".tmp");
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                    BinaryCodec.write(out, value);
+                }
+                staged.put(op.key, tmp);
+            }
+            for (Map.Entry<String, File> entry : staged.entrySet()) {
+                Files.move(entry.getValue().toPath(), fileFor(entry.getKey()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            for (File tmp : staged.values()) {
+                tmp.delete(); // Leftovers of a failed batch
+            }
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        File file = fileFor(key);
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return fileFor(key).exists();
+    }
+
+    @Override
+    public void close() {
+        // Nothing buffered between calls
+    }
+}
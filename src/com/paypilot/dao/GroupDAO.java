@@ -1,41 +1,141 @@
 package com.paypilot.dao;
 
 import com.paypilot.model.Group;
+import com.paypilot.model.GroupLedger;
 import com.paypilot.model.SharedExpense;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Data Access Object for Group operations
+ * Shared expenses are stored per group under "shared_expenses_<group>", so adding
+ * an expense only touches that group's list.
+ * Each user's group names are indexed under "user_groups_<username>" so
+ * getUserGroups does not scan every group. Every membership change commits the
+ * groups map and the affected indexes as one StorageBatch.
+ * Running balances live under "group_ledger_<group>" and are updated per
+ * expense, in the same batch as the expense.
  */
 public class GroupDAO {
     private static final String GROUPS_KEY = "groups";
-    private static final String SHARED_EXPENSES_KEY = "shared_expenses";
+    private static final String LEGACY_SHARED_EXPENSES_KEY = "shared_expenses";
+    private static final String SHARED_EXPENSES_PREFIX = "shared_expenses_";
+    private static final String USER_GROUPS_PREFIX = "user_groups_";
+    private static final String LEDGER_PREFIX = "group_ledger_";
+    private static final String MEMBERSHIP_INDEX_MARKER_KEY = "groups_membership_index_v1"; // Outside USER_GROUPS_PREFIX
+    private static final String OLD_MEMBERSHIP_INDEX_MARKER_KEY = "user_groups_index"; // Also user "index"'s key
+    private static volatile boolean legacyChecked = false;
     private DatabaseManager dbManager;
     
     public GroupDAO() {
         this.dbManager = DatabaseManager.getInstance();
+        migrateLegacySharedExpenses();
     }
     
+    /**
+     * Storage key for one user's group name index
+     */
+    private String getUserGroupsKey(String username) {
+        return USER_GROUPS_PREFIX + URLEncoder.encode(username, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Storage key for one group's shared expenses
+     * Group names are URL-encoded so they stay safe as file names
+     */
+    private String getGroupExpenseKey(String groupName) {
+        return SHARED_EXPENSES_PREFIX + URLEncoder.encode(groupName, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Split the old single shared_expenses list into per-group lists
+     * Groups whose list already exists were written by an interrupted run and are skipped.
+     */
     @SuppressWarnings("unchecked")
-    private Map<String, Group> loadGroups() {
-        Map<String, Group> groups = dbManager.loadData(GROUPS_KEY, Map.class);
-        return groups != null ?  groups : new HashMap<>();
+    private void migrateLegacySharedExpenses() {
+        if (legacyChecked) return;
+        synchronized (GroupDAO.class) {
+            if (legacyChecked) return;
+            if (dbManager.dataExists(LEGACY_SHARED_EXPENSES_KEY)) {
+                ArrayList<SharedExpense> legacy = dbManager.loadData(LEGACY_SHARED_EXPENSES_KEY, ArrayList.class);
+                Map<String, ArrayList<SharedExpense>> byGroup = new LinkedHashMap<>();
+                if (legacy != null) {
+                    for (SharedExpense expense : legacy) {
+                        byGroup.computeIfAbsent(expense.getGroupName(), g -> new ArrayList<>()).add(expense);
+                    }
+                }
+                for (Map.Entry<String, ArrayList<SharedExpense>> entry : byGroup.entrySet()) {
+                    String key = getGroupExpenseKey(entry.getKey());
+                    if (!dbManager.dataExists(key)) {
+                        dbManager.saveData(key, entry.getValue());
+                    }
+                }
+                dbManager.deleteData(LEGACY_SHARED_EXPENSES_KEY);
+                System.out.println("Migrated " + (legacy != null ? legacy.size() : 0)
+                    + " shared expenses into " + byGroup.size() + " group lists");
+            }
+            if (!dbManager.dataExists(MEMBERSHIP_INDEX_MARKER_KEY)) {
+                rebuildMembershipIndex();
+            }
+            legacyChecked = true;
+        }
     }
     
-    private void saveGroups(Map<String, Group> groups) {
-        dbManager.saveData(GROUPS_KEY, groups);
+    /**
+     * Build the username to group names index from the groups map
+     */
+    private void rebuildMembershipIndex() {
+        if (dbManager.loadData(OLD_MEMBERSHIP_INDEX_MARKER_KEY, Object.class) instanceof Integer) {
+            dbManager.deleteData(OLD_MEMBERSHIP_INDEX_MARKER_KEY); // Old marker, not a user's index
+        }
+        Map<String, LinkedHashSet<String>> index = new HashMap<>();
+        for (Group group : loadGroups().values()) {
+            for (String member : group.getMembers()) {
+                index.computeIfAbsent(member, m -> new LinkedHashSet<>()).add(group.getGroupName());
+            }
+        }
+        for (Map.Entry<String, LinkedHashSet<String>> entry : index.entrySet()) {
+            dbManager.saveData(getUserGroupsKey(entry.getKey()), entry.getValue());
+        }
+        dbManager.saveData(MEMBERSHIP_INDEX_MARKER_KEY, Integer.valueOf(1));
     }
     
     @SuppressWarnings("unchecked")
-    private ArrayList<SharedExpense> loadSharedExpenses() {
-        ArrayList<SharedExpense> expenses = dbManager.loadData(SHARED_EXPENSES_KEY, ArrayList.class);
-        return expenses != null ? expenses : new ArrayList<>();
+    private LinkedHashSet<String> loadUserGroupNames(String username) {
+        LinkedHashSet<String> names = dbManager.loadData(getUserGroupsKey(username), LinkedHashSet.class);
+        return names != null ? names : new LinkedHashSet<>();
     }
     
-    private void saveSharedExpenses(ArrayList<SharedExpense> expenses) {
-        dbManager.saveData(SHARED_EXPENSES_KEY, expenses);
+    private void indexMember(StorageBatch batch, String username, String groupName) {
+        LinkedHashSet<String> names = loadUserGroupNames(username);
+        if (names.add(groupName)) {
+            batch.put(getUserGroupsKey(username), names);
+        }
+    }
+    
+    private void unindexMember(StorageBatch batch, String username, String groupName) {
+        LinkedHashSet<String> names = loadUserGroupNames(username);
+        if (names.remove(groupName)) {
+            batch.put(getUserGroupsKey(username), names); // Empty set reads the same as no index
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Group> loadGroups() {
+        Map<String, Group> groups = dbManager.loadData(GROUPS_KEY, Map.class);
+        return groups != null ?  groups : new HashMap<>();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private ArrayList<SharedExpense> loadSharedExpenses(String groupName) {
+        ArrayList<SharedExpense> expenses = dbManager.loadData(getGroupExpenseKey(groupName), ArrayList.class);
+        return expenses != null ? expenses : new ArrayList<>();
     }
     
     public boolean createGroup(Group group) {
@@ -44,51 +144,147 @@ public class GroupDAO {
             return false;
         }
         groups.put(group.getGroupName(), group);
-        saveGroups(groups);
+        StorageBatch batch = new StorageBatch().put(GROUPS_KEY, groups);
+        for (String member : group.getMembers()) {
+            indexMember(batch, member, group.getGroupName());
+        }
+        dbManager.commit(batch);
         return true;
     }
     
+    /**
+     * @return A copy of the stored group, or null; pass edits back through updateGroup
+     */
     public Group getGroup(String groupName) {
-        return loadGroups().get(groupName);
+        Group group = loadGroups().get(groupName);
+        return group != null ? new Group(group) : null;
     }
     
     public ArrayList<Group> getUserGroups(String username) {
         Map<String, Group> groups = loadGroups();
         ArrayList<Group> userGroups = new ArrayList<>();
-        for (Group group : groups.values()) {
-            if (group.getMembers().contains(username)) {
-                userGroups.add(group);
+        for (String groupName : loadUserGroupNames(username)) {
+            Group group = groups.get(groupName);
+            if (group != null) {
+                userGroups.add(new Group(group)); // Callers may edit it before updateGroup
             }
         }
         return userGroups;
     }
     
+    /**
+     * Save a group and bring its members' indexes in line with it
+     * Members dropped since the stored version are unindexed in the same batch,
+     * so a crash never leaves the group listed for someone no longer in it.
+     */
     public void updateGroup(Group group) {
+        String groupName = group.getGroupName();
         Map<String, Group> groups = loadGroups();
-        groups.put(group.getGroupName(), group);
-        saveGroups(groups);
+        Group previous = groups.put(groupName, group);
+        StorageBatch batch = new StorageBatch().put(GROUPS_KEY, groups);
+        for (String member : group.getMembers()) {
+            indexMember(batch, member, groupName);
+        }
+        if (previous != null) {
+            for (String member : previous.getMembers()) {
+                if (!group.getMembers().contains(member)) {
+                    unindexMember(batch, member, groupName);
+                }
+            }
+        }
+        dbManager.commit(batch);
+    }
+    
+    /**
+     * Add a member to a group
+     * @return false if the group does not exist
+     */
+    public boolean addMember(String groupName, String username) {
+        Map<String, Group> groups = loadGroups();
+        Group group = groups.get(groupName);
+        if (group == null) return false;
+        StorageBatch batch = new StorageBatch();
+        if (group.addMember(username)) {
+            batch.put(GROUPS_KEY, groups);
+        }
+        indexMember(batch, username, groupName);
+        dbManager.commit(batch);
+        return true;
+    }
+    
+    /**
+     * Remove a member from a group
+     * @return false if the group does not exist
+     */
+    public boolean removeMember(String groupName, String username) {
+        Map<String, Group> groups = loadGroups();
+        Group group = groups.get(groupName);
+        if (group == null) return false;
+        StorageBatch batch = new StorageBatch();
+        if (group.removeMember(username)) {
+            batch.put(GROUPS_KEY, groups);
+        }
+        unindexMember(batch, username, groupName);
+        dbManager.commit(batch);
+        return true;
     }
     
+    /**
+     * Append a shared expense and apply its shares to the group's ledger, in one batch
+     * If the group has no ledger yet it is built from all expenses on the next getLedger.
+     */
     public void addSharedExpense(SharedExpense expense) {
-        ArrayList<SharedExpense> expenses = loadSharedExpenses();
-        expenses.add(expense);
-        saveSharedExpenses(expenses);
+        String groupName = expense.getGroupName();
+        StorageBatch batch = new StorageBatch().appendAll(getGroupExpenseKey(groupName), List.of(expense));
+        GroupLedger ledger = getLedger(groupName);
+        if (ledger != null && expense.hasShares()) {
+            ledger = new GroupLedger(ledger); // The cached one changes only with the commit
+            ledger.apply(expense.getPaidByUsername(), expense.getTotalCents(), expense.getShares());
+            batch.put(getLedgerKey(groupName), ledger);
+        } else if (ledger != null) {
+            dbManager.deleteData(getLedgerKey(groupName)); // Force a rebuild; gone before the expense lands
+        }
+        dbManager.commit(batch);
+    }
+    
+    private String getLedgerKey(String groupName) {
+        return LEDGER_PREFIX + URLEncoder.encode(groupName, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @return Stored ledger, or null if the group has none yet
+     */
+    public GroupLedger getLedger(String groupName) {
+        return dbManager.loadData(getLedgerKey(groupName), GroupLedger.class);
+    }
+    
+    public void saveLedger(GroupLedger ledger) {
+        dbManager.saveData(getLedgerKey(ledger.getGroupName()), ledger);
+    }
+    
+    public int getGroupExpenseCount(String groupName) {
+        return loadSharedExpenses(groupName).size();
     }
     
     public ArrayList<SharedExpense> getGroupExpenses(String groupName) {
-        ArrayList<SharedExpense> allExpenses = loadSharedExpenses();
-        ArrayList<SharedExpense> groupExpenses = new ArrayList<>();
-        for (SharedExpense expense : allExpenses) {
-            if (expense.getGroupName().equals(groupName)) {
-                groupExpenses.add(expense);
-            }
-        }
-        return groupExpenses;
+        return new ArrayList<>(loadSharedExpenses(groupName));
     }
     
+    /**
+     * Delete a group, its members' index entries and its shared expenses in one batch
+     * A ledger left behind by a crash is rebuilt: its count no longer matches.
+     */
     public void deleteGroup(String groupName) {
         Map<String, Group> groups = loadGroups();
-        groups.remove(groupName);
-        saveGroups(groups);
+        Group removed = groups.remove(groupName);
+        StorageBatch batch = new StorageBatch().put(GROUPS_KEY, groups);
+        if (removed != null) {
+            for (String member : removed.getMembers()) {
+                unindexMember(batch, member, groupName);
+            }
+        }
+        batch.put(getGroupExpenseKey(groupName), new ArrayList<SharedExpense>()); // Reads the same as none
+        dbManager.commit(batch);
+        dbManager.deleteData(getLedgerKey(groupName));
     }
 }
\ No newline at end of file
@@ -0,0 +1,751 @@
+package com.paypilot.dao;
+
+import com.paypilot.dao.codec.BinaryCodec;
+import com.paypilot.model.Identifiable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * LogStorageEngine - Append-only, segmented write-ahead log
+ * Every mutation is appended as one checksummed record, so adding a single
+ * element to a list costs one small write instead of rewriting the whole list.
+ *
+ * Segment layout:  [int magic][byte flags] record*
+ * Record layout:   [int bodyLength][int crc32(body)] body
+ * Body layout:     [byte type][UTF key][payload]
+ * Batch body:      [byte BATCH][int count] ([byte PUT|APPEND|REPLACE|REMOVE][UTF key][int length][payload])*
+ * Payloads are encoded with BinaryCodec (REMOVE carries only the element ID,
+ * an APPEND inside a batch carries the list of appended elements).
+ *
+ * An in-memory index maps each key to the positions of the records that make
+ * up its current value (one PUT followed by APPEND/REPLACE/REMOVE records).
+ * REPLACE and REMOVE address list elements by Identifiable ID, not by index,
+ * so they replay correctly even if a caller reordered the cached list. A batch
+ * is a single record, so its checksum makes it land completely or not at all;
+ * it joins the position list of every key it touches. Sealed
+ * segments are folded into a single snapshot segment by a background thread.
+ * Reads share a read lock, so they only wait for a write in progress, never
+ * for each other.
+ * Keys that were never written to the log are read from legacy data/<key>.dat files.
+ */
+public class LogStorageEngine implements StorageEngine {
+    private static final String LOG_DIR = "wal/";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final int MAGIC = 0x50504C47; // "PPLG"
+    private static final int SEGMENT_HEADER_SIZE = 5;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte FLAG_NONE = 0;
+    private static final byte FLAG_SNAPSHOT = 1; // Segment holds the full state up to its end
+
+    private static final byte PUT = 1;
+    private static final byte APPEND = 2;
+    private static final byte DELETE = 3;
+    private static final byte REPLACE = 4;
+    private static final byte REMOVE = 5;
+    private static final byte BATCH = 6;
+
+    private static final long MAX_SEGMENT_SIZE = 8L * 1024 * 1024;
+    private static final int COMPACTION_THRESHOLD = 4; // Sealed segments before compacting
+
+    private final FileStorageEngine legacy;
+    private final File logDir;
+
+    // Key -> record positions (segmentId << 32 | offset) making up its value
+    private final Map<String, List<Long>> index = new HashMap<>();
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+    private FileChannel active;
+    private int activeId;
+    private long activeSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // Guards index and segments
+    private final ExecutorService compactor;
+    private boolean compacting = false;
+
+    public LogStorageEngine(String dataDir) throws IOException {
+        this.legacy = new FileStorageEngine(dataDir);
+        this.logDir = new File(dataDir + LOG_DIR);
+        if (!logDir.exists() && !logDir.mkdirs()) {
+            throw new IOException("Cannot create log directory " + logDir);
+        }
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "paypilot-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        recover();
+    }
+
+    // === RECOVERY ===
+
+    /**
+     * Replay all segments to rebuild the key index
+     * Only record headers and keys are read; payloads stay on disk until requested.
+     */
+    private void recover() throws IOException {
+        List<Integer> ids = listSegmentIds();
+
+        // An interrupted compaction can leave segments older than the newest snapshot
+        int firstId = 0;
+        for (int id : ids) {
+            if (readFlags(segmentFile(id)) == FLAG_SNAPSHOT) {
+                firstId = id;
+            }
+        }
+
+        for (int id : ids) {
+            File file = segmentFile(id);
+            if (id < firstId) {
+                file.delete();
+                continue;
+            }
+            FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(id, channel);
+            long validEnd = replaySegment(id, channel);
+            if (validEnd < channel.size()) {
+                System.err.println("Truncating damaged log tail in " + file.getName() +
+                                   " at offset " + validEnd);
+                channel.truncate(validEnd);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            openNewSegment(1, FLAG_NONE);
+        } else {
+            activeId = segments.lastKey();
+            active = segments.get(activeId);
+            activeSize = active.size();
+            if (activeSize < SEGMENT_HEADER_SIZE || readFlags(segmentFile(activeId)) == FLAG_SNAPSHOT
+                    || activeSize >= MAX_SEGMENT_SIZE) {
+                openNewSegment(activeId + 1, FLAG_NONE);
+            }
+        }
+    }
+
+    /**
+     * Apply one segment's records to the index
+     * @return Offset just past the last intact record
+     */
+    private long replaySegment(int id, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < SEGMENT_HEADER_SIZE) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a PayPilot log segment: " + segmentFile(id).getName());
+        }
+        if (header.get() == FLAG_SNAPSHOT) {
+            index.clear();
+        }
+
+        long offset = SEGMENT_HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, offset);
+            recordHeader.flip();
+            int length = recordHeader.getInt();
+            int crc = recordHeader.getInt();
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(channel, body, offset + RECORD_HEADER_SIZE);
+            byte[] bytes = body.array();
+            if (checksum(bytes) != crc) {
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            byte type = in.readByte();
+            long position = position(id, offset);
+            if (type == BATCH) {
+                replayBatch(in, position);
+                offset += RECORD_HEADER_SIZE + length;
+                continue;
+            }
+            String key = in.readUTF();
+            switch (type) {
+                case PUT:
+                    index.put(key, new ArrayList<>(List.of(position)));
+                    break;
+                case APPEND:
+                case REPLACE:
+                case REMOVE:
+                    index.computeIfAbsent(key, k -> new ArrayList<>()).add(position);
+                    break;
+                case DELETE:
+                    index.remove(key);
+                    break;
+                default:
+                    throw new IOException("Unknown log record type " + type);
+            }
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Add a batch record to the position list of each key it writes
+     */
+    private void replayBatch(DataInputStream in, long position) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            String key = in.readUTF();
+            in.skipBytes(in.readInt());
+            if (type == PUT) {
+                index.put(key, new ArrayList<>(List.of(position)));
+            } else {
+                addPosition(index.computeIfAbsent(key, k -> new ArrayList<>()), position);
+            }
+        }
+    }
+
+    private static void addPosition(List<Long> positions, long position) {
+        if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+            positions.add(position); // A key written twice by one batch is listed once
+        }
+    }
+
+    // === STORAGE ENGINE ===
+
+    @Override
+    public Object read(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<Long> positions = index.get(key);
+            if (positions == null) {
+                return legacy.read(key);
+            }
+            return materialize(key, positions, segments);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void write(String key, Object value) throws IOException {
+        lock.writeLock().lock();
+        try {
+            long position = appendRecord(PUT, key, value);
+            index.put(key, new ArrayList<>(List.of(position)));
+            retireLegacy(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void appendToList(String key, Object element, List<?> current) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<Long> positions = index.get(key);
+            if (positions == null) {
+                // First log write for this key: record the whole list as the base
+                write(key, current);
+                return;
+            }
+            positions.add(appendRecord(APPEND, key, element));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void replaceInList(String key, long id, Object element, List<?> current) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<Long> positions = index.get(key);
+            if (positions == null) {
+                write(key, current);
+                return;
+            }
+            positions.add(appendRecord(REPLACE, key, element));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeFromList(String key, long id, List<?> current) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<Long> positions = index.get(key);
+            if (positions == null) {
+                write(key, current);
+                return;
+            }
+            positions.add(appendRecord(REMOVE, key, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keys already in the log take appends, replaces and removes as small records
+     */
+    @Override
+    public boolean recordsListDeltas(String key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the whole batch as one checksummed record
+     * Appends to keys the log does not hold yet are written as the full list.
+     */
+    @Override
+    public void commit(StorageBatch batch) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<StorageBatch.Op> ops = batch.getOps();
+            if (ops.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(BATCH);
+            out.writeInt(ops.size());
+            Set<String> based = new LinkedHashSet<>(); // Keys this batch writes as a whole
+            byte[] types = new byte[ops.size()];
+            for (int i = 0; i < ops.size(); i++) {
+                StorageBatch.Op op = ops.get(i);
+                boolean whole = op.kind == StorageBatch.Kind.PUT
+                    || (!index.containsKey(op.key) && !based.contains(op.key));
+                types[i] = whole ? PUT : recordType(op.kind);
+                if (whole) {
+                    based.add(op.key);
+                }
+                byte[] payload;
+                if (types[i] == REMOVE) {
+                    payload = ByteBuffer.allocate(Long.BYTES).putLong((Long) op.value).array();
+                } else {
+                    payload = BinaryCodec.encode(op.kind != StorageBatch.Kind.PUT && whole ? op.current : op.value);
+                }
+                out.writeByte(types[i]);
+                out.writeUTF(op.key);
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            out.flush();
+
+            long position = appendBody(bytes.toByteArray());
+            for (int i = 0; i < ops.size(); i++) {
+                String key = ops.get(i).key;
+                if (types[i] == PUT) {
+                    index.put(key, new ArrayList<>(List.of(position)));
+                } else {
+                    addPosition(index.get(key), position);
+                }
+            }
+            for (String key : based) {
+                retireLegacy(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static byte recordType(StorageBatch.Kind kind) {
+        switch (kind) {
+            case REPLACE:
+                return REPLACE;
+            case REMOVE:
+                return REMOVE;
+            default:
+                return APPEND;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (index.remove(key) != null) {
+                appendRecord(DELETE, key, null);
+            }
+            legacy.delete(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key) || legacy.exists(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            if (segments.isEmpty()) {
+                return; // Already closed
+            }
+            active.force(true);
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // === WRITE PATH ===
+
+    private long appendRecord(byte type, String key, Object value) throws IOException {
+        return appendBody(encodeBody(type, key, value));
+    }
+
+    private long appendBody(byte[] body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+        buffer.putInt(body.length);
+        buffer.putInt(checksum(body));
+        buffer.put(body);
+        buffer.flip();
+
+        long offset = activeSize;
+        while (buffer.hasRemaining()) {
+            active.write(buffer, offset + buffer.position());
+        }
+        activeSize += RECORD_HEADER_SIZE + body.length;
+        long position = position(activeId, offset);
+
+        if (activeSize >= MAX_SEGMENT_SIZE) {
+            rollSegment();
+        }
+        return position;
+    }
+
+    private void rollSegment() throws IOException {
+        active.force(true);
+        openNewSegment(activeId + 1, FLAG_NONE);
+        if (segments.size() - 1 >= COMPACTION_THRESHOLD && !compacting) {
+            compacting = true;
+            compactor.submit(this::compact);
+        }
+    }
+
+    private void openNewSegment(int id, byte flags) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(id).toPath(),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeSegmentHeader(channel, flags);
+        segments.put(id, channel);
+        active = channel;
+        activeId = id;
+        activeSize = SEGMENT_HEADER_SIZE;
+    }
+
+    /**
+     * Once a key lives in the log its legacy .dat file must not be read again
+     */
+    private void retireLegacy(String key) throws IOException {
+        if (legacy.exists(key)) {
+            active.force(true);
+            legacy.delete(key);
+        }
+    }
+
+    // === COMPACTION ===
+
+    /**
+     * Fold all sealed segments into one snapshot segment
+     * Runs on the compactor thread; the engine lock is only held while
+     * taking the snapshot and while swapping files in.
+     */
+    private void compact() {
+        try {
+            int lastSealed;
+            Map<String, List<Long>> sealedPositions = new LinkedHashMap<>();
+            NavigableMap<Integer, FileChannel> sealed;
+            lock.readLock().lock();
+            try {
+                sealed = new TreeMap<>(segments.headMap(activeId, false));
+                if (sealed.size() < 2) {
+                    return;
+                }
+                lastSealed = sealed.lastKey();
+                for (Map.Entry<String, List<Long>> entry : index.entrySet()) {
+                    List<Long> prefix = new ArrayList<>();
+                    for (long position : entry.getValue()) {
+                        if (segmentOf(position) > lastSealed) break;
+                        prefix.add(position);
+                    }
+                    if (!prefix.isEmpty()) {
+                        sealedPositions.put(entry.getKey(), prefix);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            // Sealed segments are immutable, so they can be read without the lock
+            File tmp = new File(logDir, SEGMENT_PREFIX + lastSealed + COMPACT_SUFFIX);
+            Map<String, Long> compactedPositions = new HashMap<>();
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeSegmentHeader(out, FLAG_SNAPSHOT);
+                long offset = SEGMENT_HEADER_SIZE;
+                for (Map.Entry<String, List<Long>> entry : sealedPositions.entrySet()) {
+                    Object value = materialize(entry.getKey(), entry.getValue(), sealed);
+                    byte[] body = encodeBody(PUT, entry.getKey(), value);
+                    ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+                    buffer.putInt(body.length).putInt(checksum(body)).put(body).flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer, offset + buffer.position());
+                    }
+                    compactedPositions.put(entry.getKey(), position(lastSealed, offset));
+                    offset += buffer.limit();
+                }
+                out.force(true);
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<String, List<Long>> entry : sealedPositions.entrySet()) {
+                    List<Long> current = index.get(entry.getKey());
+                    List<Long> prefix = entry.getValue();
+                    // A PUT or DELETE after the snapshot already superseded the sealed records
+                    if (current == null || current.isEmpty() || !current.get(0).equals(prefix.get(0))) {
+                        continue;
+                    }
+                    current.subList(0, prefix.size()).clear();
+                    current.add(0, compactedPositions.get(entry.getKey()));
+                }
+                for (int id : sealed.keySet()) {
+                    segments.remove(id).close();
+                }
+                Files.move(tmp.toPath(), segmentFile(lastSealed).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                for (int id : sealed.keySet()) {
+                    if (id != lastSealed) {
+                        segmentFile(id).delete();
+                    }
+                }
+                segments.put(lastSealed, FileChannel.open(segmentFile(lastSealed).toPath(),
+                    StandardOpenOption.READ));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Log compaction failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                compacting = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // === READ PATH ===
+
+    private Object materialize(String key, List<Long> positions, Map<Integer, FileChannel> channels)
+            throws IOException {
+        Object value = null;
+        for (long position : positions) {
+            FileChannel channel = channels.get(segmentOf(position));
+            if (channel == null) {
+                throw new IOException("Missing log segment " + segmentOf(position));
+            }
+            byte[] body = readBody(channel, offsetOf(position));
+            ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+            DataInputStream in = new DataInputStream(bytes);
+            byte type = in.readByte();
+            if (type != BATCH) {
+                in.readUTF();
+                int payloadOffset = body.length - bytes.available();
+                value = applyRecord(value, type, in, body, payloadOffset, body.length - payloadOffset);
+                continue;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte subType = in.readByte();
+                String subKey = in.readUTF();
+                int length = in.readInt();
+                if (subKey.equals(key)) {
+                    int payloadOffset = body.length - bytes.available();
+                    if (subType == APPEND) {
+                        value = appendAll(value, (List<?>) BinaryCodec.decode(body, payloadOffset, length));
+                    } else {
+                        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body, payloadOffset, length));
+                        value = applyRecord(value, subType, payload, body, payloadOffset, length);
+                    }
+                }
+                in.skipBytes(length);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Apply one single-key record to the value built so far
+     */
+    @SuppressWarnings("unchecked")
+    private Object applyRecord(Object value, byte type, DataInputStream in, byte[] body,
+                               int payloadOffset, int length) throws IOException {
+        if (type == PUT) {
+            return BinaryCodec.decode(body, payloadOffset, length);
+        }
+        if (value == null) {
+            value = new ArrayList<>();
+        }
+        List<Object> list = (List<Object>) value;
+        if (type == APPEND) {
+            list.add(BinaryCodec.decode(body, payloadOffset, length));
+        } else if (type == REPLACE) {
+            Object element = BinaryCodec.decode(body, payloadOffset, length);
+            long id = ((Identifiable) element).getId();
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) instanceof Identifiable && ((Identifiable) list.get(i)).getId() == id) {
+                    list.set(i, element);
+                    break;
+                }
+            }
+        } else if (type == REMOVE) {
+            long id = in.readLong();
+            list.removeIf(e -> e instanceof Identifiable && ((Identifiable) e).getId() == id);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object appendAll(Object value, List<?> elements) {
+        List<Object> list = value == null ? new ArrayList<>() : (List<Object>) value;
+        list.addAll(elements);
+        return list;
+    }
+
+    private byte[] readBody(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(channel, header, offset);
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(channel, body, offset + RECORD_HEADER_SIZE);
+        if (checksum(body.array()) != crc) {
+            throw new IOException("Checksum mismatch in log record at offset " + offset);
+        }
+        return body.array();
+    }
+
+    // === ENCODING ===
+
+    private byte[] encodeBody(byte type, String key, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeUTF(key);
+        if (type == REMOVE) {
+            out.writeLong((Long) value);
+        } else if (type != DELETE) {
+            BinaryCodec.write(out, value);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // === HELPERS ===
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static long position(int segmentId, long offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static long offsetOf(long position) {
+        return position & 0xFFFFFFFFL;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of log segment");
+            }
+        }
+    }
+
+    private static void writeSegmentHeader(FileChannel channel, byte flags) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(MAGIC).put(flags).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private byte readFlags(File file) throws IOException {
+        if (file.length() < SEGMENT_HEADER_SIZE) {
+            return FLAG_NONE;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readInt();
+            return in.readByte();
+        }
+    }
+
+    private File segmentFile(int id) {
+        return new File(logDir, String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private List<Integer> listSegmentIds() {
+        List<Integer> ids = new ArrayList<>();
+        File[] files = logDir.listFiles();
+        if (files == null) return ids;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(COMPACT_SUFFIX)) {
+                file.delete(); // Unfinished compaction output
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,368 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Expense;
+import com.paypilot.model.Receipt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReceiptBlobStore - Content-addressed, deduplicated storage for receipt files
+ * A receipt is stored once per distinct content, as
+ * data/receipts/blobs/[first two hex digits]/[SHA-256], no matter how often it
+ * is attached. The file is hashed while it is copied, in one pass through
+ * FileChannel.transferTo. The two-digit fan-out keeps every directory small.
+ *
+ * ExpenseDAO passes the count changes of each mutation to commit(), which
+ * applies them in memory and stages the counts, once, into the batch that
+ * writes the expenses. They are persisted under "receipt_refs".
+ * A background collector deletes blobs whose count has been zero for
+ * GRACE_MS. Undoing a delete within that time finds the file still there.
+ * Before deleting, it confirms the orphans against all users' expenses, so a
+ * count that drifted (e.g. after a crash) never costs a receipt.
+ *
+ * Receipts copied before the blob store have no hash and are left alone;
+ * move them in with: java com.paypilot.dao.ReceiptBlobStore --migrate
+ */
+public class ReceiptBlobStore {
+    private static volatile ReceiptBlobStore instance;
+    private static final Object lock = new Object();
+    private static final String RECEIPTS_DIR = DatabaseManager.DATA_DIR + "receipts/";
+    private static final String BLOB_DIR = RECEIPTS_DIR + "blobs/";
+    private static final String TMP_DIR = RECEIPTS_DIR + "tmp/";
+    private static final String REFS_KEY = "receipt_refs";
+    private static final long GRACE_MS = 24L * 60 * 60 * 1000;
+    private static final long COLLECT_DELAY_MINUTES = 1;
+    private static final long COLLECT_INTERVAL_MINUTES = 6 * 60;
+
+    private final DatabaseManager dbManager = DatabaseManager.getInstance();
+    private final HashMap<String, Integer> refs; // Guarded by itself; also orders file moves and deletes
+    private ScheduledExecutorService collector;
+
+    private ReceiptBlobStore() {
+        refs = loadRefs();
+    }
+
+    /**
+     * Thread-safe singleton instance getter (Double-checked locking)
+     */
+    public static ReceiptBlobStore getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new ReceiptBlobStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // === STORE ===
+
+    /**
+     * Copy a file into the store, hashing it on the way
+     * Content that is already stored is not written again.
+     * @return A receipt for the stored blob; it counts once the expense holding it is saved
+     */
+    public Receipt store(File source, String originalFileName, String mimeType) throws IOException {
+        new File(TMP_DIR).mkdirs();
+        Path tmp = Files.createTempFile(new File(TMP_DIR).toPath(), "upload-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                WritableByteChannel sink = new DigestingChannel(out, digest);
+                size = in.size();
+                for (long position = 0; position < size; ) {
+                    position += in.transferTo(position, size - position, sink);
+                }
+                out.force(true);
+            }
+            String hash = toHex(digest.digest());
+            File blob = blobFile(hash);
+            synchronized (refs) { // The collector cannot delete the blob between the check and the move
+                if (blob.exists()) {
+                    blob.setLastModified(System.currentTimeMillis()); // Restart its grace period
+                } else {
+                    blob.getParentFile().mkdirs();
+                    Files.move(tmp, blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            return new Receipt(BLOB_DIR + hash.substring(0, 2) + "/" + hash, originalFileName, size, mimeType, hash);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Hashes every byte on its way to the target channel
+     */
+    private static final class DigestingChannel implements WritableByteChannel {
+        private final WritableByteChannel target;
+        private final MessageDigest digest;
+
+        DigestingChannel(WritableByteChannel target, MessageDigest digest) {
+            this.target = target;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ByteBuffer written = src.duplicate();
+            int count = target.write(src);
+            written.limit(written.position() + count);
+            digest.update(written);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
+
+    // === REFERENCES ===
+
+    /**
+     * Commit batch together with the counts changed by deltas (content hash -> change)
+     * The counts go into the batch as one value, so they reach storage with
+     * the expenses holding the receipts. Batches with counts are committed in
+     * the order the counts were taken, so a stale copy never lands last.
+     * A blob whose count drops to zero becomes collectable.
+     */
+    public void commit(StorageBatch batch, Map<String, Integer> deltas) {
+        synchronized (refs) {
+            boolean changed = false;
+            for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                if (delta.getValue() == 0) {
+                    continue; // Kept by the change
+                }
+                String hash = delta.getKey();
+                int count = refs.getOrDefault(hash, 0) + delta.getValue();
+                if (count > 0) {
+                    refs.put(hash, count);
+                } else {
+                    refs.remove(hash);
+                    blobFile(hash).setLastModified(System.currentTimeMillis()); // Grace period starts now
+                }
+                changed = true;
+            }
+            if (changed) {
+                batch.put(REFS_KEY, new HashMap<>(refs)); // A copy: the cache keeps what is staged
+            }
+            dbManager.commit(batch);
+        }
+    }
+
+    public int getReferenceCount(String hash) {
+        synchronized (refs) {
+            return refs.getOrDefault(hash, 0);
+        }
+    }
+
+    /**
+     * Stored counts; none on first start, when no receipt has a hash yet
+     * Not recounted here: ExpenseDAO calls in while holding a user's lock.
+     * Counts that are missing anyway are repaired by collectGarbage().
+     */
+    @SuppressWarnings("unchecked")
+    private HashMap<String, Integer> loadRefs() {
+        HashMap<String, Integer> stored = dbManager.loadData(REFS_KEY, HashMap.class);
+        return stored != null ? new HashMap<>(stored) : new HashMap<>();
+    }
+
+    private void saveRefs() {
+        dbManager.saveData(REFS_KEY, new HashMap<>(refs)); // A copy: write-behind serializes it later
+    }
+
+    /**
+     * References held by every user's expenses, counted from scratch
+     * Sums each user's receipt counts; no snapshots are built for it.
+     */
+    private static HashMap<String, Integer> countReferences() {
+        HashMap<String, Integer> counted = new HashMap<>();
+        ExpenseDAO expenseDAO = new ExpenseDAO();
+        for (String username : new UserDAO().getUsernames()) {
+            expenseDAO.countReceipts(username).forEach((hash, count) -> counted.merge(hash, count, Integer::sum));
+        }
+        return counted;
+    }
+
+    // === GARBAGE COLLECTION ===
+
+    /**
+     * Collect orphaned blobs every few hours on a daemon thread
+     * Later calls do nothing.
+     */
+    public void startCollector() {
+        synchronized (lock) {
+            if (collector != null) {
+                return;
+            }
+            collector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "paypilot-receipt-gc");
+                t.setDaemon(true);
+                return t;
+            });
+            collector.scheduleWithFixedDelay(() -> {
+                try {
+                    collectGarbage();
+                } catch (RuntimeException e) {
+                    System.err.println("Error collecting receipt files: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }, COLLECT_DELAY_MINUTES, COLLECT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Delete blobs no expense has held for GRACE_MS, and abandoned uploads
+     * @return Number of files deleted
+     */
+    public int collectGarbage() {
+        long cutoff = System.currentTimeMillis() - GRACE_MS;
+        List<File> candidates = new ArrayList<>();
+        synchronized (refs) {
+            for (File blob : listBlobs()) {
+                if (!refs.containsKey(blob.getName()) && blob.lastModified() < cutoff) {
+                    candidates.add(blob);
+                }
+            }
+        }
+        int deleted = 0;
+        if (!candidates.isEmpty()) {
+            HashMap<String, Integer> counted = countReferences(); // Takes user locks: not under refs
+            synchronized (refs) {
+                boolean repaired = false;
+                for (File blob : candidates) {
+                    String hash = blob.getName();
+                    if (counted.containsKey(hash)) {
+                        System.err.println("Receipt " + hash + " is still referenced; repairing its count");
+                        refs.put(hash, counted.get(hash));
+                        repaired = true;
+                        continue;
+                    }
+                    if (refs.containsKey(hash) || blob.lastModified() >= cutoff) {
+                        continue; // Attached again meanwhile
+                    }
+                    ReceiptImageStore.getInstance().deletePyramid(blob.getPath());
+                    if (blob.delete()) {
+                        deleted++;
+                    }
+                }
+                if (repaired) {
+                    saveRefs();
+                }
+            }
+        }
+        File[] uploads = new File(TMP_DIR).listFiles();
+        if (uploads != null) {
+            for (File upload : uploads) {
+                if (upload.lastModified() < cutoff && upload.delete()) {
+                    deleted++; // Left behind by a crash mid-copy
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private static List<File> listBlobs() {
+        List<File> blobs = new ArrayList<>();
+        File[] fanOut = new File(BLOB_DIR).listFiles(File::isDirectory);
+        if (fanOut == null) {
+            return blobs;
+        }
+        for (File dir : fanOut) {
+            File[] files = dir.listFiles(File::isFile);
+            if (files != null) {
+                blobs.addAll(Arrays.asList(files));
+            }
+        }
+        return blobs;
+    }
+
+    // === MIGRATION ===
+
+    /**
+     * Move receipts copied before the blob store into it, then delete the old copies
+     * Duplicates collapse into one blob.
+     * @return Number of expenses whose receipt was moved
+     */
+    public int migrateLegacyReceipts() throws IOException {
+        ExpenseDAO expenseDAO = new ExpenseDAO();
+        Set<File> legacyFiles = new HashSet<>();
+        int migrated = 0;
+        for (String username : new UserDAO().getUsernames()) {
+            for (Expense expense : expenseDAO.getSnapshot(username).getExpenses()) {
+                Receipt legacy = expense.getReceipt();
+                if (legacy == null || legacy.getContentHash() != null) continue;
+                File file = new File(legacy.getFilePath());
+                if (!file.isFile()) continue;
+                Expense moved = new Expense(expense);
+                moved.setReceipt(store(file, legacy.getOriginalFileName(), legacy.getMimeType()));
+                expenseDAO.updateExpense(username, moved); // Retains the blob
+                legacyFiles.add(file.getAbsoluteFile());
+                migrated++;
+            }
+        }
+        dbManager.flush(); // Expenses point at the blobs before the old files go
+        for (File file : legacyFiles) {
+            ReceiptImageStore.getInstance().deletePyramid(file.getPath());
+            file.delete();
+        }
+        return migrated;
+    }
+
+    // === HELPERS ===
+
+    private static File blobFile(String hash) {
+        return new File(BLOB_DIR + hash.substring(0, 2), hash);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required of every JRE
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Headless: --gc collects orphaned blobs now, --migrate moves old receipt copies in
+     */
+    public static void main(String[] args) throws IOException {
+        ReceiptBlobStore store = getInstance();
+        if (args.length > 0 && args[0].equals("--migrate")) {
+            System.out.println("Moved " + store.migrateLegacyReceipts() + " receipts into the blob store");
+        } else {
+            System.out.println("Deleted " + store.collectGarbage() + " unused receipt files");
+        }
+        DatabaseManager.getInstance().flush();
+    }
+}
@@ -0,0 +1,378 @@
+package com.paypilot.dao;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * ReceiptImageStore - Thumbnails, a persisted mip-map pyramid and a tile cache for receipt images
+ * Level k of a receipt is the original shrunk by 2^k, stored as
+ * data/receipts/pyramids/[file name]/level-k.jpg. Level 1 is decoded from the
+ * original with 2x2 subsampling (ImageReadParam), so the full-resolution
+ * photo is never held in memory; each further level halves the one before,
+ * up to the first level that fits THUMBNAIL_SIZE, which is the thumbnail.
+ *
+ * A viewer draws from the smallest level that still has enough pixels for its
+ * zoom, in TILE_SIZE tiles decoded with a source region. Decoded tiles live in
+ * a BoundedCache limited by -Dpaypilot.receipts.cacheBytes. Level 0 tiles come
+ * straight from the original and are only needed when zoomed past 50%.
+ */
+public class ReceiptImageStore {
+    private static volatile ReceiptImageStore instance;
+    private static final Object lock = new Object();
+    private static final String PYRAMID_DIR = DatabaseManager.DATA_DIR + "receipts/pyramids/";
+    public static final int TILE_SIZE = 512;
+    public static final int THUMBNAIL_SIZE = 256;
+    private static final int MAX_CACHED_TILES = 4096;
+    private static final long DEFAULT_CACHE_BYTES = 48L * 1024 * 1024;
+
+    /**
+     * Size and pyramid depth of one receipt, plus its thumbnail
+     */
+    public static final class ReceiptImage {
+        private final String path;
+        private final int width;
+        private final int height;
+        private final int topLevel;
+        private final BufferedImage thumbnail;
+
+        ReceiptImage(String path, int width, int height, int topLevel, BufferedImage thumbnail) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+            this.topLevel = topLevel;
+            this.thumbnail = thumbnail;
+        }
+
+        public String getPath() { return path; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getTopLevel() { return topLevel; }
+
+        /**
+         * @return The top pyramid level, at most THUMBNAIL_SIZE on its longer side
+         */
+        public BufferedImage getThumbnail() { return thumbnail; }
+
+        public int getLevelWidth(int level) { return levelSize(width, level); }
+        public int getLevelHeight(int level) { return levelSize(height, level); }
+
+        /**
+         * Smallest level with at least one pixel per screen pixel at zoom (1.0 = original size)
+         */
+        public int levelFor(double zoom) {
+            int level = 0;
+            while (level < topLevel && zoom * (1 << (level + 1)) <= 1.0) {
+                level++;
+            }
+            return level;
+        }
+    }
+
+    private final BoundedCache tiles = new BoundedCache(MAX_CACHED_TILES,
+        Long.getLong("paypilot.receipts.cacheBytes", DEFAULT_CACHE_BYTES));
+    private final Map<String, Object> pathLocks = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> loading = new ConcurrentHashMap<>();
+    private final AtomicInteger threads = new AtomicInteger();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "paypilot-receipt-images-" + threads.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ReceiptImageStore() {
+    }
+
+    /**
+     * Thread-safe singleton instance getter (Double-checked locking)
+     */
+    public static ReceiptImageStore getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new ReceiptImageStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private Object lockFor(String path) {
+        return pathLocks.computeIfAbsent(path, key -> new Object());
+    }
+
+    // === PYRAMID ===
+
+    /**
+     * Build the receipt's pyramid on a background thread, e.g. right after it is attached
+     */
+    public void buildPyramidInBackground(String imagePath) {
+        executor.execute(() -> {
+            try {
+                buildPyramid(imagePath);
+            } catch (IOException e) {
+                System.err.println("Error building receipt pyramid for " + imagePath + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Make sure the pyramid exists and return the receipt's size and thumbnail
+     * Generates the pyramid on first use for receipts attached before it existed.
+     */
+    public ReceiptImage open(String imagePath) throws IOException {
+        File original = new File(imagePath);
+        if (!original.exists()) {
+            throw new FileNotFoundException("Receipt file not found");
+        }
+        Dimension size = readSize(original);
+        int topLevel = buildPyramid(imagePath);
+        BufferedImage thumbnail = topLevel == 0 ? readImage(original) : readImage(levelFile(imagePath, topLevel));
+        return new ReceiptImage(imagePath, size.width, size.height, topLevel, thumbnail);
+    }
+
+    /**
+     * Write every missing level; the thumbnail is written last and marks a complete pyramid
+     * @return The top (thumbnail) level
+     */
+    public int buildPyramid(String imagePath) throws IOException {
+        File original = new File(imagePath);
+        Dimension size = readSize(original);
+        int topLevel = topLevel(size.width, size.height);
+        synchronized (lockFor(imagePath)) {
+            if (topLevel == 0 || levelFile(imagePath, topLevel).exists()) {
+                return topLevel; // Small enough to show as is, or already built
+            }
+            File dir = levelFile(imagePath, 0).getParentFile();
+            dir.mkdirs();
+            BufferedImage level = toRgb(readRegion(original, null, 2));
+            writeLevel(levelFile(imagePath, 1), level);
+            for (int k = 2; k <= topLevel; k++) {
+                level = halve(level);
+                writeLevel(levelFile(imagePath, k), level);
+            }
+            return topLevel;
+        }
+    }
+
+    /**
+     * Remove the persisted levels and cached tiles of a receipt
+     */
+    public void deletePyramid(String imagePath) {
+        synchronized (lockFor(imagePath)) {
+            File dir = levelFile(imagePath, 0).getParentFile();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+        String prefix = imagePath + "#";
+        synchronized (tiles) {
+            tiles.removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    // === TILES ===
+
+    /**
+     * @return The decoded tile if it is cached, otherwise null
+     */
+    public BufferedImage getCachedTile(ReceiptImage image, int level, int tileX, int tileY) {
+        synchronized (tiles) {
+            return (BufferedImage) tiles.get(tileKey(image.path, level, tileX, tileY));
+        }
+    }
+
+    /**
+     * Decode a tile on a background thread and pass it to onLoaded there
+     * Requests for a tile that is already being decoded are dropped.
+     */
+    public void requestTile(ReceiptImage image, int level, int tileX, int tileY, Consumer<BufferedImage> onLoaded) {
+        String key = tileKey(image.path, level, tileX, tileY);
+        if (loading.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                onLoaded.accept(getTile(image, level, tileX, tileY));
+            } catch (IOException e) {
+                System.err.println("Error decoding receipt tile " + key + ": " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                loading.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Decode a tile, or take it from the cache
+     */
+    public BufferedImage getTile(ReceiptImage image, int level, int tileX, int tileY) throws IOException {
+        String key = tileKey(image.path, level, tileX, tileY);
+        BufferedImage tile = getCachedTile(image, level, tileX, tileY);
+        if (tile != null) {
+            return tile;
+        }
+        int x = tileX * TILE_SIZE;
+        int y = tileY * TILE_SIZE;
+        Rectangle region = new Rectangle(x, y,
+            Math.min(TILE_SIZE, image.getLevelWidth(level) - x),
+            Math.min(TILE_SIZE, image.getLevelHeight(level) - y));
+        File source = level == 0 ? new File(image.path) : levelFile(image.path, level);
+        tile = readRegion(source, region, 1);
+        synchronized (tiles) {
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    public BoundedCache.Stats getCacheStats() {
+        synchronized (tiles) {
+            return tiles.getStats();
+        }
+    }
+
+    // === HELPERS ===
+
+    private static String tileKey(String path, int level, int tileX, int tileY) {
+        return path + "#" + level + "/" + tileX + "," + tileY;
+    }
+
+    private static File levelFile(String imagePath, int level) {
+        return new File(PYRAMID_DIR + new File(imagePath).getName(), "level-" + level + ".jpg");
+    }
+
+    static int levelSize(int size, int level) {
+        return (int) (((long) size + (1L << level) - 1) >> level); // ceil(size / 2^level), as subsampling rounds
+    }
+
+    private static int topLevel(int width, int height) {
+        int level = 0;
+        while (Math.max(levelSize(width, level), levelSize(height, level)) > THUMBNAIL_SIZE) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Image size from the file header, without decoding pixels
+     */
+    private static Dimension readSize(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                reader.setInput(in, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decode part of an image, every subsampling-th pixel in both directions
+     * @param region In output pixels, i.e. already divided by subsampling; null for everything
+     */
+    private static BufferedImage readRegion(File file, Rectangle region, int subsampling) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = readerFor(in, file);
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (region != null) {
+                    int width = reader.getWidth(0);
+                    int height = reader.getHeight(0);
+                    int x = region.x * subsampling;
+                    int y = region.y * subsampling;
+                    param.setSourceRegion(new Rectangle(x, y,
+                        Math.min(region.width * subsampling, width - x),
+                        Math.min(region.height * subsampling, height - y)));
+                }
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage readImage(File file) throws IOException {
+        return readRegion(file, null, 1);
+    }
+
+    private static ImageReader readerFor(ImageInputStream in, File file) throws IOException {
+        if (in == null) {
+            throw new FileNotFoundException("Cannot open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format");
+        }
+        return readers.next();
+    }
+
+    /**
+     * Half the width and height (rounded up), with bilinear filtering
+     */
+    private static BufferedImage halve(BufferedImage image) {
+        BufferedImage half = new BufferedImage((image.getWidth() + 1) / 2, (image.getHeight() + 1) / 2,
+                                               BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = half.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, half.getWidth(), half.getHeight(), null);
+        } finally {
+            g.dispose();
+        }
+        return half;
+    }
+
+    /**
+     * JPEG has no alpha: flatten transparent receipts (e.g. PNG scans) onto white
+     */
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * Write through a temp file so a crash never leaves a truncated level behind
+     */
+    private static void writeLevel(File file, BufferedImage image) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        if (!ImageIO.write(image, "jpg", tmp)) {
+            throw new IOException("No JPEG writer available");
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
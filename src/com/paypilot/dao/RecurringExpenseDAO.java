@@ -6,6 +6,7 @@ import java.util.ArrayList;
 /**
  * RecurringExpenseDAO - Data Access Object for recurring expenses
  * Handles persistence of recurring expense rules
+ * Rules saved before rule IDs existed get one the first time they are loaded.
  */
 public class RecurringExpenseDAO {
     private DatabaseManager dbManager;
@@ -25,7 +26,31 @@ public class RecurringExpenseDAO {
     public ArrayList<RecurringExpense> loadRecurringExpenses(String username) {
         String key = getRecurringKey(username);
         ArrayList<RecurringExpense> expenses = dbManager.loadData(key, ArrayList.class);
-        return expenses != null ? expenses : new ArrayList<>();
+        if (expenses == null) {
+            return new ArrayList<>();
+        }
+        for (RecurringExpense expense : expenses) {
+            if (expense.getId() == 0) {
+                assignMissingRuleIds(key, expenses);
+                break;
+            }
+        }
+        return expenses;
+    }
+    
+    /**
+     * Persist IDs for old rules once, so their occurrence IDs stay stable
+     */
+    private void assignMissingRuleIds(String key, ArrayList<RecurringExpense> expenses) {
+        synchronized (RecurringExpenseDAO.class) {
+            boolean changed = false;
+            for (RecurringExpense expense : expenses) {
+                changed |= expense.assignRuleIdIfMissing();
+            }
+            if (changed) {
+                dbManager.saveData(key, expenses);
+            }
+        }
     }
     
     /**
@@ -36,13 +61,18 @@ public class RecurringExpenseDAO {
         dbManager.saveData(key, expenses);
     }
     
+    /**
+     * Stage the user's recurring expenses in a batch instead of saving them now
+     */
+    public void stageRecurringExpenses(StorageBatch batch, String username, ArrayList<RecurringExpense> expenses) {
+        batch.put(getRecurringKey(username), expenses);
+    }
+    
     /**
      * Add a new recurring expense
      */
     public void addRecurringExpense(String username, RecurringExpense expense) {
-        ArrayList<RecurringExpense> expenses = loadRecurringExpenses(username);
-        expenses.add(expense);
-        saveRecurringExpenses(username, expenses);
+        dbManager.appendData(getRecurringKey(username), expense);
     }
     
     /**
@@ -62,7 +92,7 @@ public class RecurringExpenseDAO {
     /**
      * Delete a recurring expense
      */
-    public void deleteRecurringExpense(String username, int id) {
+    public void deleteRecurringExpense(String username, long id) {
         ArrayList<RecurringExpense> expenses = loadRecurringExpenses(username);
         expenses.removeIf(e -> e.getId() == id);
         saveRecurringExpenses(username, expenses);
@@ -0,0 +1,81 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Identifiable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * StorageBatch - Writes to several keys that must reach storage together
+ * Stage whole values with put() and list changes with appendAll(), replace()
+ * and remove(), then hand the batch to DatabaseManager.commit(). After a crash
+ * either every staged write is visible or none is.
+ */
+public class StorageBatch {
+    enum Kind { PUT, APPEND_ALL, REPLACE, REMOVE }
+
+    /**
+     * One staged write; current is filled in by DatabaseManager for list changes
+     */
+    static final class Op {
+        final Kind kind;
+        final String key;
+        final Object value;   // Whole value for PUT, new elements for APPEND_ALL, element for REPLACE, ID for REMOVE
+        List<?> current;      // List after the change, for engines that store whole values
+
+        Op(Kind kind, String key, Object value) {
+            this.kind = kind;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final List<Op> ops = new ArrayList<>();
+
+    /**
+     * Replace the value stored under key
+     */
+    public StorageBatch put(String key, Object value) {
+        ops.add(new Op(Kind.PUT, key, value));
+        return this;
+    }
+
+    /**
+     * Append elements to the list stored under key
+     */
+    public StorageBatch appendAll(String key, List<?> elements) {
+        if (!elements.isEmpty()) {
+            ops.add(new Op(Kind.APPEND_ALL, key, new ArrayList<>(elements)));
+        }
+        return this;
+    }
+
+    /**
+     * Replace the element with the same ID in the list stored under key
+     */
+    public StorageBatch replace(String key, Identifiable element) {
+        ops.add(new Op(Kind.REPLACE, key, element));
+        return this;
+    }
+
+    /**
+     * Remove the element with the given ID from the list stored under key
+     */
+    public StorageBatch remove(String key, long id) {
+        ops.add(new Op(Kind.REMOVE, key, id));
+        return this;
+    }
+
+    StorageBatch add(Op op) {
+        ops.add(op);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return ops.isEmpty();
+    }
+
+    List<Op> getOps() {
+        return Collections.unmodifiableList(ops);
+    }
+}
@@ -0,0 +1,67 @@
+package com.paypilot.dao;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * StorageEngine - Pluggable durable storage behind DatabaseManager
+ * DatabaseManager owns the in-memory cache; the engine only deals with disk.
+ */
+public interface StorageEngine {
+    /**
+     * Read the durable value stored under key
+     * @return Stored object or null if the key does not exist
+     */
+    Object read(String key) throws IOException;
+
+    /**
+     * Replace the value stored under key
+     */
+    void write(String key, Object value) throws IOException;
+
+    /**
+     * Record that element was appended to the list stored under key
+     * @param current The full list after the append, for engines that store whole values;
+     *                null allowed when recordsListDeltas(key) is true
+     */
+    void appendToList(String key, Object element, List<?> current) throws IOException;
+
+    /**
+     * Record that the list element with the given ID was replaced by element
+     */
+    void replaceInList(String key, long id, Object element, List<?> current) throws IOException;
+
+    /**
+     * Record that the list element with the given ID was removed
+     */
+    void removeFromList(String key, long id, List<?> current) throws IOException;
+
+    /**
+     * Check if list operations on key are recorded as deltas
+     * If so the list arguments are not used and callers may pass null for them.
+     */
+    default boolean recordsListDeltas(String key) {
+        return false;
+    }
+
+    /**
+     * Apply every write of the batch as one unit
+     * List changes carry the full list after the change in Op.current.
+     */
+    void commit(StorageBatch batch) throws IOException;
+
+    /**
+     * Remove the value stored under key
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Check if a value is stored under key
+     */
+    boolean exists(String key);
+
+    /**
+     * Flush pending writes and release file handles
+     */
+    void close() throws IOException;
+}
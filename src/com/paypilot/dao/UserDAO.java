@@ -1,7 +1,9 @@
 package com.paypilot.dao;
 
 import com.paypilot.model.User;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -40,6 +42,13 @@ public class UserDAO {
         return users.get(username);
     }
     
+    /**
+     * Names of all registered users
+     */
+    public List<String> getUsernames() {
+        return new ArrayList<>(loadUsers().keySet());
+    }
+    
     public boolean userExists(String username) {
         return loadUsers().containsKey(username);
     }
@@ -50,6 +59,13 @@ public class UserDAO {
         saveUsers(users);
     }
     
+    /**
+     * Keep the logged-in user's data pinned in the cache
+     */
+    public void setActiveUser(String username) {
+        dbManager.setActiveUser(username);
+    }
+    
     public void deleteUser(String username) {
         Map<String, User> users = loadUsers();
         users.remove(username);
@@ -0,0 +1,597 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Identifiable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * WriteBehindStorageEngine - Queues writes and applies them on a background thread
+ * Callers return as soon as the write is queued; DatabaseManager's cache already
+ * holds the new value, so the UI never waits for serialization or disk I/O.
+ *
+ * List operations are queued as deltas (the appended element, or the ID of
+ * the replaced or removed one); callers never copy the list. Writes to the
+ * same key are coalesced. Engines that record list deltas get the queued
+ * deltas as they are, several at once as one StorageBatch. Otherwise they
+ * collapse into one whole-value write of the list, which only the writer
+ * thread builds from the engine's value plus the deltas. The writer flushes after FLUSH_INTERVAL_MS or as soon as
+ * MAX_PENDING_KEYS keys are waiting, and close() drains the queue before the
+ * wrapped engine syncs and closes its files.
+ *
+ * A read that misses DatabaseManager's cache only waits for the queued write
+ * of its own key, which it applies itself, not for the whole queue.
+ *
+ * A StorageBatch is queued as one entry and handed to the wrapped engine's
+ * commit() in one piece. Writes to its keys that were still waiting are folded
+ * into it, so nothing older can be applied after it. Its list changes are
+ * queued as they are too; the writer thread builds the lists they leave
+ * behind, and only for engines that store whole values. A batch committed
+ * right after another, with nothing queued in between, joins it.
+ *
+ * Disable with -Dpaypilot.writeBehind=false
+ */
+public class WriteBehindStorageEngine implements StorageEngine {
+    private static final long FLUSH_INTERVAL_MS = 50;
+    private static final int MAX_PENDING_KEYS = 256;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final String BATCH_KEY_PREFIX = "\0batch-"; // Never a real key
+
+    private enum Kind { PUT, LIST, DELETE, BATCH }
+
+    private enum DeltaKind { APPEND, REPLACE, REMOVE }
+
+    /**
+     * One list operation as the caller made it
+     */
+    private static final class Delta {
+        final DeltaKind kind;
+        final Object element; // Appended or replacing element, null for REMOVE
+        final long id;
+
+        Delta(DeltaKind kind, Object element, long id) {
+            this.kind = kind;
+            this.element = element;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Latest pending operation for one key
+     */
+    private static final class Pending {
+        final Kind kind;
+        final Object element; // Value for PUT, QueuedBatch for BATCH, base list for LIST (null: the engine's)
+        final List<Delta> deltas; // For LIST; grows while the entry waits
+        final int attempts;
+
+        Pending(Kind kind, Object element, List<Delta> deltas) {
+            this(kind, element, deltas, 0);
+        }
+
+        Pending(Kind kind, Object element, List<Delta> deltas, int attempts) {
+            this.kind = kind;
+            this.element = element;
+            this.deltas = deltas;
+            this.attempts = attempts;
+        }
+
+        static Pending list(Delta delta) {
+            List<Delta> deltas = new ArrayList<>();
+            deltas.add(delta);
+            return new Pending(Kind.LIST, null, deltas);
+        }
+
+        Pending retried() {
+            return new Pending(kind, element, deltas, attempts + 1);
+        }
+    }
+
+    /**
+     * A batch as queued, plus the waiting writes to its keys it replaced
+     */
+    private static final class QueuedBatch {
+        final StorageBatch batch;
+        final Map<String, Pending> folded;
+
+        QueuedBatch(StorageBatch batch, Map<String, Pending> folded) {
+            this.batch = batch;
+            this.folded = folded;
+        }
+    }
+
+    private final StorageEngine delegate;
+    private final Object mutex = new Object();
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private final Thread writer;
+    private Map<String, Pending> inFlight = Collections.emptyMap(); // Taken by the writer, not applied yet
+    private boolean writing;
+    private int flushWaiters;
+    private boolean closed;
+    private long batches;
+
+    public WriteBehindStorageEngine(StorageEngine delegate) {
+        this.delegate = delegate;
+        this.writer = new Thread(this::writeLoop, "paypilot-write-behind");
+        writer.setDaemon(true); // The shutdown hook drains the queue through close()
+        writer.start();
+    }
+
+    // === STORAGE ENGINE ===
+
+    @Override
+    public Object read(String key) throws IOException {
+        synchronized (mutex) {
+            Pending op = pending.get(key);
+            if (op != null && op.kind == Kind.DELETE) {
+                return null;
+            }
+            flushKey(key); // Make sure the engine has every queued write for this key
+        }
+        return delegate.read(key);
+    }
+
+    @Override
+    public void write(String key, Object value) {
+        enqueue(key, new Pending(Kind.PUT, snapshotOf(value), null));
+    }
+
+    @Override
+    public void appendToList(String key, Object element, List<?> current) {
+        enqueue(key, Pending.list(new Delta(DeltaKind.APPEND, element, 0)));
+    }
+
+    @Override
+    public void replaceInList(String key, long id, Object element, List<?> current) {
+        enqueue(key, Pending.list(new Delta(DeltaKind.REPLACE, element, id)));
+    }
+
+    @Override
+    public void removeFromList(String key, long id, List<?> current) {
+        enqueue(key, Pending.list(new Delta(DeltaKind.REMOVE, null, id)));
+    }
+
+    /**
+     * Queue the batch as one entry; put values are copied now, like single
+     * writes, list changes are kept as they are
+     */
+    @Override
+    public void commit(StorageBatch batch) {
+        synchronized (mutex) {
+            Pending tail = lastPending();
+            boolean joins = tail != null && tail.kind == Kind.BATCH;
+            QueuedBatch queued = joins ? (QueuedBatch) tail.element : new QueuedBatch(new StorageBatch(), new HashMap<>());
+            for (StorageBatch.Op op : batch.getOps()) {
+                Pending older = pending.remove(op.key);
+                if (older != null) {
+                    queued.folded.putIfAbsent(op.key, older); // Queued before the batch it joins: it writes other keys
+                }
+                Object value = op.kind == StorageBatch.Kind.PUT ? snapshotOf(op.value) : op.value;
+                queued.batch.add(new StorageBatch.Op(op.kind, op.key, value));
+            }
+            if (!joins) {
+                enqueue(BATCH_KEY_PREFIX + (++batches), new Pending(Kind.BATCH, queued, null));
+            }
+        }
+    }
+
+    /**
+     * Most recently queued entry, or null; called with mutex held
+     */
+    private Pending lastPending() {
+        Pending last = null;
+        for (Pending queued : pending.values()) {
+            last = queued;
+        }
+        return last;
+    }
+
+    @Override
+    public void delete(String key) {
+        enqueue(key, new Pending(Kind.DELETE, null, null));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        synchronized (mutex) {
+            Pending op = pending.get(key);
+            if (op != null) {
+                return op.kind != Kind.DELETE; // Newer than any queued batch
+            }
+            if (batchWrites(pending, key)) {
+                return true;
+            }
+        }
+        return delegate.exists(key);
+    }
+
+    private static boolean batchWrites(Map<String, Pending> queue, String key) {
+        for (Pending queued : queue.values()) {
+            if (queued.kind == Kind.BATCH && writesKey(((QueuedBatch) queued.element).batch, key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean writesKey(StorageBatch batch, String key) {
+        for (StorageBatch.Op op : batch.getOps()) {
+            if (op.key.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drain the queue, then sync and close the wrapped engine
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (mutex) {
+            closed = true;
+            mutex.notifyAll();
+        }
+        if (Thread.currentThread() != writer) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        delegate.close();
+    }
+
+    // === FLUSH API ===
+
+    /**
+     * Block until every write queued before this call has reached the wrapped engine
+     */
+    public void flush() {
+        synchronized (mutex) {
+            if (Thread.currentThread() == writer) return;
+            flushWaiters++;
+            mutex.notifyAll();
+            try {
+                while ((!pending.isEmpty() || writing) && writer.isAlive()) {
+                    mutex.wait(FLUSH_INTERVAL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                flushWaiters--;
+            }
+        }
+    }
+
+    /**
+     * Apply the queued write for one key on the calling thread
+     * Waits while the writer holds an older write for the key, and drains the
+     * whole queue if a queued batch writes it, since that must land first.
+     * Called with mutex held.
+     */
+    private void flushKey(String key) {
+        if (Thread.currentThread() == writer) return;
+        try {
+            while (writing && (inFlight.containsKey(key) || batchWrites(inFlight, key)) && writer.isAlive()) {
+                mutex.wait(FLUSH_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (batchWrites(pending, key)) {
+            flush();
+            return;
+        }
+        Pending op = pending.remove(key);
+        if (op == null) {
+            return;
+        }
+        try {
+            apply(key, op);
+        } catch (IOException e) {
+            System.err.println("Error writing data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
+        } catch (RuntimeException e) {
+            if (op.attempts + 1 < MAX_ATTEMPTS) {
+                pending.put(key, op.retried()); // The writer tries again
+            } else {
+                System.err.println("Giving up writing data for key " + key + ": " + e);
+                e.printStackTrace();
+            }
+        }
+        mutex.notifyAll(); // The queue may be empty now
+    }
+
+    /**
+     * Wait until the queue is empty
+     * @return false if writes were still pending after timeoutMillis
+     */
+    public boolean awaitFlushed(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (mutex) {
+            try {
+                long remaining;
+                while ((!pending.isEmpty() || writing) && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    mutex.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pending.isEmpty() && !writing;
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (mutex) {
+            return pending.size();
+        }
+    }
+
+    // === QUEUE ===
+
+    private void enqueue(String key, Pending op) {
+        synchronized (mutex) {
+            if (closed && !writer.isAlive()) {
+                applyDirectly(key, op); // Late write after shutdown
+                return;
+            }
+            Pending previous = pending.remove(key); // Re-insert so keys stay in last-write order
+            pending.put(key, coalesce(previous, op));
+            if (pending.size() >= MAX_PENDING_KEYS) {
+                mutex.notifyAll();
+            } else if (previous == null && pending.size() == 1) {
+                mutex.notifyAll(); // Start the flush interval
+            }
+        }
+    }
+
+    /**
+     * Merge a new operation into the one already waiting for the same key
+     * Only queues deltas; the list they produce is built by materialize().
+     */
+    private static Pending coalesce(Pending previous, Pending op) {
+        if (previous == null || op.kind != Kind.LIST) {
+            return op;
+        }
+        switch (previous.kind) {
+            case LIST:
+                previous.deltas.addAll(op.deltas);
+                return previous;
+            case PUT:
+                return new Pending(Kind.LIST, previous.element, op.deltas, previous.attempts);
+            case DELETE:
+                return new Pending(Kind.LIST, new ArrayList<>(), op.deltas, previous.attempts);
+            default:
+                return op;
+        }
+    }
+
+    /**
+     * Build the list a LIST entry leaves behind; runs on the thread applying it
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> materialize(String key, Pending op) throws IOException {
+        Object base = op.element != null ? op.element : delegate.read(key);
+        List<Object> list = base != null ? new ArrayList<>((List<Object>) base) : new ArrayList<>();
+        for (Delta delta : op.deltas) {
+            switch (delta.kind) {
+                case APPEND:
+                    list.add(delta.element);
+                    break;
+                case REPLACE:
+                    replaceById(list, delta.id, delta.element);
+                    break;
+                case REMOVE:
+                    removeById(list, delta.id);
+                    break;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * The deltas as one batch of small list changes; runs of appends become one appendAll
+     */
+    private static StorageBatch changesOf(String key, List<Delta> deltas) {
+        StorageBatch changes = new StorageBatch();
+        List<Object> appended = new ArrayList<>();
+        for (Delta delta : deltas) {
+            if (delta.kind == DeltaKind.APPEND) {
+                appended.add(delta.element);
+                continue;
+            }
+            changes.appendAll(key, appended);
+            appended.clear();
+            if (delta.kind == DeltaKind.REPLACE) {
+                changes.replace(key, (Identifiable) delta.element);
+            } else {
+                changes.remove(key, delta.id);
+            }
+        }
+        return changes.appendAll(key, appended);
+    }
+
+    /**
+     * Build the batch the wrapped engine commits; runs on the writer thread
+     * A list change to a key with a folded write becomes a put of the whole
+     * list, since the engine never saw the older write. Changes to keys the
+     * engine stores whole get the list they leave behind in Op.current.
+     */
+    @SuppressWarnings("unchecked")
+    private StorageBatch resolve(QueuedBatch queued) throws IOException {
+        StorageBatch resolved = new StorageBatch();
+        Map<String, Pending> folded = new HashMap<>(queued.folded);
+        Map<String, List<Object>> lists = new HashMap<>(); // Value so far of keys written earlier in the batch
+        for (StorageBatch.Op op : queued.batch.getOps()) {
+            Pending older = folded.remove(op.key);
+            if (op.kind == StorageBatch.Kind.PUT) {
+                if (op.value instanceof List) {
+                    lists.put(op.key, (List<Object>) op.value);
+                } else {
+                    lists.remove(op.key);
+                }
+                resolved.add(op);
+                continue;
+            }
+            List<Object> base;
+            if (older != null) {
+                base = older.kind == Kind.LIST ? materialize(op.key, older)
+                     : older.kind == Kind.PUT ? (List<Object>) older.element : null;
+            } else if (lists.containsKey(op.key) || !delegate.recordsListDeltas(op.key)) {
+                base = lists.containsKey(op.key) ? lists.get(op.key) : (List<Object>) delegate.read(op.key);
+            } else {
+                resolved.add(op); // The engine applies the change to what it stores
+                continue;
+            }
+            List<Object> list = base != null ? new ArrayList<>(base) : new ArrayList<>();
+            switch (op.kind) {
+                case APPEND_ALL:
+                    list.addAll((List<Object>) op.value);
+                    break;
+                case REPLACE:
+                    replaceById(list, ((Identifiable) op.value).getId(), op.value);
+                    break;
+                default:
+                    removeById(list, (Long) op.value);
+                    break;
+            }
+            StorageBatch.Op copy = older != null
+                ? new StorageBatch.Op(StorageBatch.Kind.PUT, op.key, list)
+                : new StorageBatch.Op(op.kind, op.key, op.value);
+            copy.current = list;
+            lists.put(op.key, list);
+            resolved.add(copy);
+        }
+        return resolved;
+    }
+
+    private static void replaceById(List<Object> list, long id, Object element) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) instanceof Identifiable && ((Identifiable) list.get(i)).getId() == id) {
+                list.set(i, element);
+                return;
+            }
+        }
+    }
+
+    private static void removeById(List<Object> list, long id) {
+        list.removeIf(e -> e instanceof Identifiable && ((Identifiable) e).getId() == id);
+    }
+
+    /**
+     * Shallow copy of containers so later in-place edits to the cached value
+     * don't race with serialization on the writer thread
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object snapshotOf(Object value) {
+        if (value instanceof ArrayList) return new ArrayList<>((List) value);
+        if (value instanceof LinkedHashMap) return new LinkedHashMap<>((Map) value);
+        if (value instanceof HashMap) return new HashMap<>((Map) value);
+        if (value instanceof LinkedHashSet) return new LinkedHashSet<>((Set) value);
+        if (value instanceof HashSet) return new HashSet<>((Set) value);
+        return value;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Map<String, Pending> batch;
+            synchronized (mutex) {
+                try {
+                    while (pending.isEmpty() && !closed) {
+                        mutex.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        return; // Closed and drained
+                    }
+                    // Let more writes coalesce unless the size budget is hit or someone is waiting
+                    long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MS;
+                    long remaining;
+                    while (!closed && flushWaiters == 0 && pending.size() < MAX_PENDING_KEYS
+                            && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        mutex.wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    // Fall through and write what we have
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                inFlight = batch;
+                writing = true;
+            }
+
+            Map<String, Pending> retry = new LinkedHashMap<>();
+            for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+                try {
+                    apply(entry.getKey(), entry.getValue());
+                } catch (IOException e) {
+                    System.err.println("Error writing data for key " + entry.getKey() + ": " + e.getMessage());
+                    e.printStackTrace();
+                } catch (RuntimeException e) {
+                    // Usually the value was modified while being encoded; write it again next round
+                    Pending op = entry.getValue();
+                    // Batches hold copies, so they would fail again; a retry could also land after newer writes
+                    if (op.kind != Kind.BATCH && op.attempts + 1 < MAX_ATTEMPTS) {
+                        retry.put(entry.getKey(), op.retried());
+                    } else {
+                        System.err.println("Giving up writing data for key " + entry.getKey() + ": " + e);
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            synchronized (mutex) {
+                for (Map.Entry<String, Pending> entry : retry.entrySet()) {
+                    Pending newer = pending.get(entry.getKey());
+                    pending.put(entry.getKey(), newer == null ? entry.getValue() : coalesce(entry.getValue(), newer));
+                }
+                inFlight = Collections.emptyMap();
+                writing = false;
+                mutex.notifyAll();
+            }
+        }
+    }
+
+    private void apply(String key, Pending op) throws IOException {
+        switch (op.kind) {
+            case PUT:
+                delegate.write(key, op.element);
+                break;
+            case LIST:
+                if (op.element == null && op.deltas.size() > 1 && delegate.recordsListDeltas(key)) {
+                    delegate.commit(changesOf(key, op.deltas));
+                    break;
+                }
+                if (op.element != null || op.deltas.size() > 1) {
+                    delegate.write(key, materialize(key, op));
+                    break;
+                }
+                Delta delta = op.deltas.get(0);
+                List<?> current = delegate.recordsListDeltas(key) ? null : materialize(key, op);
+                if (delta.kind == DeltaKind.APPEND) {
+                    delegate.appendToList(key, delta.element, current);
+                } else if (delta.kind == DeltaKind.REPLACE) {
+                    delegate.replaceInList(key, delta.id, delta.element, current);
+                } else {
+                    delegate.removeFromList(key, delta.id, current);
+                }
+                break;
+            case DELETE:
+                delegate.delete(key);
+                break;
+            case BATCH:
+                delegate.commit(resolve((QueuedBatch) op.element));
+                break;
+        }
+    }
+
+    private void applyDirectly(String key, Pending op) {
+        try {
+            apply(key, op);
+        } catch (IOException e) {
+            System.err.println("Error writing data for key " + key + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
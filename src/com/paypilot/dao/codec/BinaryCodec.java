@@ -0,0 +1,445 @@
+package com.paypilot.dao.codec;
+
+import com.paypilot.model.Expense;
+import com.paypilot.model.Receipt;
+import com.paypilot.model.SharedExpense;
+import com.paypilot.model.SplitDetail;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BinaryCodec - Compact, versioned storage format for expenses
+ * Lists of Expense / SharedExpense (and single elements) are written in a
+ * hand-written binary layout; every other value falls back to Java
+ * serialization. decode() tells the two apart by the stream magic, so
+ * existing .dat files keep loading.
+ *
+ * Layout:  [int magic][byte version][byte kind][string table][varint count] record*
+ * Record:  [varint length] fields...
+ *
+ * Dates are zig-zag varint epoch days and amounts are zig-zag varint cents.
+ * Categories, usernames, group names and strategy types go through the
+ * string table and are written as varint indexes (0 = null).
+ * Schema evolution: new fields are only ever appended to a record. Readers
+ * skip trailing fields they don't know, and leave fields missing from
+ * older records at their defaults.
+ */
+public final class BinaryCodec {
+    private static final int MAGIC = 0x50505831; // "PPX1"
+    private static final int VERSION = 1;
+    private static final short JAVA_SERIALIZATION_MAGIC = (short) 0xACED;
+
+    private static final byte KIND_EXPENSE_LIST = 1;
+    private static final byte KIND_SHARED_EXPENSE_LIST = 2;
+    private static final byte KIND_EXPENSE = 3;
+    private static final byte KIND_SHARED_EXPENSE = 4;
+
+    private static final int FLAG_SPLIT = 1;
+    private static final int FLAG_RECEIPT = 2;
+
+    private BinaryCodec() {
+    }
+
+    // === PUBLIC API ===
+
+    /**
+     * Check if value is stored in the binary layout rather than Java serialization
+     */
+    public static boolean supports(Object value) {
+        return kindOf(value) != 0;
+    }
+
+    public static byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(bytes, value);
+        return bytes.toByteArray();
+    }
+
+    public static void write(OutputStream out, Object value) throws IOException {
+        byte kind = kindOf(value);
+        if (kind == 0) {
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(value);
+            oos.flush();
+            return;
+        }
+        out.write(encodeBinary(kind, value));
+    }
+
+    public static Object decode(byte[] bytes) throws IOException {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    public static Object decode(byte[] bytes, int offset, int length) throws IOException {
+        if (length >= 2 && (short) (((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF))
+                == JAVA_SERIALIZATION_MAGIC) {
+            try (ObjectInputStream ois = new ObjectInputStream(
+                    new ByteArrayInputStream(bytes, offset, length))) {
+                return ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown class in stored value", e);
+            }
+        }
+        return new Reader(bytes, offset, length).readValue();
+    }
+
+    public static Object read(InputStream in) throws IOException {
+        return decode(in.readAllBytes());
+    }
+
+    // === ENCODING ===
+
+    private static byte kindOf(Object value) {
+        if (value instanceof Expense) return KIND_EXPENSE;
+        if (value instanceof SharedExpense) return KIND_SHARED_EXPENSE;
+        if (!(value instanceof ArrayList) || ((List<?>) value).isEmpty()) return 0;
+
+        List<?> list = (List<?>) value;
+        Class<?> elementType = list.get(0) == null ? null : list.get(0).getClass();
+        if (elementType != Expense.class && elementType != SharedExpense.class) return 0;
+        for (Object element : list) {
+            if (element == null || element.getClass() != elementType) return 0;
+        }
+        return elementType == Expense.class ? KIND_EXPENSE_LIST : KIND_SHARED_EXPENSE_LIST;
+    }
+
+    private static byte[] encodeBinary(byte kind, Object value) throws IOException {
+        List<?> records = value instanceof List ? (List<?>) value : List.of(value);
+
+        Writer table = new Writer();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        Writer body = new Writer();
+        Writer record = new Writer();
+        for (Object element : records) {
+            record.reset();
+            if (element instanceof Expense) {
+                writeExpense(record, (Expense) element, dictionary, entries);
+            } else {
+                writeSharedExpense(record, (SharedExpense) element, dictionary, entries);
+            }
+            body.writeVarInt(record.size());
+            body.writeBytes(record);
+        }
+
+        table.writeVarInt(entries.size());
+        for (String entry : entries) {
+            table.writeString(entry);
+        }
+
+        Writer out = new Writer();
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeBytes(table);
+        if (kind == KIND_EXPENSE_LIST || kind == KIND_SHARED_EXPENSE_LIST) {
+            out.writeVarInt(records.size());
+        }
+        out.writeBytes(body);
+        return out.toByteArray();
+    }
+
+    private static void writeExpense(Writer out, Expense e, Map<String, Integer> dictionary, List<String> entries) {
+        out.writeFixedLong(e.getId());
+        out.writeVarInt(intern(e.getCategory(), dictionary, entries));
+        out.writeVarLong(zigZag(e.getAmountCents()));
+        out.writeString(e.getDescription());
+        out.writeVarLong(zigZag(e.getDate() == null ? Long.MIN_VALUE / 2 : e.getDate().toEpochDay()));
+        out.writeVarInt(intern(e.getUsername(), dictionary, entries));
+
+        List<SplitDetail> splits = e.getSplitDetails();
+        int flags = (e.isSplit() ? FLAG_SPLIT : 0) | (e.hasReceipt() ? FLAG_RECEIPT : 0);
+        out.writeVarInt(flags);
+        int splitCount = splits == null ? 0 : splits.size();
+        out.writeVarInt(splitCount);
+        for (int i = 0; i < splitCount; i++) {
+            SplitDetail split = splits.get(i);
+            out.writeVarInt(intern(split.getPersonName(), dictionary, entries));
+            out.writeVarLong(zigZag(split.getCents()));
+        }
+        if (e.hasReceipt()) {
+            Receipt receipt = e.getReceipt();
+            out.writeString(receipt.getFilePath());
+            out.writeString(receipt.getOriginalFileName());
+            out.writeVarLong(receipt.getFileSize());
+            out.writeVarInt(intern(receipt.getMimeType(), dictionary, entries));
+            out.writeString(receipt.getContentHash()); // Appended later; absent from older records
+        }
+    }
+
+    private static void writeSharedExpense(Writer out, SharedExpense e, Map<String, Integer> dictionary,
+                                           List<String> entries) {
+        out.writeVarInt(intern(e.getCategory(), dictionary, entries));
+        out.writeVarLong(zigZag(e.getTotalCents()));
+        out.writeString(e.getDescription());
+        out.writeVarLong(zigZag(e.getDate() == null ? Long.MIN_VALUE / 2 : e.getDate().toEpochDay()));
+        out.writeVarInt(intern(e.getPaidByUsername(), dictionary, entries));
+        out.writeVarInt(intern(e.getGroupName(), dictionary, entries));
+        out.writeVarInt(intern(e.getSplitStrategyType(), dictionary, entries));
+        List<String> participants = e.getParticipantUserIds();
+        int count = participants == null ? 0 : participants.size();
+        out.writeVarInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeVarInt(intern(participants.get(i), dictionary, entries));
+        }
+
+        // Appended field: [varint shareCount + 1] (0 = no shares stored), then name/cents pairs
+        List<SplitDetail> shares = e.getShares();
+        out.writeVarInt(shares == null ? 0 : shares.size() + 1);
+        if (shares != null) {
+            for (SplitDetail share : shares) {
+                out.writeVarInt(intern(share.getPersonName(), dictionary, entries));
+                out.writeVarLong(zigZag(share.getCents()));
+            }
+        }
+    }
+
+    /**
+     * @return 1-based string table index, 0 for null
+     */
+    private static int intern(String value, Map<String, Integer> dictionary, List<String> entries) {
+        if (value == null) return 0;
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            entries.add(value);
+            index = entries.size();
+            dictionary.put(value, index);
+        }
+        return index;
+    }
+
+    // === DECODING ===
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+        private final int end;
+        private String[] table;
+
+        Reader(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        Object readValue() throws IOException {
+            if (readInt() != MAGIC) {
+                throw new IOException("Not a PayPilot binary value");
+            }
+            int version = readByte();
+            if (version < 1) {
+                throw new IOException("Unsupported codec version " + version);
+            }
+            byte kind = (byte) readByte();
+
+            table = new String[readVarInt()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = readString();
+            }
+
+            switch (kind) {
+                case KIND_EXPENSE:
+                    return readRecord(true);
+                case KIND_SHARED_EXPENSE:
+                    return readRecord(false);
+                case KIND_EXPENSE_LIST:
+                case KIND_SHARED_EXPENSE_LIST: {
+                    int count = readVarInt();
+                    ArrayList<Object> list = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        list.add(readRecord(kind == KIND_EXPENSE_LIST));
+                    }
+                    return list;
+                }
+                default:
+                    throw new IOException("Unknown codec value kind " + kind);
+            }
+        }
+
+        private Object readRecord(boolean expense) throws IOException {
+            int length = readVarInt();
+            int recordEnd = pos + length;
+            if (recordEnd > end) {
+                throw new EOFException("Truncated expense record");
+            }
+            Object value = expense ? readExpense(recordEnd) : readSharedExpense(recordEnd);
+            pos = recordEnd; // Skip fields added by newer versions
+            return value;
+        }
+
+        private Expense readExpense(int recordEnd) throws IOException {
+            long id = readFixedLong();
+            String category = lookup(readVarInt());
+            long amountCents = unZigZag(readVarLong());
+            String description = readString();
+            LocalDate date = readDate();
+            String username = lookup(readVarInt());
+            Expense expense = new Expense(id, category, 0, description, date, username);
+            expense.setAmountCents(amountCents);
+
+            int flags = readVarInt();
+            expense.setSplit((flags & FLAG_SPLIT) != 0);
+            int splitCount = readVarInt();
+            ArrayList<SplitDetail> splits = new ArrayList<>(splitCount);
+            for (int i = 0; i < splitCount; i++) {
+                String person = lookup(readVarInt());
+                splits.add(SplitDetail.ofCents(person, unZigZag(readVarLong())));
+            }
+            expense.setSplitDetails(splits);
+            if ((flags & FLAG_RECEIPT) != 0 && pos < recordEnd) {
+                String filePath = readString();
+                String originalName = readString();
+                long fileSize = readVarLong();
+                String mimeType = lookup(readVarInt());
+                String contentHash = pos < recordEnd ? readString() : null;
+                expense.setReceipt(new Receipt(filePath, originalName, fileSize, mimeType, contentHash));
+            }
+            return expense;
+        }
+
+        private SharedExpense readSharedExpense(int recordEnd) throws IOException {
+            String category = lookup(readVarInt());
+            long totalCents = unZigZag(readVarLong());
+            String description = readString();
+            LocalDate date = readDate();
+            String paidBy = lookup(readVarInt());
+            String groupName = lookup(readVarInt());
+            SharedExpense expense = new SharedExpense(category, 0, description, date, paidBy, groupName);
+            expense.setTotalCents(totalCents);
+            expense.setSplitStrategyType(lookup(readVarInt()));
+            int count = readVarInt();
+            List<String> participants = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                participants.add(lookup(readVarInt()));
+            }
+            expense.setParticipantUserIds(participants);
+            if (pos < recordEnd) {
+                int shareCount = readVarInt() - 1;
+                if (shareCount >= 0) {
+                    List<SplitDetail> shares = new ArrayList<>(shareCount);
+                    for (int i = 0; i < shareCount; i++) {
+                        String person = lookup(readVarInt());
+                        shares.add(SplitDetail.ofCents(person, unZigZag(readVarLong())));
+                    }
+                    expense.setShares(shares);
+                }
+            }
+            return expense;
+        }
+
+        private LocalDate readDate() throws IOException {
+            long epochDay = unZigZag(readVarLong());
+            return epochDay == Long.MIN_VALUE / 2 ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        private String lookup(int index) throws IOException {
+            if (index == 0) return null;
+            if (index > table.length) {
+                throw new IOException("String table index out of range: " + index);
+            }
+            return table[index - 1];
+        }
+
+        private int readByte() throws IOException {
+            if (pos >= end) throw new EOFException("Truncated binary value");
+            return buf[pos++] & 0xFF;
+        }
+
+        private int readInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        private long readFixedLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        private int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt();
+            if (length == 0) return null;
+            length--;
+            if (pos + length > end) throw new EOFException("Truncated string");
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+
+    /**
+     * Growable byte buffer with varint helpers
+     */
+    private static final class Writer extends ByteArrayOutputStream {
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeFixedLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        /**
+         * Length-prefixed UTF-8; length is stored +1 so 0 can mean null
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeBytes(Writer other) {
+            write(other.buf, 0, other.count);
+        }
+    }
+
+    // === HELPERS ===
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
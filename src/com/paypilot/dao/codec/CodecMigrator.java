@@ -0,0 +1,68 @@
+package com.paypilot.dao.codec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * CodecMigrator - One-shot rewrite of Java-serialized .dat files into BinaryCodec format
+ * Files holding values the codec does not cover are left untouched.
+ * Each file is written to a temporary file first and then atomically moved into place.
+ *
+ * Usage: java com.paypilot.dao.codec.CodecMigrator [dataDir]
+ */
+public class CodecMigrator {
+
+    public static void main(String[] args) {
+        String dataDir = args.length > 0 ? args[0] : "data/";
+        try {
+            int migrated = migrateDirectory(new File(dataDir));
+            System.out.println("✓ Migrated " + migrated + " file(s) in " + dataDir);
+        } catch (IOException e) {
+            System.err.println("Migration failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Migrate every .dat file in the directory
+     * @return Number of files rewritten
+     */
+    public static int migrateDirectory(File dataDir) throws IOException {
+        File[] files = dataDir.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null) {
+            throw new IOException("Not a directory: " + dataDir);
+        }
+        int migrated = 0;
+        for (File file : files) {
+            if (migrateFile(file)) {
+                migrated++;
+            }
+        }
+        return migrated;
+    }
+
+    /**
+     * @return true if the file was rewritten
+     */
+    public static boolean migrateFile(File file) throws IOException {
+        byte[] original = Files.readAllBytes(file.toPath());
+        if (original.length < 2 || (original[0] & 0xFF) != 0xAC || (original[1] & 0xFF) != 0xED) {
+            return false; // Already binary (or not ours)
+        }
+        Object value = BinaryCodec.decode(original);
+        if (!BinaryCodec.supports(value)) {
+            return false;
+        }
+
+        byte[] encoded = BinaryCodec.encode(value);
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), encoded);
+        Files.move(tmp.toPath(), file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("  %-40s %,10d -> %,10d bytes%n", file.getName(), original.length, encoded.length);
+        return true;
+    }
+}
@@ -1,6 +1,9 @@
 package com.paypilot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,13 +15,13 @@ public class Budget implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private String username;
-    private double monthlyBudget;
-    private Map<String, Double> categoryBudgets; // Category -> Budget amount
+    private long monthlyBudgetCents;
+    private HashMap<String, Long> categoryBudgetCents; // Category -> Budget amount in cents
     
     public Budget(String username, double monthlyBudget) {
         this.username = username;
-        this.monthlyBudget = monthlyBudget;
-        this.categoryBudgets = new HashMap<>();
+        this.monthlyBudgetCents = Money.ofAmount(monthlyBudget);
+        this.categoryBudgetCents = new HashMap<>();
     }
     
     // Getters and Setters
@@ -31,31 +34,47 @@ public class Budget implements Serializable {
     }
     
     public double getMonthlyBudget() {
-        return monthlyBudget;
+        return Money.toAmount(monthlyBudgetCents);
     }
     
     public void setMonthlyBudget(double monthlyBudget) {
-        this.monthlyBudget = monthlyBudget;
+        this.monthlyBudgetCents = Money.ofAmount(monthlyBudget);
     }
     
-    public Map<String, Double> getCategoryBudgets() {
-        return categoryBudgets;
+    public long getMonthlyBudgetCents() {
+        return monthlyBudgetCents;
     }
     
-    public void setCategoryBudgets(Map<String, Double> categoryBudgets) {
-        this.categoryBudgets = categoryBudgets;
+    public void setMonthlyBudgetCents(long monthlyBudgetCents) {
+        this.monthlyBudgetCents = monthlyBudgetCents;
+    }
+    
+    /**
+     * Category budgets in cents (read-only view)
+     */
+    public Map<String, Long> getCategoryBudgetCents() {
+        return Collections.unmodifiableMap(categoryBudgetCents);
     }
     
     public void setCategoryBudget(String category, double amount) {
-        this.categoryBudgets.put(category, amount);
+        this.categoryBudgetCents.put(category, Money.ofAmount(amount));
+    }
+    
+    public void setCategoryBudgetCents(String category, long cents) {
+        this.categoryBudgetCents.put(category, cents);
     }
     
     public Double getCategoryBudget(String category) {
-        return categoryBudgets.get(category);
+        Long cents = categoryBudgetCents.get(category);
+        return cents != null ? Money.toAmount(cents) : null;
     }
     
     public void removeCategoryBudget(String category) {
-        categoryBudgets.remove(category);
+        categoryBudgetCents.remove(category);
+    }
+    
+    public void clearCategoryBudgets() {
+        categoryBudgetCents.clear();
     }
     
     /**
@@ -69,6 +88,11 @@ public class Budget implements Serializable {
         return (spent / budget) * 100.0;
     }
     
+    public static double calculatePercentage(long spentCents, long budgetCents) {
+        if (budgetCents <= 0) return 0;
+        return (spentCents * 100.0) / budgetCents;
+    }
+    
     /**
      * Get alert level based on percentage
      * @param percentage Spending percentage
@@ -79,4 +103,27 @@ public class Budget implements Serializable {
         if (percentage >= 80) return "WARNING";
         return "SAFE";
     }
+    
+    /**
+     * Read budgets saved while amounts were still doubles
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        username = (String) fields.get("username", null);
+        if (fields.getObjectStreamClass().getField("monthlyBudget") != null) {
+            monthlyBudgetCents = Money.ofAmount(fields.get("monthlyBudget", 0.0));
+            categoryBudgetCents = new HashMap<>();
+            Map<String, Double> legacy = (Map<String, Double>) fields.get("categoryBudgets", null);
+            if (legacy != null) {
+                legacy.forEach((category, amount) -> categoryBudgetCents.put(category, Money.ofAmount(amount)));
+            }
+        } else {
+            monthlyBudgetCents = fields.get("monthlyBudgetCents", 0L);
+            categoryBudgetCents = (HashMap<String, Long>) fields.get("categoryBudgetCents", null);
+        }
+        if (categoryBudgetCents == null) {
+            categoryBudgetCents = new HashMap<>();
+        }
+    }
 }
@@ -1,17 +1,21 @@
 package com.paypilot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.UUID;
 
 /**
  * Represents a personal expense
  */
-public class Expense implements Serializable {
+public class Expense implements Serializable, Identifiable {
     private static final long serialVersionUID = 1L;
     
+    private long id; // Stable identifier, 0 for expenses saved before IDs existed
     private String category;
-    private double amount;
+    private long amountCents;
     private String description;
     private LocalDate date;
     private String username;
@@ -20,8 +24,16 @@ public class Expense implements Serializable {
     private Receipt receipt; // Receipt attachment
 
     public Expense(String category, double amount, String description, LocalDate date, String username) {
+        this(generateId(), category, amount, description, date, username);
+    }
+    
+    /**
+     * Restore an expense with a known ID (used by the storage codec)
+     */
+    public Expense(long id, String category, double amount, String description, LocalDate date, String username) {
+        this.id = id;
         this.category = category;
-        this.amount = amount;
+        this.amountCents = Money.ofAmount(amount);
         this.description = description;
         this.date = date;
         this.username = username;
@@ -29,8 +41,43 @@ public class Expense implements Serializable {
         this.splitDetails = new ArrayList<>();
         this.receipt = null;
     }
+    
+    /**
+     * Copy constructor - the copy keeps the same ID, so it can replace the original
+     */
+    public Expense(Expense other) {
+        this.id = other.id;
+        this.category = other.category;
+        this.amountCents = other.amountCents;
+        this.description = other.description;
+        this.date = other.date;
+        this.username = other.username;
+        this.isSplit = other.isSplit;
+        this.splitDetails = other.splitDetails != null ? new ArrayList<>(other.splitDetails) : new ArrayList<>();
+        this.receipt = other.receipt;
+    }
+    
+    private static long generateId() {
+        return UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE;
+    }
 
     // Getters and Setters
+    @Override
+    public long getId() {
+        return id;
+    }
+    
+    public boolean hasId() {
+        return id != 0;
+    }
+    
+    /**
+     * Give a legacy expense (saved without an ID) a fresh one
+     */
+    public void assignNewId() {
+        this.id = generateId();
+    }
+
     public String getCategory() {
         return category;
     }
@@ -40,11 +87,19 @@ public class Expense implements Serializable {
     }
 
     public double getAmount() {
-        return amount;
+        return Money.toAmount(amountCents);
     }
 
     public void setAmount(double amount) {
-        this.amount = amount;
+        this.amountCents = Money.ofAmount(amount);
+    }
+    
+    public long getAmountCents() {
+        return amountCents;
+    }
+    
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
     }
 
     public String getDescription() {
@@ -98,4 +153,25 @@ public class Expense implements Serializable {
     public boolean hasReceipt() {
         return receipt != null;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Read expenses saved while the amount was still a double
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = fields.get("id", 0L);
+        category = (String) fields.get("category", null);
+        if (fields.getObjectStreamClass().getField("amount") != null) {
+            amountCents = Money.ofAmount(fields.get("amount", 0.0));
+        } else {
+            amountCents = fields.get("amountCents", 0L);
+        }
+        description = (String) fields.get("description", null);
+        date = (LocalDate) fields.get("date", null);
+        username = (String) fields.get("username", null);
+        isSplit = fields.get("isSplit", false);
+        splitDetails = (ArrayList<SplitDetail>) fields.get("splitDetails", null);
+        receipt = (Receipt) fields.get("receipt", null);
+    }
+}
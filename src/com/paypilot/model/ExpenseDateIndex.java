@@ -0,0 +1,239 @@
+package com.paypilot.model;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * ExpenseDateIndex - Immutable index of expenses ordered by date
+ * A sorted array of epoch days with the expenses in the same order, plus one
+ * such index per category (keyed case-insensitively), so a date range, with or
+ * without a category, is two binary searches and a sublist: O(log n + k).
+ *
+ * Each ExpenseSnapshot carries the index for its version. plus(), minus() and
+ * replace() return a new index with one arraycopy per array instead of
+ * re-sorting; expenses on the same day stay in insertion order. plusAll()
+ * merges a whole batch in one pass instead of copying once per expense.
+ */
+public final class ExpenseDateIndex {
+    private static final ExpenseDateIndex EMPTY = new ExpenseDateIndex(new long[0], new Expense[0], Collections.emptyMap());
+
+    private final long[] days;          // Epoch day of expenses[i], ascending
+    private final Expense[] expenses;
+    private final Map<String, ExpenseDateIndex> byCategory; // Empty inside a category's own index
+
+    private ExpenseDateIndex(long[] days, Expense[] expenses, Map<String, ExpenseDateIndex> byCategory) {
+        this.days = days;
+        this.expenses = expenses;
+        this.byCategory = byCategory;
+    }
+
+    public static ExpenseDateIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build from scratch: O(n log n)
+     */
+    public static ExpenseDateIndex of(Collection<Expense> all) {
+        Map<String, List<Expense>> groups = new HashMap<>();
+        for (Expense expense : all) {
+            groups.computeIfAbsent(categoryKey(expense.getCategory()), key -> new ArrayList<>()).add(expense);
+        }
+        Map<String, ExpenseDateIndex> byCategory = new HashMap<>();
+        groups.forEach((category, group) -> byCategory.put(category, sorted(group, Collections.emptyMap())));
+        return sorted(all, byCategory);
+    }
+
+    private static ExpenseDateIndex sorted(Collection<Expense> all, Map<String, ExpenseDateIndex> byCategory) {
+        Expense[] expenses = all.toArray(new Expense[0]);
+        Arrays.sort(expenses, Comparator.comparing(Expense::getDate)); // Stable: same-day order is kept
+        long[] days = new long[expenses.length];
+        for (int i = 0; i < expenses.length; i++) {
+            days[i] = expenses[i].getDate().toEpochDay();
+        }
+        return new ExpenseDateIndex(days, expenses, byCategory);
+    }
+
+    private static String categoryKey(String category) {
+        return category == null ? "" : category.toLowerCase(Locale.ROOT);
+    }
+
+    public int size() {
+        return expenses.length;
+    }
+
+    // === QUERIES ===
+
+    /**
+     * Expenses dated from..to, both inclusive, oldest first
+     * @return Read-only view; no copying
+     */
+    public List<Expense> between(LocalDate from, LocalDate to) {
+        int start = lowerBound(from.toEpochDay());
+        int end = lowerBound(to.toEpochDay() + 1);
+        if (start >= end) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(expenses).subList(start, end));
+    }
+
+    /**
+     * Expenses of one category (ignoring case) dated from..to, both inclusive
+     */
+    public List<Expense> between(LocalDate from, LocalDate to, String category) {
+        ExpenseDateIndex index = byCategory.get(categoryKey(category));
+        return index == null ? Collections.emptyList() : index.between(from, to);
+    }
+
+    /**
+     * All expenses, oldest first
+     */
+    public List<Expense> byDate() {
+        return Collections.unmodifiableList(Arrays.asList(expenses));
+    }
+
+    /**
+     * Sum of amounts dated from..to, both inclusive
+     */
+    public long sumCentsBetween(LocalDate from, LocalDate to) {
+        long total = 0;
+        for (Expense expense : between(from, to)) {
+            total += expense.getAmountCents();
+        }
+        return total;
+    }
+
+    /**
+     * First position whose day is >= day
+     */
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // === UPDATES ===
+
+    public ExpenseDateIndex plus(Expense expense) {
+        return insert(expense).withCategory(expense.getCategory(), category -> category.insert(expense));
+    }
+
+    /**
+     * Add many expenses at once: O(n + k log k) instead of k copies of the arrays
+     */
+    public ExpenseDateIndex plusAll(Collection<Expense> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        Map<String, List<Expense>> groups = new HashMap<>();
+        for (Expense expense : added) {
+            groups.computeIfAbsent(categoryKey(expense.getCategory()), key -> new ArrayList<>()).add(expense);
+        }
+        Map<String, ExpenseDateIndex> categories = new HashMap<>(byCategory);
+        groups.forEach((category, group) ->
+            categories.put(category, byCategory.getOrDefault(category, EMPTY).merge(group, Collections.emptyMap())));
+        return merge(added, categories);
+    }
+
+    /**
+     * Remove the expense with the same ID as the given one (which must carry its indexed date)
+     */
+    public ExpenseDateIndex minus(Expense expense) {
+        return remove(expense).withCategory(expense.getCategory(), category -> category.remove(expense));
+    }
+
+    public ExpenseDateIndex replace(Expense previous, Expense expense) {
+        return minus(previous).plus(expense);
+    }
+
+    private ExpenseDateIndex insert(Expense expense) {
+        long day = expense.getDate().toEpochDay();
+        int position = lowerBound(day + 1); // After all expenses of the same day
+        long[] newDays = new long[days.length + 1];
+        Expense[] newExpenses = new Expense[expenses.length + 1];
+        System.arraycopy(days, 0, newDays, 0, position);
+        System.arraycopy(expenses, 0, newExpenses, 0, position);
+        newDays[position] = day;
+        newExpenses[position] = expense;
+        System.arraycopy(days, position, newDays, position + 1, days.length - position);
+        System.arraycopy(expenses, position, newExpenses, position + 1, expenses.length - position);
+        return new ExpenseDateIndex(newDays, newExpenses, byCategory);
+    }
+
+    /**
+     * Merge sorted additions behind existing expenses of the same day
+     */
+    private ExpenseDateIndex merge(Collection<Expense> added, Map<String, ExpenseDateIndex> categories) {
+        ExpenseDateIndex additions = sorted(added, Collections.emptyMap());
+        int size = days.length + additions.days.length;
+        long[] newDays = new long[size];
+        Expense[] newExpenses = new Expense[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j >= additions.days.length || (i < days.length && days[i] <= additions.days[j])) {
+                newDays[k] = days[i];
+                newExpenses[k] = expenses[i++];
+            } else {
+                newDays[k] = additions.days[j];
+                newExpenses[k] = additions.expenses[j++];
+            }
+        }
+        return new ExpenseDateIndex(newDays, newExpenses, categories);
+    }
+
+    private ExpenseDateIndex remove(Expense expense) {
+        int position = positionOf(expense);
+        if (position < 0) {
+            return this; // Not indexed
+        }
+        long[] newDays = new long[days.length - 1];
+        Expense[] newExpenses = new Expense[expenses.length - 1];
+        System.arraycopy(days, 0, newDays, 0, position);
+        System.arraycopy(expenses, 0, newExpenses, 0, position);
+        System.arraycopy(days, position + 1, newDays, position, newDays.length - position);
+        System.arraycopy(expenses, position + 1, newExpenses, position, newExpenses.length - position);
+        return new ExpenseDateIndex(newDays, newExpenses, byCategory);
+    }
+
+    private int positionOf(Expense expense) {
+        long day = expense.getDate().toEpochDay();
+        for (int i = lowerBound(day); i < days.length && days[i] == day; i++) {
+            if (expenses[i].getId() == expense.getId()) {
+                return i;
+            }
+        }
+        // Date changed on the indexed object itself: fall back to a scan
+        for (int i = 0; i < expenses.length; i++) {
+            if (expenses[i].getId() == expense.getId()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ExpenseDateIndex withCategory(String category, UnaryOperator<ExpenseDateIndex> update) {
+        String key = categoryKey(category);
+        ExpenseDateIndex current = byCategory.getOrDefault(key, EMPTY);
+        ExpenseDateIndex updated = update.apply(current);
+        if (updated == current) {
+            return this;
+        }
+        Map<String, ExpenseDateIndex> categories = new HashMap<>(byCategory);
+        if (updated.size() == 0) {
+            categories.remove(key);
+        } else {
+            categories.put(key, updated);
+        }
+        return new ExpenseDateIndex(days, expenses, categories);
+    }
+}
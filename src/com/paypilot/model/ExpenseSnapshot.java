@@ -0,0 +1,70 @@
+package com.paypilot.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * ExpenseSnapshot - Immutable, versioned view of one user's expenses
+ * Published by ExpenseDAO after every change; readers share the same
+ * instance without copying and can skip work when the version they last
+ * saw is still current. Versions are unique and increase with every change.
+ * Each snapshot also carries the date index and spending rollup for its version.
+ */
+public final class ExpenseSnapshot {
+    private final long version;
+    private final PersistentList<Expense> expenses;
+    private final ExpenseDateIndex dateIndex;
+    private final SpendingRollup rollup;
+
+    public ExpenseSnapshot(long version, PersistentList<Expense> expenses, ExpenseDateIndex dateIndex,
+                           SpendingRollup rollup) {
+        this.version = version;
+        this.expenses = expenses;
+        this.dateIndex = dateIndex;
+        this.rollup = rollup;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Read-only list, in insertion order
+     */
+    public PersistentList<Expense> getExpenses() {
+        return expenses;
+    }
+
+    public ExpenseDateIndex getDateIndex() {
+        return dateIndex;
+    }
+
+    /**
+     * Period and category totals without touching the expenses
+     */
+    public SpendingRollup getRollup() {
+        return rollup;
+    }
+
+    /**
+     * Expenses dated from..to, both inclusive, oldest first: O(log n + k)
+     */
+    public List<Expense> between(LocalDate from, LocalDate to) {
+        return dateIndex.between(from, to);
+    }
+
+    /**
+     * Expenses of one category (ignoring case) dated from..to, both inclusive
+     */
+    public List<Expense> between(LocalDate from, LocalDate to, String category) {
+        return dateIndex.between(from, to, category);
+    }
+
+    public int size() {
+        return expenses.size();
+    }
+
+    public boolean isEmpty() {
+        return expenses.isEmpty();
+    }
+}
@@ -1,8 +1,12 @@
 package com.paypilot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Group Model - Represents an expense sharing group
@@ -13,28 +17,57 @@ public class Group implements Serializable {
     
     private String groupName;
     private String createdBy;
-    private List<String> members;
+    private LinkedHashSet<String> memberSet; // Insertion order kept for display
+    private List<String> members; // Only present in groups saved before memberSet existed
 
     // This is the constructor the Controller needs
     public Group(String groupName, String createdBy) {
         this.groupName = groupName;
         this.createdBy = createdBy;
-        this.members = new ArrayList<>();
-        this.members.add(createdBy); // Creator is automatically a member
+        this.memberSet = new LinkedHashSet<>();
+        this.memberSet.add(createdBy); // Creator is automatically a member
+    }
+
+    /**
+     * Copy a group so edits to the copy leave the original untouched
+     */
+    public Group(Group other) {
+        this.groupName = other.groupName;
+        this.createdBy = other.createdBy;
+        this.memberSet = new LinkedHashSet<>(other.memberSet);
     }
 
     // Getters and Setters
     public String getGroupName() { return groupName; }
     public String getCreatedBy() { return createdBy; }
-    public List<String> getMembers() { return members; }
+    public Set<String> getMembers() { return Collections.unmodifiableSet(memberSet); }
     
-    public void addMember(String username) {
-        if (!members.contains(username)) {
-            members.add(username);
-        }
+    public boolean isMember(String username) {
+        return memberSet.contains(username);
+    }
+    
+    /**
+     * @return true if the user was not already a member
+     */
+    public boolean addMember(String username) {
+        return memberSet.add(username);
+    }
+    
+    /**
+     * @return true if the user was a member
+     */
+    public boolean removeMember(String username) {
+        return memberSet.remove(username);
     }
     
-    public void removeMember(String username) {
-        members.remove(username);
+    /**
+     * Convert the member list of old saved groups
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (memberSet == null) {
+            memberSet = members != null ? new LinkedHashSet<>(members) : new LinkedHashSet<>();
+            members = null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.paypilot.model;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GroupLedger Model - Running net balance of every person in a group
+ * Positive balance means the person is owed money. Balances are kept in
+ * integer cents so applying expenses one by one gives exactly the same
+ * result as a rebuild from the raw expenses.
+ */
+public class GroupLedger implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private String groupName;
+    private HashMap<String, Long> balanceCents;
+    private int expenseCount;
+    
+    public GroupLedger(String groupName) {
+        this.groupName = groupName;
+        this.balanceCents = new HashMap<>();
+    }
+    
+    public GroupLedger(GroupLedger other) {
+        this.groupName = other.groupName;
+        this.balanceCents = new HashMap<>(other.balanceCents);
+        this.expenseCount = other.expenseCount;
+    }
+    
+    /**
+     * Credit the payer and debit each share - O(participants)
+     */
+    public void apply(String paidBy, long totalCents, List<SplitDetail> shares) {
+        balanceCents.merge(paidBy, totalCents, Long::sum);
+        for (SplitDetail share : shares) {
+            balanceCents.merge(share.getPersonName(), -share.getCents(), Long::sum);
+        }
+        expenseCount++;
+    }
+    
+    public String getGroupName() { return groupName; }
+    public int getExpenseCount() { return expenseCount; }
+    
+    public double getBalance(String person) {
+        return Money.toAmount(balanceCents.getOrDefault(person, 0L));
+    }
+    
+    public Map<String, Double> getBalances() {
+        Map<String, Double> balances = new HashMap<>();
+        for (Map.Entry<String, Long> entry : balanceCents.entrySet()) {
+            balances.put(entry.getKey(), Money.toAmount(entry.getValue()));
+        }
+        return balances;
+    }
+    
+    public Map<String, Long> getBalanceCents() {
+        return new HashMap<>(balanceCents);
+    }
+    
+    /**
+     * Check if two ledgers hold the same balances for the same number of expenses
+     */
+    public boolean sameBalances(GroupLedger other) {
+        if (other == null || expenseCount != other.expenseCount) return false;
+        Set<String> people = new HashSet<>(balanceCents.keySet());
+        people.addAll(other.balanceCents.keySet());
+        for (String person : people) {
+            if (!balanceCents.getOrDefault(person, 0L).equals(other.balanceCents.getOrDefault(person, 0L))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
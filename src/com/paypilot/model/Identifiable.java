@@ -0,0 +1,9 @@
+package com.paypilot.model;
+
+/**
+ * Identifiable - Model objects with a stable, persistent identifier
+ * Lets the data layer update or remove one element of a stored list by ID
+ */
+public interface Identifiable {
+    long getId();
+}
@@ -0,0 +1,105 @@
+package com.paypilot.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Money - Fixed-point helpers for amounts held as a long number of cents
+ * Amounts stay primitive longs so comparing, hashing and summing them are
+ * exact integer operations with no allocation; this class only converts,
+ * formats and divides them.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Convert a decimal amount to cents, rounding to the nearest cent
+     */
+    public static long ofAmount(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Parse user input such as "12.5" or "-3.999" exactly, rounding half up to cents
+     * @throws NumberFormatException if text is not a number
+     */
+    public static long parse(String text) {
+        return new BigDecimal(text.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Format as "$1234.56" / "-$0.05"
+     */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        return (cents < 0 ? "-$" : "$") + (abs / 100) + "." + (abs % 100 < 10 ? "0" : "") + (abs % 100);
+    }
+
+    /**
+     * Split a total into equal parts that add up exactly
+     * The first (total % parts) parts get one extra cent.
+     */
+    public static long[] split(long totalCents, int parts) {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("Cannot split into " + parts + " parts");
+        }
+        long[] shares = new long[parts];
+        long base = totalCents / parts;
+        long remainder = Math.abs(totalCents % parts);
+        long step = totalCents < 0 ? -1 : 1;
+        for (int i = 0; i < parts; i++) {
+            shares[i] = base + (i < remainder ? step : 0);
+        }
+        return shares;
+    }
+
+    /**
+     * Split a total in proportion to weights, largest-remainder method
+     * Every share is rounded down, then the leftover cents go one each to the
+     * shares with the largest fractional parts (ties: lower index first), so
+     * the result always adds up to the total and is deterministic.
+     */
+    public static long[] allocate(long totalCents, double[] weights) {
+        double totalWeight = 0;
+        for (double weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights cannot be negative");
+            }
+            totalWeight += weight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Total weight cannot be zero");
+        }
+
+        long magnitude = Math.abs(totalCents);
+        long[] shares = new long[weights.length];
+        double[] fractions = new double[weights.length];
+        long allocated = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double exact = magnitude * (weights[i] / totalWeight);
+            shares[i] = (long) Math.floor(exact);
+            fractions[i] = exact - shares[i];
+            allocated += shares[i];
+        }
+
+        Integer[] order = new Integer[weights.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> fractions[a] != fractions[b] ? Double.compare(fractions[b], fractions[a]) : a - b);
+        for (int i = 0; allocated < magnitude; i = (i + 1) % order.length) {
+            shares[order[i]]++;
+            allocated++;
+        }
+
+        if (totalCents < 0) {
+            for (int i = 0; i < shares.length; i++) shares[i] = -shares[i];
+        }
+        return shares;
+    }
+}
@@ -0,0 +1,178 @@
+package com.paypilot.model;
+
+import java.util.*;
+
+/**
+ * PersistentList - Immutable list with cheap modified copies
+ * A 32-way trie of leaf arrays plus a separate tail leaf, so plus() copies at
+ * most one 32-element tail and with() copies one path of the trie (log32 n
+ * arrays). Every version shares all untouched leaves with the version it was
+ * made from, which lets many readers hold different versions at no copying cost.
+ *
+ * The java.util.List mutators throw UnsupportedOperationException.
+ * minus() rebuilds the list; it is meant for rare deletes, not queues.
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] NO_ELEMENTS = new Object[0];
+    private static final PersistentList<?> EMPTY = new PersistentList<>(0, BITS, NO_ELEMENTS, NO_ELEMENTS);
+
+    private final int size;
+    private final int shift;     // Level of the root; leaves are level 0
+    private final Object[] root; // Branches hold Object[] children, leaves hold elements
+    private final Object[] tail; // Last 1..32 elements, outside the trie
+
+    private PersistentList(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    public static <E> PersistentList<E> of(Collection<? extends E> elements) {
+        Object[] all = elements.toArray();
+        if (all.length == 0) {
+            return empty();
+        }
+        int tailOffset = ((all.length - 1) >>> BITS) << BITS;
+        PersistentList<E> list = empty();
+        for (int start = 0; start < tailOffset; start += WIDTH) {
+            list = list.withLeaf(Arrays.copyOfRange(all, start, start + WIDTH), start + WIDTH, NO_ELEMENTS);
+        }
+        return new PersistentList<>(all.length, list.shift, list.root, Arrays.copyOfRange(all, tailOffset, all.length));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    /**
+     * @return Copy with element appended
+     */
+    public PersistentList<E> plus(E element) {
+        if (tail.length < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentList<>(size + 1, shift, root, newTail);
+        }
+        return withLeaf(tail, size + 1, new Object[]{element}); // Full tail moves into the trie
+    }
+
+    /**
+     * @return Copy with the element at index replaced
+     */
+    public PersistentList<E> with(int index, E element) {
+        Objects.checkIndex(index, size);
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentList<>(size, shift, root, newTail);
+        }
+        return new PersistentList<>(size, shift, replaced(shift, root, index, element), tail);
+    }
+
+    /**
+     * @return Copy without the element at index
+     */
+    public PersistentList<E> minus(int index) {
+        Objects.checkIndex(index, size);
+        List<E> rest = new ArrayList<>(this);
+        rest.remove(index);
+        return of(rest);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (leaf == null || (index & MASK) == 0) {
+                    leaf = leafFor(index); // Walk the trie once per 32 elements
+                }
+                return (E) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    private int tailOffset() {
+        return size - tail.length;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    /**
+     * Copy with a full leaf added to the end of the trie and a new tail
+     */
+    private PersistentList<E> withLeaf(Object[] leaf, int newSize, Object[] newTail) {
+        int treeSize = tailOffset();
+        if ((treeSize >>> BITS) >= (1 << shift)) { // Root is full: grow a level
+            Object[] newRoot = {root, pathTo(shift, leaf)};
+            return new PersistentList<>(newSize, shift + BITS, newRoot, newTail);
+        }
+        return new PersistentList<>(newSize, shift, appended(shift, root, treeSize, leaf), newTail);
+    }
+
+    private static Object[] appended(int level, Object[] node, int treeSize, Object[] leaf) {
+        int child = (treeSize >>> level) & MASK;
+        Object[] copy = Arrays.copyOf(node, child + 1);
+        if (level == BITS) {
+            copy[child] = leaf;
+        } else if (child < node.length) {
+            copy[child] = appended(level - BITS, (Object[]) node[child], treeSize, leaf);
+        } else {
+            copy[child] = pathTo(level - BITS, leaf);
+        }
+        return copy;
+    }
+
+    private static Object[] pathTo(int level, Object[] leaf) {
+        return level == 0 ? leaf : new Object[]{pathTo(level - BITS, leaf)};
+    }
+
+    private static Object[] replaced(int level, Object[] node, int index, Object element) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = replaced(level - BITS, (Object[]) node[child], index, element);
+        }
+        return copy;
+    }
+}
@@ -5,6 +5,8 @@ import java.io.Serializable;
 /**
  * Receipt - Represents a receipt attachment for an expense
  * Stores file path and metadata
+ * Receipts in the blob store also carry the SHA-256 of their content, which
+ * names the file and counts as one reference to it; older receipts have none.
  */
 public class Receipt implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -13,12 +15,18 @@ public class Receipt implements Serializable {
     private String originalFileName;
     private long fileSize;
     private String mimeType;
+    private String contentHash; // null for receipts copied before the blob store
     
     public Receipt(String filePath, String originalFileName, long fileSize, String mimeType) {
+        this(filePath, originalFileName, fileSize, mimeType, null);
+    }
+    
+    public Receipt(String filePath, String originalFileName, long fileSize, String mimeType, String contentHash) {
         this.filePath = filePath;
         this.originalFileName = originalFileName;
         this.fileSize = fileSize;
         this.mimeType = mimeType;
+        this.contentHash = contentHash;
     }
     
     // Getters and Setters
@@ -54,6 +62,13 @@ public class Receipt implements Serializable {
         this.mimeType = mimeType;
     }
     
+    /**
+     * @return Hex SHA-256 of the file, or null if it is not in the blob store
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+    
     /**
      * Get human-readable file size
      */
@@ -1,11 +1,20 @@
 package com.paypilot.model;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * RecurringExpense - Model for expenses that repeat automatically
  * Supports weekly, monthly, and custom interval recurrence
+ * Occurrences are counted from the last generated date, so the k-th one and
+ * the number due by any date are computed directly instead of stepping one at
+ * a time. A monthly rule clamped to the end of a short month returns to its
+ * start day afterwards.
  */
 public class RecurringExpense implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -26,7 +35,8 @@ public class RecurringExpense implements Serializable {
         }
     }
     
-    private int id;
+    private int id; // Hash of user, category and start date; only read from old saved rules
+    private long ruleId; // 0 in rules saved before it existed, see RecurringExpenseDAO
     private String username;
     private String category;
     private double amount;
@@ -49,26 +59,85 @@ public class RecurringExpense implements Serializable {
         this.startDate = startDate;
         this.lastGenerated = startDate;
         this.active = true;
-        this.id = generateId();
+        this.ruleId = newRuleId();
     }
     
-    private int generateId() {
-        return (username + category + startDate.toString()).hashCode();
+    /**
+     * Random non-zero rule ID; unlike a hash of the rule's fields two rules never share one
+     */
+    private static long newRuleId() {
+        long value;
+        do {
+            value = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        } while (value == 0);
+        return value;
+    }
+    
+    /**
+     * Give a rule saved before rule IDs existed its own ID
+     * @return false if the rule already had one
+     */
+    public boolean assignRuleIdIfMissing() {
+        if (ruleId != 0) {
+            return false;
+        }
+        ruleId = newRuleId();
+        return true;
     }
     
     /**
      * Calculate next occurrence date based on recurrence type
      */
     public LocalDate getNextOccurrence() {
+        return getOccurrence(1);
+    }
+    
+    /**
+     * Date of the k-th occurrence after the last generated one (k >= 1)
+     * Same dates as stepping one interval at a time from lastGenerated, except
+     * that a monthly rule does not stay stuck on the 28th after February.
+     */
+    public LocalDate getOccurrence(long k) {
+        switch (recurrenceType) {
+            case WEEKLY:
+                return lastGenerated.plusWeeks(k);
+            case MONTHLY:
+                YearMonth month = YearMonth.from(lastGenerated).plusMonths(k);
+                return month.atDay(Math.min(monthlyDay(), month.lengthOfMonth()));
+            case CUSTOM:
+                return lastGenerated.plusDays(k * customDays);
+            default:
+                return lastGenerated.plusDays(k);
+        }
+    }
+    
+    /**
+     * Day of month a monthly rule falls on: that of lastGenerated, or the start
+     * day if lastGenerated was clamped to the end of a shorter month
+     */
+    private int monthlyDay() {
+        int day = lastGenerated.getDayOfMonth();
+        boolean clamped = day == lastGenerated.lengthOfMonth() && startDate.getDayOfMonth() > day;
+        return clamped ? startDate.getDayOfMonth() : day;
+    }
+    
+    /**
+     * Number of occurrences not generated yet up to and including date
+     */
+    public long countDueThrough(LocalDate date) {
+        if (!date.isAfter(lastGenerated)) {
+            return 0;
+        }
         switch (recurrenceType) {
             case WEEKLY:
-                return lastGenerated.plusWeeks(1);
+                return ChronoUnit.DAYS.between(lastGenerated, date) / 7;
             case MONTHLY:
-                return lastGenerated.plusMonths(1);
+                long months = ChronoUnit.MONTHS.between(YearMonth.from(lastGenerated), YearMonth.from(date));
+                return getOccurrence(months).isAfter(date) ? months - 1 : months;
             case CUSTOM:
-                return lastGenerated.plusDays(customDays);
+                return customDays <= 0 ? 0 : ChronoUnit.DAYS.between(lastGenerated, date) / customDays;
             default:
-                return lastGenerated.plusDays(1);
+                return ChronoUnit.DAYS.between(lastGenerated, date);
         }
     }
     
@@ -76,23 +145,28 @@ public class RecurringExpense implements Serializable {
      * Check if expense should be generated today
      */
     public boolean shouldGenerateToday() {
-        if (!active) return false;
-        LocalDate today = LocalDate.now();
-        LocalDate nextDate = getNextOccurrence();
-        return !today.isBefore(nextDate);
+        return active && countDueThrough(LocalDate.now()) > 0;
     }
     
     /**
      * Create expense instance from this recurring template
+     * The ID depends only on this rule and the date, so generating the same
+     * occurrence twice yields the same expense rather than a duplicate.
      */
     public Expense createExpenseInstance(LocalDate date) {
-        Expense expense = new Expense(category, amount, description, date, username);
+        Expense expense = new Expense(occurrenceId(date), category, amount, description, date, username);
         return expense;
     }
     
+    private long occurrenceId(LocalDate date) {
+        byte[] name = ("recurring:" + username + ":" + ruleId + ":" + date).getBytes(StandardCharsets.UTF_8);
+        long bits = UUID.nameUUIDFromBytes(name).getMostSignificantBits() & Long.MAX_VALUE;
+        return bits == 0 ? 1 : bits; // 0 means "no ID yet"
+    }
+    
     // Getters and Setters
-    public int getId() {
-        return id;
+    public long getId() {
+        return ruleId;
     }
     
     public String getUsername() {
@@ -1,5 +1,7 @@
 package com.paypilot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -12,18 +14,19 @@ public class SharedExpense implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private String category;
-    private double totalAmount;
+    private long totalCents;
     private String description;
     private LocalDate date;
     private String paidByUsername;
     private String groupName;
     private List<String> participantUserIds;
     private String splitStrategyType;
+    private List<SplitDetail> shares; // Null for expenses saved before shares were stored
 
     public SharedExpense(String category, double totalAmount, String description, 
                         LocalDate date, String paidByUsername, String groupName) {
         this.category = category;
-        this.totalAmount = totalAmount;
+        this.totalCents = Money.ofAmount(totalAmount);
         this.description = description;
         this.date = date;
         this.paidByUsername = paidByUsername;
@@ -42,11 +45,19 @@ public class SharedExpense implements Serializable {
     }
 
     public double getTotalAmount() {
-        return totalAmount;
+        return Money.toAmount(totalCents);
     }
 
     public void setTotalAmount(double totalAmount) {
-        this.totalAmount = totalAmount;
+        this.totalCents = Money.ofAmount(totalAmount);
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
     }
 
     public String getDescription() {
@@ -96,4 +107,40 @@ public class SharedExpense implements Serializable {
     public void setSplitStrategyType(String splitStrategyType) {
         this.splitStrategyType = splitStrategyType;
     }
-}
\ No newline at end of file
+
+    /**
+     * Shares computed by the split strategy when the expense was added
+     */
+    public List<SplitDetail> getShares() {
+        return shares;
+    }
+
+    public void setShares(List<SplitDetail> shares) {
+        this.shares = shares;
+    }
+
+    public boolean hasShares() {
+        return shares != null;
+    }
+
+    /**
+     * Read expenses saved while the total was still a double
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        category = (String) fields.get("category", null);
+        if (fields.getObjectStreamClass().getField("totalAmount") != null) {
+            totalCents = Money.ofAmount(fields.get("totalAmount", 0.0));
+        } else {
+            totalCents = fields.get("totalCents", 0L);
+        }
+        description = (String) fields.get("description", null);
+        date = (LocalDate) fields.get("date", null);
+        paidByUsername = (String) fields.get("paidByUsername", null);
+        groupName = (String) fields.get("groupName", null);
+        participantUserIds = (List<String>) fields.get("participantUserIds", null);
+        splitStrategyType = (String) fields.get("splitStrategyType", null);
+        shares = (List<SplitDetail>) fields.get("shares", null);
+    }
+}
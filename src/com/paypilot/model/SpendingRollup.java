@@ -0,0 +1,291 @@
+package com.paypilot.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * SpendingRollup - Per-day spending totals with prefix sums, overall and per category
+ * Any period total (this month, budget-to-date, a category over the last year)
+ * is two binary searches and a subtraction, O(log d) for d days with spending,
+ * no matter how many expenses the history holds. Months are day ranges, so
+ * monthly series need no separate bucket.
+ *
+ * Immutable: plus(), minus() and replace() return an updated copy in O(d),
+ * independent of the number of expenses. ExpenseDAO keeps one per snapshot
+ * and saves it now and then. A saved copy carries a checksum of the expenses
+ * it sums, so matches() tells in one pass whether it can be used as is or must
+ * be rebuilt with of().
+ *
+ * It also counts expenses per category, so the list of categories in use
+ * never needs a scan of the expenses.
+ */
+public final class SpendingRollup implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final SpendingRollup EMPTY =
+        new SpendingRollup(0, DailySeries.EMPTY, Collections.emptyMap(), new TreeMap<>(), 0L);
+
+    private final int count;
+    private final DailySeries total;
+    private final Map<String, DailySeries> byCategory;
+    private final TreeMap<String, Integer> categoryCounts; // Null in rollups saved before it existed
+    private final Long checksum; // Sum of fingerprint() over the expenses; null in rollups saved before it existed
+
+    private SpendingRollup(int count, DailySeries total, Map<String, DailySeries> byCategory,
+                           TreeMap<String, Integer> categoryCounts, Long checksum) {
+        this.count = count;
+        this.total = total;
+        this.byCategory = byCategory;
+        this.categoryCounts = categoryCounts;
+        this.checksum = checksum;
+    }
+
+    public static SpendingRollup empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build from raw expenses: O(n log d)
+     */
+    public static SpendingRollup of(Collection<Expense> expenses) {
+        SortedMap<Long, Long> totals = new TreeMap<>();
+        Map<String, SortedMap<Long, Long>> categories = new HashMap<>();
+        TreeMap<String, Integer> categoryCounts = new TreeMap<>();
+        long checksum = 0;
+        for (Expense expense : expenses) {
+            checksum += fingerprint(expense);
+            long day = expense.getDate().toEpochDay();
+            totals.merge(day, expense.getAmountCents(), Long::sum);
+            categories.computeIfAbsent(expense.getCategory(), key -> new TreeMap<>())
+                .merge(day, expense.getAmountCents(), Long::sum);
+            categoryCounts.merge(expense.getCategory(), 1, Integer::sum);
+        }
+        Map<String, DailySeries> byCategory = new HashMap<>();
+        categories.forEach((category, days) -> byCategory.put(category, DailySeries.of(days)));
+        return new SpendingRollup(expenses.size(), DailySeries.of(totals), byCategory, categoryCounts, checksum);
+    }
+
+    /**
+     * Whether this rollup sums exactly these expenses: O(n), no sorting
+     * False for rollups saved before categories were counted or checksummed.
+     */
+    public boolean matches(Collection<Expense> expenses) {
+        if (categoryCounts == null || checksum == null || count != expenses.size()) {
+            return false;
+        }
+        long sum = 0;
+        for (Expense expense : expenses) {
+            sum += fingerprint(expense);
+        }
+        return sum == checksum;
+    }
+
+    /**
+     * Hash of everything the rollup depends on; summed, so order does not matter
+     */
+    private static long fingerprint(Expense expense) {
+        long h = expense.getId();
+        h = h * 31 + expense.getAmountCents();
+        h = h * 31 + expense.getDate().toEpochDay();
+        h = h * 31 + Objects.hashCode(expense.getCategory());
+        h ^= h >>> 33; // SplitMix64 finalizer: spreads similar expenses over all bits
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    // === QUERIES ===
+
+    public int getCount() { return count; }
+
+    /**
+     * Categories of at least one expense, sorted
+     */
+    public List<String> getCategories() {
+        return new ArrayList<>(categoryCounts.keySet());
+    }
+
+    public long getTotalCents() {
+        return total.sumBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Spending dated from..to, both inclusive
+     */
+    public long totalCentsBetween(LocalDate from, LocalDate to) {
+        return total.sumBetween(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Spending of one category dated from..to, both inclusive
+     */
+    public long categoryCentsBetween(LocalDate from, LocalDate to, String category) {
+        DailySeries series = byCategory.get(category);
+        return series == null ? 0 : series.sumBetween(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Spending per category dated from..to; categories without spending are left out
+     */
+    public Map<String, Long> categoryTotalsBetween(LocalDate from, LocalDate to) {
+        Map<String, Long> totals = new HashMap<>();
+        byCategory.forEach((category, series) -> {
+            long cents = series.sumBetween(from.toEpochDay(), to.toEpochDay());
+            if (cents != 0) {
+                totals.put(category, cents);
+            }
+        });
+        return totals;
+    }
+
+    /**
+     * Spending per month from..to, both inclusive, months without spending as zero
+     * @param category Category to total, or null for all
+     */
+    public Map<YearMonth, Long> monthlyTotals(YearMonth from, YearMonth to, String category) {
+        DailySeries series = category == null ? total : byCategory.getOrDefault(category, DailySeries.EMPTY);
+        Map<YearMonth, Long> months = new LinkedHashMap<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            months.put(month, series.sumBetween(month.atDay(1).toEpochDay(), month.atEndOfMonth().toEpochDay()));
+        }
+        return months;
+    }
+
+    /**
+     * Spending per day, oldest first; days without spending are left out
+     */
+    public SortedMap<LocalDate, Long> dailyTotals() {
+        return dailyTotals(LocalDate.MIN, LocalDate.MAX, null);
+    }
+
+    /**
+     * Spending per day dated from..to, both inclusive, oldest first: O(log d + k)
+     * @param category Category to total, or null for all
+     */
+    public SortedMap<LocalDate, Long> dailyTotals(LocalDate from, LocalDate to, String category) {
+        DailySeries series = category == null ? total : byCategory.getOrDefault(category, DailySeries.EMPTY);
+        SortedMap<LocalDate, Long> days = new TreeMap<>();
+        int end = series.lowerBound(to.toEpochDay() + 1);
+        for (int i = series.lowerBound(from.toEpochDay()); i < end; i++) {
+            days.put(LocalDate.ofEpochDay(series.days[i]), series.prefix[i + 1] - series.prefix[i]);
+        }
+        return days;
+    }
+
+    // === UPDATES ===
+
+    public SpendingRollup plus(Expense expense) {
+        return add(expense, 1, expense.getAmountCents(), fingerprint(expense));
+    }
+
+    public SpendingRollup minus(Expense expense) {
+        return add(expense, -1, -expense.getAmountCents(), -fingerprint(expense));
+    }
+
+    public SpendingRollup replace(Expense previous, Expense expense) {
+        return minus(previous).plus(expense);
+    }
+
+    private SpendingRollup add(Expense expense, int countDelta, long cents, long fingerprint) {
+        long day = expense.getDate().toEpochDay();
+        Map<String, DailySeries> categories = new HashMap<>(byCategory);
+        DailySeries series = categories.getOrDefault(expense.getCategory(), DailySeries.EMPTY).add(day, cents);
+        if (series.days.length == 0) {
+            categories.remove(expense.getCategory());
+        } else {
+            categories.put(expense.getCategory(), series);
+        }
+        TreeMap<String, Integer> counts = new TreeMap<>(categoryCounts);
+        if (counts.merge(expense.getCategory(), countDelta, Integer::sum) == 0) {
+            counts.remove(expense.getCategory());
+        }
+        Long sum = checksum == null ? null : checksum + fingerprint;
+        return new SpendingRollup(count + countDelta, total.add(day, cents), categories, counts, sum);
+    }
+
+    /**
+     * Distinct days with spending, ascending, and prefix sums of their totals:
+     * prefix[i] is the spending of days[0..i-1]
+     */
+    private static final class DailySeries implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static final DailySeries EMPTY = new DailySeries(new long[0], new long[1]);
+
+        final long[] days;
+        final long[] prefix;
+
+        DailySeries(long[] days, long[] prefix) {
+            this.days = days;
+            this.prefix = prefix;
+        }
+
+        static DailySeries of(SortedMap<Long, Long> dayTotals) {
+            long[] days = new long[dayTotals.size()];
+            long[] prefix = new long[days.length + 1];
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : dayTotals.entrySet()) {
+                days[i] = entry.getKey();
+                prefix[i + 1] = prefix[i] + entry.getValue();
+                i++;
+            }
+            return new DailySeries(days, prefix);
+        }
+
+        long sumBetween(long fromDay, long toDay) {
+            int start = lowerBound(fromDay);
+            int end = toDay == Long.MAX_VALUE ? days.length : lowerBound(toDay + 1);
+            return end > start ? prefix[end] - prefix[start] : 0;
+        }
+
+        /**
+         * Copy with cents added to one day; a day whose total drops to zero is removed
+         */
+        DailySeries add(long day, long cents) {
+            if (cents == 0) {
+                return this;
+            }
+            int position = lowerBound(day);
+            boolean exists = position < days.length && days[position] == day;
+            long updated = (exists ? prefix[position + 1] - prefix[position] : 0) + cents;
+            long[] newDays;
+            int shift; // newPrefix[i + 1] = prefix[i + shift] + cents from position on
+            if (!exists) {
+                newDays = new long[days.length + 1];
+                System.arraycopy(days, 0, newDays, 0, position);
+                newDays[position] = day;
+                System.arraycopy(days, position, newDays, position + 1, days.length - position);
+                shift = 0;
+            } else if (updated == 0) {
+                newDays = new long[days.length - 1];
+                System.arraycopy(days, 0, newDays, 0, position);
+                System.arraycopy(days, position + 1, newDays, position, newDays.length - position);
+                shift = 2;
+            } else {
+                newDays = days; // Same days: share the array
+                shift = 1;
+            }
+            long[] newPrefix = new long[newDays.length + 1];
+            System.arraycopy(prefix, 0, newPrefix, 0, position + 1); // Earlier days are unchanged
+            for (int i = position; i < newDays.length; i++) {
+                newPrefix[i + 1] = prefix[i + shift] + cents;
+            }
+            return new DailySeries(newDays, newPrefix);
+        }
+
+        private int lowerBound(long day) {
+            int low = 0;
+            int high = days.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (days[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.paypilot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
@@ -9,11 +11,17 @@ public class SplitDetail implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private String personName;
-    private double amount;
+    private long cents;
 
     public SplitDetail(String personName, double amount) {
         this.personName = personName;
-        this.amount = amount;
+        this.cents = Money.ofAmount(amount);
+    }
+    
+    public static SplitDetail ofCents(String personName, long cents) {
+        SplitDetail detail = new SplitDetail(personName, 0);
+        detail.cents = cents;
+        return detail;
     }
 
     // Getters and Setters
@@ -26,10 +34,31 @@ public class SplitDetail implements Serializable {
     }
 
     public double getAmount() {
-        return amount;
+        return Money.toAmount(cents);
     }
 
     public void setAmount(double amount) {
-        this.amount = amount;
+        this.cents = Money.ofAmount(amount);
+    }
+    
+    public long getCents() {
+        return cents;
+    }
+    
+    public void setCents(long cents) {
+        this.cents = cents;
+    }
+    
+    /**
+     * Read shares saved while the amount was still a double
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        personName = (String) fields.get("personName", null);
+        if (fields.getObjectStreamClass().getField("amount") != null) {
+            cents = Money.ofAmount(fields.get("amount", 0.0));
+        } else {
+            cents = fields.get("cents", 0L);
+        }
     }
-}
\ No newline at end of file
+}
@@ -288,7 +288,11 @@ public class AddExpenseForm extends JDialog {
             if(cat.isEmpty() || amt <= 0) throw new IllegalArgumentException();
             
             if(expense == null) expense = new Expense(cat, amt, desc, LocalDate.now(), username);
-            else { expense.setCategory(cat); expense.setAmount(amt); expense.setDescription(desc); }
+            else {
+                // Edit a copy with the same ID so the original stays intact for undo
+                expense = new Expense(expense);
+                expense.setCategory(cat); expense.setAmount(amt); expense.setDescription(desc);
+            }
             
             expense.setSplit(isSplitMode);
             if(isSplitMode) expense.setSplitDetails(splitDetails);
@@ -307,34 +311,22 @@ public class AddExpenseForm extends JDialog {
     
     private void saveReceiptForExpense(Expense expense) {
         try {
-            // Create receipts directory
-            java.io.File receiptsDir = new java.io.File("data/receipts");
-            if (!receiptsDir.exists()) {
-                receiptsDir.mkdirs();
-            }
-            
-            // Generate unique ID for expense receipt
-            String expenseId = String.valueOf(System.currentTimeMillis());
             java.io.File sourceFile = new java.io.File(receiptFilePath);
-            String extension = receiptFilePath.substring(receiptFilePath.lastIndexOf('.'));
+            int dot = receiptFilePath.lastIndexOf('.');
+            String mimeType = dot < 0 ? null : "image/" + receiptFilePath.substring(dot + 1).toLowerCase();
             
-            // Copy file to receipts directory
-            java.io.File destFile = new java.io.File(receiptsDir, expenseId + extension);
-            java.nio.file.Files.copy(sourceFile.toPath(), destFile.toPath(), 
-                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            
-            // Create receipt object
-            com.paypilot.model.Receipt receipt = new com.paypilot.model.Receipt(
-                destFile.getAbsolutePath(),
-                sourceFile.getName(),
-                sourceFile.length(),
-                "image/" + extension.substring(1)
-            );
+            // Stored once per content, so attaching the same file again costs no disk space
+            com.paypilot.model.Receipt receipt = com.paypilot.dao.ReceiptBlobStore.getInstance()
+                .store(sourceFile, sourceFile.getName(), mimeType);
             
             expense.setReceipt(receipt);
             
+            // Thumbnail and zoom levels, so the viewer never scales the full photo
+            com.paypilot.dao.ReceiptImageStore.getInstance().buildPyramidInBackground(receipt.getFilePath());
+            
         } catch (Exception e) {
             System.err.println("Error saving receipt: " + e.getMessage());
+            e.printStackTrace();
         }
     }
     
@@ -0,0 +1,104 @@
+package com.paypilot.view;
+
+import javax.swing.SwingWorker;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * BackgroundLoader - Loads data off the EDT and hands the result back on the EDT
+ * All loaders share one small pool of daemon threads, so opening several
+ * panels at once never runs more than POOL_SIZE loads in parallel. A loader
+ * keeps at most one load in flight: starting another cancels the previous
+ * one and drops its result, so quickly changing a selection only ever shows
+ * the last choice. Show a placeholder before calling load(); the callback
+ * replaces it.
+ *
+ * load(), cancel() and the callbacks all run on the EDT.
+ */
+public final class BackgroundLoader<T> {
+    public static final String PLACEHOLDER = "Loading…";
+
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private final String description; // For error messages
+    private SwingWorker<T, Void> current;
+
+    public BackgroundLoader(String description) {
+        this.description = description;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "paypilot-loader-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Run task in the background and pass its result to onLoaded on the EDT
+     * Failures are logged and otherwise ignored.
+     */
+    public void load(Callable<T> task, Consumer<T> onLoaded) {
+        load(task, onLoaded, null);
+    }
+
+    /**
+     * @param onFailed Called on the EDT with the task's exception; null to only log it
+     */
+    public void load(Callable<T> task, Consumer<T> onLoaded, Consumer<Throwable> onFailed) {
+        cancel();
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                if (current != this) {
+                    return; // Cancelled or superseded by a newer load
+                }
+                current = null;
+                try {
+                    onLoaded.accept(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    System.err.println("Error loading " + description + ": " + cause.getMessage());
+                    cause.printStackTrace();
+                    if (onFailed != null) {
+                        onFailed.accept(cause);
+                    }
+                }
+            }
+        };
+        current = worker;
+        executor.execute(worker);
+    }
+
+    /**
+     * Drop the load in flight, if any; a load that already started still runs to completion
+     */
+    public void cancel() {
+        if (current == null) {
+            return;
+        }
+        SwingWorker<T, Void> worker = current;
+        current = null;
+        executor.remove(worker); // Never started: don't run it at all
+        // No interrupt: an interrupted FileChannel closes, which would break the storage log
+        worker.cancel(false);
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+}
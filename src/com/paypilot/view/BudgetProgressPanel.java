@@ -17,6 +17,9 @@ public class BudgetProgressPanel extends JPanel {
     
     private BudgetStatus budgetStatus;
     
+    /**
+     * @param budgetStatus null while it is still loading
+     */
     public BudgetProgressPanel(BudgetStatus budgetStatus) {
         this.budgetStatus = budgetStatus;
         
@@ -36,6 +39,15 @@ public class BudgetProgressPanel extends JPanel {
         add(titleLabel);
         add(Box.createVerticalStrut(15));
         
+        if (budgetStatus == null) {
+            JLabel loadingLabel = new JLabel(BackgroundLoader.PLACEHOLDER);
+            loadingLabel.setFont(UITheme.FONT_REGULAR);
+            loadingLabel.setForeground(UITheme.TEXT_MUTED);
+            loadingLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            add(loadingLabel);
+            return;
+        }
+        
         // Overall budget progress
         if (budgetStatus.budget.getMonthlyBudget() > 0) {
             add(createOverallBudgetSection());
@@ -2,6 +2,7 @@ package com.paypilot.view;
 
 import com.paypilot.controller.BudgetManager;
 import com.paypilot.model.Budget;
+import com.paypilot.model.Money;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
@@ -25,12 +26,14 @@ public class BudgetSettingsDialog extends JDialog {
     private JTable categoryTable;
     private JTextField newCategoryField;
     private JTextField newAmountField;
+    private JButton addBtn;
+    private JButton saveBtn;
+    private final BackgroundLoader<Budget> budgetLoader = new BackgroundLoader<>("budget");
     
     public BudgetSettingsDialog(Window parent, String username, BudgetManager budgetManager) {
         super(parent, "Budget Settings", ModalityType.APPLICATION_MODAL);
         this.username = username;
         this.budgetManager = budgetManager;
-        this.budget = budgetManager.getBudget(username);
         
         initializeUI();
         loadBudgetData();
@@ -73,7 +76,7 @@ public class BudgetSettingsDialog extends JDialog {
         JButton cancelBtn = UITheme.createSecondaryButton("Cancel");
         cancelBtn.addActionListener(e -> dispose());
         
-        JButton saveBtn = UITheme.createPrimaryButton("Save");
+        saveBtn = UITheme.createPrimaryButton("Save");
         saveBtn.addActionListener(e -> saveBudget());
         
         footerPanel.add(cancelBtn);
@@ -178,7 +181,7 @@ public class BudgetSettingsDialog extends JDialog {
         JLabel amountLabel = new JLabel("Amount:");
         amountLabel.setFont(UITheme.FONT_REGULAR);
         
-        JButton addBtn = UITheme.createSecondaryButton("Add");
+        addBtn = UITheme.createSecondaryButton("Add");
         addBtn.addActionListener(e -> addCategoryBudget());
         
         addPanel.add(categoryLabel);
@@ -192,26 +195,52 @@ public class BudgetSettingsDialog extends JDialog {
         return panel;
     }
     
+    /**
+     * Load the budget in the background; the form stays disabled until it arrives
+     */
     private void loadBudgetData() {
+        setFormEnabled(false);
+        monthlyBudgetField.setText(BackgroundLoader.PLACEHOLDER);
+        budgetLoader.load(() -> budgetManager.getBudget(username), this::showBudget, error -> {
+            UITheme.showMessage(this, "Could not load budget: " + error.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+            dispose();
+        });
+    }
+    
+    private void showBudget(Budget loaded) {
+        budget = loaded;
+        monthlyBudgetField.setText("");
+        setFormEnabled(true);
+        
         // Load monthly budget
         if (budget.getMonthlyBudget() > 0) {
             monthlyBudgetField.setText(String.valueOf(budget.getMonthlyBudget()));
         }
         
         // Load category budgets
-        for (Map.Entry<String, Double> entry : budget.getCategoryBudgets().entrySet()) {
+        for (Map.Entry<String, Long> entry : budget.getCategoryBudgetCents().entrySet()) {
             categoryTableModel.addRow(new Object[]{
                 entry.getKey(),
-                String.format("$%.2f", entry.getValue()),
+                Money.format(entry.getValue()),
                 "Delete"
             });
         }
     }
     
+    private void setFormEnabled(boolean enabled) {
+        monthlyBudgetField.setEnabled(enabled);
+        categoryTable.setEnabled(enabled);
+        newCategoryField.setEnabled(enabled);
+        newAmountField.setEnabled(enabled);
+        addBtn.setEnabled(enabled);
+        saveBtn.setEnabled(enabled);
+    }
+    
     private void addCategoryBudget() {
         try {
             String category = newCategoryField.getText().trim();
-            double amount = Double.parseDouble(newAmountField.getText().trim());
+            long amount = Money.parse(newAmountField.getText());
             
             if (category.isEmpty() || amount <= 0) {
                 throw new IllegalArgumentException("Invalid input");
@@ -219,7 +248,7 @@ public class BudgetSettingsDialog extends JDialog {
             
             categoryTableModel.addRow(new Object[]{
                 category,
-                String.format("$%.2f", amount),
+                Money.format(amount),
                 "Delete"
             });
             
@@ -236,16 +265,16 @@ public class BudgetSettingsDialog extends JDialog {
         try {
             // Save monthly budget
             String monthlyText = monthlyBudgetField.getText().trim();
-            double monthlyBudget = monthlyText.isEmpty() ? 0 : Double.parseDouble(monthlyText);
-            budget.setMonthlyBudget(monthlyBudget);
+            long monthlyBudget = monthlyText.isEmpty() ? 0 : Money.parse(monthlyText);
+            budget.setMonthlyBudgetCents(monthlyBudget);
             
             // Save category budgets
-            budget.getCategoryBudgets().clear();
+            budget.clearCategoryBudgets();
             for (int i = 0; i < categoryTableModel.getRowCount(); i++) {
                 String category = (String) categoryTableModel.getValueAt(i, 0);
                 String amountStr = (String) categoryTableModel.getValueAt(i, 1);
-                double amount = Double.parseDouble(amountStr.replace("$", "").trim());
-                budget.setCategoryBudget(category, amount);
+                long amount = Money.parse(amountStr.replace("$", ""));
+                budget.setCategoryBudgetCents(category, amount);
             }
             
             budgetManager.saveBudget(budget);
@@ -260,6 +289,12 @@ public class BudgetSettingsDialog extends JDialog {
         }
     }
     
+    @Override
+    public void dispose() {
+        budgetLoader.cancel();
+        super.dispose();
+    }
+    
     public boolean isSucceeded() {
         return succeeded;
     }
@@ -1,30 +1,50 @@
 package com.paypilot.view;
 
 import com.paypilot.controller.ExpenseManager;
-import com.paypilot.model.Expense;
+import com.paypilot.controller.event.ChangeListener;
+import com.paypilot.controller.event.EventBus;
+import com.paypilot.controller.event.ExpenseEvent;
+import com.paypilot.controller.report.ExpenseAggregates;
+import com.paypilot.model.ExpenseSnapshot;
+import com.paypilot.model.Money;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.List;
 
 /**
  * ChartsDashboardPanel - Visual analytics dashboard with charts
- * Displays pie chart, bar chart, and line chart for expense analysis
+ * Displays pie chart, bar chart, and line chart for expense analysis.
+ * Aggregates are computed in the background when the data changes; painting
+ * only draws them (from a cached image per chart).
  */
 public class ChartsDashboardPanel extends JPanel {
     private static final long serialVersionUID = 1L;
+    private static final Color[] PIE_COLORS = {
+        new Color(99, 102, 241),   // Indigo
+        new Color(16, 185, 129),   // Green
+        new Color(239, 68, 68),    // Red
+        new Color(251, 191, 36),   // Yellow
+        new Color(139, 92, 246),   // Purple
+        new Color(236, 72, 153),   // Pink
+        new Color(20, 184, 166),   // Teal
+        new Color(249, 115, 22)    // Orange
+    };
     
     private String currentUser;
     private ExpenseManager expenseManager;
-    private ArrayList<Expense> expenses;
+    private transient ExpenseAggregates aggregates; // null until the first computation finishes
+    private final transient BackgroundLoader<ExpenseAggregates> aggregatesLoader = new BackgroundLoader<>("chart data");
+    private JLabel totalValue, averageValue, highestValue, countValue;
+    private final ChangeListener<ExpenseEvent> expenseListener = events -> refreshData(); // Once per EDT frame
     
     public ChartsDashboardPanel(String username, ExpenseManager expenseManager) {
         this.currentUser = username;
         this.expenseManager = expenseManager;
-        this.expenses = new ArrayList<>();
         
         setBackground(UITheme.BG_COLOR);
         setLayout(new BorderLayout(20, 20));
@@ -75,49 +95,89 @@ public class ChartsDashboardPanel extends JPanel {
         return card;
     }
     
+    /**
+     * Chart that paints from the current aggregates into a cached image
+     * The image is redrawn only when the size, screen scale or data version
+     * changes; every other repaint (overlapping windows, hover) is one drawImage.
+     */
+    private abstract class CachedChart extends JPanel {
+        private static final long serialVersionUID = 1L;
+        private transient BufferedImage image;
+        private long imageVersion = -1;
+        private double imageScale;
+
+        CachedChart() {
+            setOpaque(false);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            int width = getWidth();
+            int height = getHeight();
+            if (width <= 0 || height <= 0) {
+                return;
+            }
+            Graphics2D g2 = (Graphics2D) g;
+            if (aggregates == null) {
+                drawNoDataMessage(g2, width, height, "Loading...");
+                return;
+            }
+            double scale = g2.getTransform().getScaleX(); // > 1 on HiDPI screens
+            int pixelWidth = (int) Math.ceil(width * scale);
+            int pixelHeight = (int) Math.ceil(height * scale);
+            if (image == null || imageVersion != aggregates.getVersion() || imageScale != scale
+                    || image.getWidth() != pixelWidth || image.getHeight() != pixelHeight) {
+                image = new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D ig = image.createGraphics();
+                try {
+                    ig.scale(scale, scale);
+                    ig.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    ig.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                    paintChart(ig, width, height, aggregates);
+                } finally {
+                    ig.dispose();
+                }
+                imageVersion = aggregates.getVersion();
+                imageScale = scale;
+            }
+            g2.drawImage(image, 0, 0, width, height, null);
+        }
+
+        abstract void paintChart(Graphics2D g2, int width, int height, ExpenseAggregates data);
+    }
+
     /**
      * Create simple pie chart using custom painting
      */
     private JPanel createPieChart() {
-        return new JPanel() {
+        return new CachedChart() {
+            private static final long serialVersionUID = 1L;
+
             @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                
-                Map<String, Double> categoryTotals = getCategoryTotals();
+            void paintChart(Graphics2D g2, int width, int height, ExpenseAggregates data) {
+                Map<String, Long> categoryTotals = data.getCategoryTotals();
                 if (categoryTotals.isEmpty()) {
-                    drawNoDataMessage(g2, "No expenses to display");
+                    drawNoDataMessage(g2, width, height, "No expenses to display");
                     return;
                 }
                 
-                double total = categoryTotals.values().stream().mapToDouble(Double::doubleValue).sum();
+                double total = data.getTotalCents();
                 
-                int centerX = getWidth() / 2;
-                int centerY = getHeight() / 2 - 20;
-                int radius = Math.min(getWidth(), getHeight()) / 3;
+                int centerX = width / 2;
+                int centerY = height / 2 - 20;
+                int radius = Math.min(width, height) / 3;
                 
                 double startAngle = 0;
-                Color[] colors = {
-                    new Color(99, 102, 241),   // Indigo
-                    new Color(16, 185, 129),   // Green
-                    new Color(239, 68, 68),    // Red
-                    new Color(251, 191, 36),   // Yellow
-                    new Color(139, 92, 246),   // Purple
-                    new Color(236, 72, 153),   // Pink
-                    new Color(20, 184, 166),   // Teal
-                    new Color(249, 115, 22)    // Orange
-                };
-                
                 int colorIndex = 0;
                 int legendY = 20;
+                g2.setFont(new Font("Roboto", Font.PLAIN, 13));
                 
-                for (Map.Entry<String, Double> entry : categoryTotals.entrySet()) {
+                for (Map.Entry<String, Long> entry : categoryTotals.entrySet()) {
                     double percentage = (entry.getValue() / total) * 100;
                     double arcAngle = (entry.getValue() / total) * 360;
                     
-                    Color color = colors[colorIndex % colors.length];
+                    Color color = PIE_COLORS[colorIndex % PIE_COLORS.length];
                     g2.setColor(color);
                     g2.fillArc(centerX - radius, centerY - radius, 
                               radius * 2, radius * 2, 
@@ -126,7 +186,6 @@ public class ChartsDashboardPanel extends JPanel {
                     // Legend
                     g2.fillRect(10, legendY, 15, 15);
                     g2.setColor(UITheme.TEXT_DARK);
-                    g2.setFont(new Font("Roboto", Font.PLAIN, 13));
                     g2.drawString(entry.getKey() + String.format(" (%.1f%%)", percentage), 
                                  30, legendY + 12);
                     
@@ -142,22 +201,19 @@ public class ChartsDashboardPanel extends JPanel {
      * Create bar chart for top 5 categories
      */
     private JPanel createBarChart() {
-        return new JPanel() {
+        return new CachedChart() {
+            private static final long serialVersionUID = 1L;
+
             @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                
-                Map<String, Double> categoryTotals = getCategoryTotals();
+            void paintChart(Graphics2D g2, int width, int height, ExpenseAggregates data) {
+                Map<String, Long> categoryTotals = data.getCategoryTotals();
                 if (categoryTotals.isEmpty()) {
-                    drawNoDataMessage(g2, "No expenses to display");
+                    drawNoDataMessage(g2, width, height, "No expenses to display");
                     return;
                 }
                 
-                // Get top 5 categories
-                List<Map.Entry<String, Double>> topCategories = categoryTotals.entrySet().stream()
-                    .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue()))
+                // Already largest first
+                List<Map.Entry<String, Long>> topCategories = categoryTotals.entrySet().stream()
                     .limit(5)
                     .collect(java.util.stream.Collectors.toList());
                 
@@ -165,13 +221,13 @@ public class ChartsDashboardPanel extends JPanel {
                 int barHeight = 30;
                 int spacing = 15;
                 int startY = 30;
-                int maxBarWidth = getWidth() - 150;
+                int maxBarWidth = width - 150;
                 
                 g2.setFont(new Font("Roboto", Font.PLAIN, 13));
                 
                 for (int i = 0; i < topCategories.size(); i++) {
-                    Map.Entry<String, Double> entry = topCategories.get(i);
-                    int barWidth = (int) ((entry.getValue() / maxValue) * maxBarWidth);
+                    Map.Entry<String, Long> entry = topCategories.get(i);
+                    int barWidth = maxValue > 0 ? (int) ((entry.getValue() / maxValue) * maxBarWidth) : 0;
                     int y = startY + (i * (barHeight + spacing));
                     
                     // Draw bar
@@ -183,8 +239,7 @@ public class ChartsDashboardPanel extends JPanel {
                     g2.drawString(entry.getKey(), 10, y + 20);
                     
                     // Draw value
-                    g2.drawString(String.format("$%.2f", entry.getValue()), 
-                                 125 + barWidth, y + 20);
+                    g2.drawString(Money.format(entry.getValue()), 125 + barWidth, y + 20);
                 }
             }
         };
@@ -194,38 +249,38 @@ public class ChartsDashboardPanel extends JPanel {
      * Create line chart for monthly trend (last 6 months)
      */
     private JPanel createLineChart() {
-        return new JPanel() {
+        return new CachedChart() {
+            private static final long serialVersionUID = 1L;
+
             @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                
-                Map<String, Double> monthlyTotals = getMonthlyTotals(6);
-                if (monthlyTotals.isEmpty()) {
-                    drawNoDataMessage(g2, "No expense history");
+            void paintChart(Graphics2D g2, int width, int height, ExpenseAggregates data) {
+                if (data.isEmpty()) {
+                    drawNoDataMessage(g2, width, height, "No expense history");
                     return;
                 }
                 
                 int padding = 40;
-                int width = getWidth() - 2 * padding;
-                int height = getHeight() - 2 * padding;
+                int plotWidth = width - 2 * padding;
+                int plotHeight = height - 2 * padding;
                 
                 // Draw axes
                 g2.setColor(UITheme.BORDER_COLOR);
-                g2.drawLine(padding, getHeight() - padding, getWidth() - padding, getHeight() - padding); // X-axis
-                g2.drawLine(padding, padding, padding, getHeight() - padding); // Y-axis
+                g2.drawLine(padding, height - padding, width - padding, height - padding); // X-axis
+                g2.drawLine(padding, padding, padding, height - padding); // Y-axis
                 
                 // Get data points
-                List<Map.Entry<String, Double>> dataPoints = new ArrayList<>(monthlyTotals.entrySet());
-                if (dataPoints.isEmpty()) return;
+                List<Map.Entry<YearMonth, Long>> dataPoints =
+                    new ArrayList<>(data.getRecentMonths(6, LocalDate.now()).entrySet());
                 
                 double maxValue = dataPoints.stream()
-                    .mapToDouble(Map.Entry::getValue)
+                    .mapToLong(Map.Entry::getValue)
                     .max()
-                    .orElse(1.0);
+                    .orElse(1);
+                if (maxValue <= 0) {
+                    maxValue = 1;
+                }
                 
-                int pointSpacing = width / (dataPoints.size() + 1);
+                int pointSpacing = plotWidth / (dataPoints.size() + 1);
                 
                 // Draw lines and points
                 g2.setColor(UITheme.PRIMARY_COLOR);
@@ -233,9 +288,9 @@ public class ChartsDashboardPanel extends JPanel {
                 
                 int prevX = 0, prevY = 0;
                 for (int i = 0; i < dataPoints.size(); i++) {
-                    Map.Entry<String, Double> entry = dataPoints.get(i);
+                    Map.Entry<YearMonth, Long> entry = dataPoints.get(i);
                     int x = padding + (i + 1) * pointSpacing;
-                    int y = getHeight() - padding - (int) ((entry.getValue() / maxValue) * height);
+                    int y = height - padding - (int) ((entry.getValue() / maxValue) * plotHeight);
                     
                     // Draw line from previous point
                     if (i > 0) {
@@ -248,13 +303,13 @@ public class ChartsDashboardPanel extends JPanel {
                     // Draw month label
                     g2.setColor(UITheme.TEXT_MUTED);
                     g2.setFont(new Font("Roboto", Font.PLAIN, 10));
-                    String monthLabel = entry.getKey().substring(5, 7); // Get month part
-                    g2.drawString(monthLabel, x - 10, getHeight() - padding + 20);
+                    String monthLabel = String.format("%02d", entry.getKey().getMonthValue());
+                    g2.drawString(monthLabel, x - 10, height - padding + 20);
                     
                     // Draw value
                     g2.setColor(UITheme.TEXT_DARK);
                     g2.setFont(new Font("Roboto", Font.BOLD, 10));
-                    g2.drawString(String.format("$%.0f", entry.getValue()), x - 15, y - 10);
+                    g2.drawString(String.format("$%.0f", Money.toAmount(entry.getValue())), x - 15, y - 10);
                     
                     g2.setColor(UITheme.PRIMARY_COLOR);
                     prevX = x;
@@ -265,7 +320,7 @@ public class ChartsDashboardPanel extends JPanel {
     }
     
     /**
-     * Create summary statistics card with dynamic updates
+     * Create summary statistics card; values are set by showAggregates()
      */
     private UITheme.RoundedPanel createSummaryCard() {
         UITheme.RoundedPanel card = new UITheme.RoundedPanel(15, Color.WHITE);
@@ -277,39 +332,28 @@ public class ChartsDashboardPanel extends JPanel {
         titleLabel.setForeground(UITheme.PRIMARY_COLOR);
         card.add(titleLabel, BorderLayout.NORTH);
         
-        JPanel statsPanel = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                // Recalculate stats every time panel is repainted
-                removeAll();
-                setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
-                setBackground(Color.WHITE);
-                
-                double total = expenses.stream().mapToDouble(Expense::getAmount).sum();
-                double average = expenses.isEmpty() ? 0 : total / expenses.size();
-                double max = expenses.stream().mapToDouble(Expense::getAmount).max().orElse(0);
-                long count = expenses.size();
-                
-                add(createStatRow("💰 Total Expenses", String.format("$%.2f", total)));
-                add(Box.createVerticalStrut(12));
-                add(createStatRow("📊 Average", String.format("$%.2f", average)));
-                add(Box.createVerticalStrut(12));
-                add(createStatRow("📈 Highest", String.format("$%.2f", max)));
-                add(Box.createVerticalStrut(12));
-                add(createStatRow("🔢 Count", String.valueOf(count)));
-                
-                revalidate();
-            }
-        };
+        JPanel statsPanel = new JPanel();
+        statsPanel.setLayout(new BoxLayout(statsPanel, BoxLayout.Y_AXIS));
         statsPanel.setBackground(Color.WHITE);
         
+        totalValue = new JLabel("-");
+        averageValue = new JLabel("-");
+        highestValue = new JLabel("-");
+        countValue = new JLabel("-");
+        statsPanel.add(createStatRow("💰 Total Expenses", totalValue));
+        statsPanel.add(Box.createVerticalStrut(12));
+        statsPanel.add(createStatRow("📊 Average", averageValue));
+        statsPanel.add(Box.createVerticalStrut(12));
+        statsPanel.add(createStatRow("📈 Highest", highestValue));
+        statsPanel.add(Box.createVerticalStrut(12));
+        statsPanel.add(createStatRow("🔢 Count", countValue));
+        
         card.add(statsPanel, BorderLayout.CENTER);
         
         return card;
     }
     
-    private JPanel createStatRow(String label, String value) {
+    private JPanel createStatRow(String label, JLabel valueComp) {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(Color.WHITE);
         panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 35));
@@ -318,7 +362,6 @@ public class ChartsDashboardPanel extends JPanel {
         labelComp.setFont(new Font("Roboto", Font.PLAIN, 14));
         labelComp.setForeground(UITheme.TEXT_MUTED);
         
-        JLabel valueComp = new JLabel(value);
         valueComp.setFont(new Font("Roboto", Font.BOLD, 16));
         valueComp.setForeground(UITheme.PRIMARY_COLOR);
         
@@ -328,55 +371,53 @@ public class ChartsDashboardPanel extends JPanel {
         return panel;
     }
     
-    private void drawNoDataMessage(Graphics2D g2, String message) {
+    private void drawNoDataMessage(Graphics2D g2, int width, int height, String message) {
         g2.setColor(UITheme.TEXT_MUTED);
         g2.setFont(new Font("Roboto", Font.PLAIN, 14));
         FontMetrics fm = g2.getFontMetrics();
-        int x = (getWidth() - fm.stringWidth(message)) / 2;
-        int y = getHeight() / 2;
+        int x = (width - fm.stringWidth(message)) / 2;
+        int y = height / 2;
         g2.drawString(message, x, y);
     }
     
-    /**
-     * Calculate category totals
-     */
-    private Map<String, Double> getCategoryTotals() {
-        Map<String, Double> totals = new HashMap<>();
-        for (Expense expense : expenses) {
-            String category = expense.getCategory();
-            totals.put(category, totals.getOrDefault(category, 0.0) + expense.getAmount());
-        }
-        return totals;
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus.getInstance().subscribe(ExpenseEvent.class, expenseListener);
+        refreshData();
     }
     
-    /**
-     * Calculate monthly totals for last N months
-     */
-    private Map<String, Double> getMonthlyTotals(int months) {
-        Map<String, Double> totals = new LinkedHashMap<>();
-        LocalDate now = LocalDate.now();
-        
-        for (int i = months - 1; i >= 0; i--) {
-            LocalDate monthDate = now.minusMonths(i);
-            String monthKey = monthDate.format(DateTimeFormatter.ofPattern("yyyy-MM"));
-            totals.put(monthKey, 0.0);
-        }
-        
-        for (Expense expense : expenses) {
-            String expenseMonth = expense.getDate().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-            if (totals.containsKey(expenseMonth)) {
-                totals.put(expenseMonth, totals.get(expenseMonth) + expense.getAmount());
-            }
-        }
-        
-        return totals;
+    @Override
+    public void removeNotify() {
+        EventBus.getInstance().unsubscribe(expenseListener);
+        aggregatesLoader.cancel();
+        super.removeNotify();
     }
     
     /**
-     * Refresh data and update charts
+     * Recompute the aggregates in the background if the expenses changed
+     * A refresh while one is running replaces it.
      */
     public void refreshData() {
-        expenses = expenseManager.getAllExpenses(currentUser);
+        ExpenseAggregates shown = aggregates;
+        aggregatesLoader.load(() -> {
+            ExpenseSnapshot snapshot = expenseManager.getSnapshot(currentUser);
+            if (shown != null && shown.getVersion() == snapshot.getVersion()) {
+                return shown; // Unchanged
+            }
+            return ExpenseAggregates.of(snapshot);
+        }, this::showAggregates);
+    }
+    
+    private void showAggregates(ExpenseAggregates result) {
+        if (aggregates != null && aggregates.getVersion() >= result.getVersion()) {
+            return; // A newer computation finished first
+        }
+        aggregates = result;
+        totalValue.setText(Money.format(result.getTotalCents()));
+        averageValue.setText(Money.format(result.getAverageCents()));
+        highestValue.setText(Money.format(result.getMaxCents()));
+        countValue.setText(String.valueOf(result.getCount()));
         repaint();
     }
 }
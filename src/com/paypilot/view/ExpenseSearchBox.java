@@ -0,0 +1,99 @@
+package com.paypilot.view;
+
+import com.paypilot.controller.ExpenseManager;
+import com.paypilot.dao.ExpenseSearchIndex;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * ExpenseSearchBox - Search-as-you-type field over a user's expenses
+ * Waits for a short pause in typing, queries the search index on a background
+ * thread and reports the results on the EDT, dropping results for text that
+ * has changed since. Results older than the current snapshot are re-queried,
+ * so a view can show them and then apply only newer ExpenseEvents.
+ */
+public class ExpenseSearchBox extends JTextField {
+    private static final long serialVersionUID = 1L;
+    private static final int DEBOUNCE_MS = 150;
+
+    /**
+     * Receives the query and its results; results are null for a blank query
+     */
+    public interface Listener {
+        void searchChanged(String query, ExpenseSearchIndex.Results results);
+    }
+
+    private final ExpenseManager expenseManager;
+    private final String username;
+    private final Listener listener;
+    private final Timer debounce;
+    private final BackgroundLoader<ExpenseSearchIndex.Results> searchLoader = new BackgroundLoader<>("search results");
+    private String query = "";
+
+    public ExpenseSearchBox(ExpenseManager expenseManager, String username, Listener listener) {
+        this.expenseManager = expenseManager;
+        this.username = username;
+        this.listener = listener;
+        this.debounce = new Timer(DEBOUNCE_MS, e -> search());
+        debounce.setRepeats(false);
+
+        setFont(UITheme.FONT_REGULAR);
+        setColumns(16);
+        setToolTipText("Search categories and descriptions");
+        setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(UITheme.BORDER_COLOR, 1),
+            BorderFactory.createEmptyBorder(8, 10, 8, 10)
+        ));
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { debounce.restart(); }
+        });
+    }
+
+    /**
+     * @return The query the last reported results belong to; empty when not searching
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Empty the field without reporting a change
+     */
+    public void clear() {
+        setText("");
+        debounce.stop();
+        searchLoader.cancel();
+        query = "";
+    }
+
+    private void search() {
+        String text = getText().trim();
+        if (text.isEmpty()) {
+            searchLoader.cancel();
+            if (!query.isEmpty()) {
+                query = "";
+                listener.searchChanged(query, null);
+            }
+            return;
+        }
+        searchLoader.load(() -> expenseManager.search(username, text), results -> {
+            if (!text.equals(getText().trim())) {
+                return; // Typing went on; a newer search is scheduled
+            }
+            if (results.getVersion() < expenseManager.getSnapshot(username).getVersion()) {
+                search(); // Expenses changed while searching
+                return;
+            }
+            query = text;
+            listener.searchChanged(query, results);
+        });
+    }
+}
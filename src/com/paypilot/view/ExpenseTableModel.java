@@ -0,0 +1,284 @@
+package com.paypilot.view;
+
+import com.paypilot.controller.event.ExpenseEvent;
+import com.paypilot.model.Expense;
+import com.paypilot.model.Money;
+import com.paypilot.model.PersistentList;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Predicate;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * ExpenseTableModel - Table model that reads cells straight from a list of expenses
+ * Replacing the list is one table event and no per-row work; cells are
+ * formatted only when JTable paints them, so only visible rows cost anything.
+ * ExpenseEvents are applied as row deltas (consecutive appends fire a single
+ * range), and sorting is an index permutation over the list, which is never
+ * reordered or copied.
+ *
+ * The list may be a shared snapshot: a PersistentList is replaced by an
+ * updated copy, any other list is modified in place.
+ */
+public class ExpenseTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+
+    public enum Column {
+        DATE("Date"),
+        CATEGORY("Category"),
+        AMOUNT("Amount"),
+        DESCRIPTION("Description"),
+        TYPE("Type"),
+        RECEIPT("📎");
+
+        private final String title;
+
+        Column(String title) {
+            this.title = title;
+        }
+    }
+
+    private final Column[] columns;
+    private List<Expense> rows = PersistentList.empty();
+    private Comparator<Expense> comparator; // null = list order
+    private int[] order;                    // View row -> list index while sorted
+    private final Map<LocalDate, String> dateLabels = new HashMap<>();
+
+    public ExpenseTableModel(Column... columns) {
+        this.columns = columns.clone();
+    }
+
+    // === DATA ===
+
+    /**
+     * Show a new list in list order
+     */
+    public void setExpenses(List<Expense> expenses) {
+        rows = expenses;
+        comparator = null;
+        order = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return Shown expenses in list order (not sort order)
+     */
+    public List<Expense> getExpenses() {
+        return rows;
+    }
+
+    public Expense getExpenseAt(int row) {
+        if (row < 0 || row >= rows.size()) return null;
+        return rows.get(order == null ? row : order[row]);
+    }
+
+    /**
+     * Sort the view without touching the list
+     * @param comparator Order to show, or null for list order
+     */
+    public void sortBy(Comparator<Expense> comparator) {
+        this.comparator = comparator;
+        order = comparator == null ? null : sortedOrder();
+        fireTableDataChanged();
+    }
+
+    private int[] sortedOrder() {
+        Expense[] values = rows.toArray(new Expense[0]); // One pass instead of a lookup per comparison
+        Integer[] indexes = new Integer[values.length];
+        for (int i = 0; i < indexes.length; i++) indexes[i] = i;
+        Arrays.sort(indexes, (a, b) -> comparator.compare(values[a], values[b]));
+        int[] sorted = new int[indexes.length];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = indexes[i];
+        return sorted;
+    }
+
+    // === DELTAS ===
+
+    /**
+     * Apply one frame's expense changes as row inserts, updates and deletes
+     * @param shown Whether an expense passes the view's filter
+     * @return false if the list was cleared and the caller has to set a new one
+     */
+    public boolean apply(List<ExpenseEvent> events, Predicate<Expense> shown) {
+        int appendedFrom = -1; // First row of a run of appends not yet announced
+        for (ExpenseEvent event : events) {
+            if (event.getType() == ExpenseEvent.Type.CLEARED) {
+                fireAppended(appendedFrom);
+                return false;
+            }
+            // A new expense has no row yet, so appends skip the scan
+            int index = event.getType() == ExpenseEvent.Type.ADDED ? -1 : indexOf(event.getExpenseId());
+            Expense expense = event.getExpense();
+            boolean show = expense != null && shown.test(expense);
+            if (index < 0 && show && order == null) {
+                if (appendedFrom < 0) appendedFrom = rows.size();
+                rows = plus(rows, expense);
+                continue;
+            }
+            fireAppended(appendedFrom);
+            appendedFrom = -1;
+            if (index >= 0 && show) {
+                replace(index, expense);
+            } else if (index >= 0) {
+                remove(index);
+            } else if (show) {
+                insertSorted(expense);
+            }
+        }
+        fireAppended(appendedFrom);
+        return true;
+    }
+
+    private void fireAppended(int from) {
+        if (from >= 0 && from < rows.size()) {
+            fireTableRowsInserted(from, rows.size() - 1);
+        }
+    }
+
+    private void replace(int index, Expense expense) {
+        rows = with(rows, index, expense);
+        if (order == null) {
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+        int from = viewRowOf(index);
+        order = without(order, from);
+        int to = sortedPosition(expense);
+        order = inserted(order, to, index);
+        if (from == to) {
+            fireTableRowsUpdated(to, to);
+        } else {
+            fireTableRowsDeleted(from, from);
+            fireTableRowsInserted(to, to);
+        }
+    }
+
+    private void remove(int index) {
+        int row = order == null ? index : viewRowOf(index);
+        rows = minus(rows, index);
+        if (order != null) {
+            order = without(order, row);
+            for (int i = 0; i < order.length; i++) {
+                if (order[i] > index) order[i]--;
+            }
+        }
+        fireTableRowsDeleted(row, row);
+    }
+
+    private void insertSorted(Expense expense) {
+        int row = sortedPosition(expense);
+        order = inserted(order, row, rows.size());
+        rows = plus(rows, expense);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * First view row whose expense sorts after the given one
+     */
+    private int sortedPosition(Expense expense) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(rows.get(order[mid]), expense) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int viewRowOf(int index) {
+        for (int row = 0; row < order.length; row++) {
+            if (order[row] == index) return row;
+        }
+        return -1;
+    }
+
+    private int indexOf(long id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
+    private static int[] inserted(int[] array, int position, int value) {
+        int[] copy = new int[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(array, position, copy, position + 1, array.length - position);
+        return copy;
+    }
+
+    private static int[] without(int[] array, int position) {
+        int[] copy = new int[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        System.arraycopy(array, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+
+    private static List<Expense> plus(List<Expense> list, Expense expense) {
+        if (list instanceof PersistentList) return ((PersistentList<Expense>) list).plus(expense);
+        list.add(expense);
+        return list;
+    }
+
+    private static List<Expense> with(List<Expense> list, int index, Expense expense) {
+        if (list instanceof PersistentList) return ((PersistentList<Expense>) list).with(index, expense);
+        list.set(index, expense);
+        return list;
+    }
+
+    private static List<Expense> minus(List<Expense> list, int index) {
+        if (list instanceof PersistentList) return ((PersistentList<Expense>) list).minus(index);
+        list.remove(index);
+        return list;
+    }
+
+    // === TABLE MODEL ===
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column].title;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Expense expense = getExpenseAt(row);
+        if (expense == null) return null;
+        switch (columns[column]) {
+            case DATE:
+                return dateLabels.computeIfAbsent(expense.getDate(), DATE_FORMAT::format);
+            case CATEGORY:
+                return expense.getCategory();
+            case AMOUNT:
+                return Money.format(expense.getAmountCents());
+            case DESCRIPTION:
+                return expense.getDescription();
+            case TYPE:
+                return expense.isSplit() ? "Split" : "Personal";
+            case RECEIPT:
+                return expense.hasReceipt() ? "📎" : "";
+            default:
+                return null;
+        }
+    }
+}
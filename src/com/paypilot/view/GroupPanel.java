@@ -1,9 +1,13 @@
 package com.paypilot.view;
 
 import com.paypilot.controller.GroupController;
+import com.paypilot.controller.event.ChangeListener;
+import com.paypilot.controller.event.EventBus;
+import com.paypilot.controller.event.GroupEvent;
 import com.paypilot.controller.report.ReportFactory;
 import com.paypilot.controller.report.ReportGenerator;
 import com.paypilot.model.Group;
+import com.paypilot.model.Money;
 import com.paypilot.model.SharedExpense;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -12,6 +16,7 @@ import java.awt.*;
 import java.io.File;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class GroupPanel extends JDialog {
@@ -24,6 +29,23 @@ public class GroupPanel extends JDialog {
     private JTable groupTable;
     private JTable expenseTable;
     private JTextArea balanceTextArea;
+    private JLabel groupLabel;
+    private final ChangeListener<GroupEvent> groupListener = this::onGroupChanges;
+    private final BackgroundLoader<ArrayList<Group>> groupsLoader = new BackgroundLoader<>("groups");
+    private final BackgroundLoader<GroupDetails> detailsLoader = new BackgroundLoader<>("group expenses");
+    
+    /**
+     * Expenses and balances of the selected group, loaded together
+     */
+    private static final class GroupDetails {
+        final ArrayList<SharedExpense> expenses;
+        final Map<String, Double> balances;
+        
+        GroupDetails(ArrayList<SharedExpense> expenses, Map<String, Double> balances) {
+            this.expenses = expenses;
+            this.balances = balances;
+        }
+    }
 
     public GroupPanel(Frame parent, String currentUser, GroupController groupController) {
         super(parent, "Group Management", true);
@@ -33,6 +55,7 @@ public class GroupPanel extends JDialog {
         UITheme.applyLookAndFeel();
         initializeUI();
         loadGroups();
+        EventBus.getInstance().subscribe(GroupEvent.class, groupListener);
         
         setSize(1000, 700);
         setLocationRelativeTo(parent);
@@ -65,7 +88,7 @@ public class GroupPanel extends JDialog {
         leftCard.setLayout(new BorderLayout(0, 10));
         leftCard.setBorder(new EmptyBorder(15, 15, 15, 15));
         
-        JLabel groupLabel = new JLabel("My Groups");
+        groupLabel = new JLabel("My Groups");
         groupLabel.setFont(UITheme.FONT_SUBTITLE);
         groupLabel.setForeground(UITheme.PRIMARY_COLOR);
         
@@ -156,17 +179,72 @@ public class GroupPanel extends JDialog {
         mainContainer.add(buttonPanel, BorderLayout.SOUTH);
     }
     
-    private void loadGroups() {
-        groupTableModel.setRowCount(0);
-        ArrayList<Group> groups = groupController.getUserGroups(currentUser);
-        for (Group group : groups) {
-            groupTableModel.addRow(new Object[]{ group.getGroupName(), group.getMembers().size() + " members" });
+    @Override
+    public void dispose() {
+        EventBus.getInstance().unsubscribe(groupListener);
+        groupsLoader.cancel();
+        detailsLoader.cancel();
+        super.dispose();
+    }
+    
+    /**
+     * Reload only what this frame's group changes touched
+     */
+    private void onGroupChanges(List<GroupEvent> events) {
+        int row = groupTable.getSelectedRow();
+        String selected = row == -1 ? null : (String) groupTableModel.getValueAt(row, 0);
+        boolean groupsChanged = false;
+        boolean selectedChanged = false;
+        for (GroupEvent event : events) {
+            if (event.getType() != GroupEvent.Type.EXPENSE_ADDED) {
+                groupsChanged = true;
+            }
+            if (event.getGroupName().equals(selected)) {
+                selectedChanged = true;
+            }
         }
+        if (groupsChanged) {
+            loadGroups(() -> {
+                for (int i = 0; i < groupTableModel.getRowCount(); i++) {
+                    if (groupTableModel.getValueAt(i, 0).equals(selected)) {
+                        groupTable.setRowSelectionInterval(i, i); // Reloads the expenses and balances
+                        break;
+                    }
+                }
+            });
+        } else if (selectedChanged) {
+            loadGroupExpenses();
+        }
+    }
+    
+    private void loadGroups() {
+        loadGroups(() -> { });
+    }
+    
+    /**
+     * Reload the group list in the background, then run onLoaded
+     * The current rows stay until the new ones arrive.
+     */
+    private void loadGroups(Runnable onLoaded) {
+        groupLabel.setText("My Groups  " + BackgroundLoader.PLACEHOLDER);
+        groupsLoader.load(() -> groupController.getUserGroups(currentUser), groups -> {
+            groupLabel.setText("My Groups");
+            groupTableModel.setRowCount(0);
+            for (Group group : groups) {
+                groupTableModel.addRow(new Object[]{ group.getGroupName(), group.getMembers().size() + " members" });
+            }
+            onLoaded.run();
+        });
     }
     
+    /**
+     * Load the selected group's expenses and balances in the background
+     * Selecting another group first drops the previous group's load.
+     */
     private void loadGroupExpenses() {
         int selectedRow = groupTable.getSelectedRow();
         if (selectedRow == -1) {
+            detailsLoader.cancel();
             expenseTableModel.setRowCount(0);
             balanceTextArea.setText("");
             return;
@@ -174,9 +252,17 @@ public class GroupPanel extends JDialog {
         
         String groupName = (String) groupTableModel.getValueAt(selectedRow, 0);
         expenseTableModel.setRowCount(0);
+        expenseTableModel.addRow(new Object[]{ BackgroundLoader.PLACEHOLDER, "", "", "" });
+        balanceTextArea.setText(BackgroundLoader.PLACEHOLDER);
         
-        ArrayList<SharedExpense> expenses = groupController.getGroupExpenses(groupName);
-        for (SharedExpense exp : expenses) {
+        detailsLoader.load(() -> new GroupDetails(groupController.getGroupExpenses(groupName),
+                                                  groupController.calculateGroupBalances(groupName)),
+                           this::showGroupDetails);
+    }
+    
+    private void showGroupDetails(GroupDetails details) {
+        expenseTableModel.setRowCount(0);
+        for (SharedExpense exp : details.expenses) {
             expenseTableModel.addRow(new Object[]{
                 exp.getCategory(),
                 String.format("$%.2f", exp.getTotalAmount()),
@@ -185,11 +271,10 @@ public class GroupPanel extends JDialog {
             });
         }
         
-        Map<String, Double> balances = groupController.calculateGroupBalances(groupName);
         StringBuilder sb = new StringBuilder("NET BALANCES:\n");
-        for (Map.Entry<String, Double> entry : balances.entrySet()) {
+        for (Map.Entry<String, Double> entry : details.balances.entrySet()) {
             double val = entry.getValue();
-            String status = Math.abs(val) < 0.01 ? "Settled" : (val > 0 ? "Gets back" : "Owes");
+            String status = Money.ofAmount(val) == 0 ? "Settled" : (val > 0 ? "Gets back" : "Owes");
             sb.append(String.format("%-15s : $%-8.2f (%s)\n", entry.getKey(), Math.abs(val), status));
         }
         balanceTextArea.setText(sb.toString());
@@ -198,9 +283,7 @@ public class GroupPanel extends JDialog {
     private void createGroup() {
         String name = JOptionPane.showInputDialog(this, "Enter Group Name:");
         if (name != null && !name.trim().isEmpty()) {
-            if (groupController.createGroup(name.trim(), currentUser)) {
-                loadGroups();
-            } else {
+            if (!groupController.createGroup(name.trim(), currentUser)) {
                 UITheme.showMessage(this, "Group exists or invalid", "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
@@ -214,8 +297,6 @@ public class GroupPanel extends JDialog {
         String user = JOptionPane.showInputDialog(this, "Enter username to add:");
         if (user != null && !user.trim().isEmpty()) {
             if (groupController.addMemberToGroup(groupName, user.trim())) {
-                loadGroups();
-                loadGroupExpenses();
                 UITheme.showMessage(this, "Member Added", "Success", JOptionPane.INFORMATION_MESSAGE);
             } else {
                 UITheme.showMessage(this, "Failed to add member", "Error", JOptionPane.ERROR_MESSAGE);
@@ -231,8 +312,7 @@ public class GroupPanel extends JDialog {
         Group group = groupController.getGroup(groupName);
         
         SharedExpenseDialog dialog = new SharedExpenseDialog(this, group, groupController, currentUser);
-        dialog.setVisible(true);
-        if (dialog.isSucceeded()) loadGroupExpenses();
+        dialog.setVisible(true); // A saved expense arrives as a GroupEvent
     }
     
     private void exportGroupReport() {
@@ -1,17 +1,19 @@
 package com.paypilot.view;
 
 import com.paypilot.controller.*;
+import com.paypilot.controller.query.Aggregate;
+import com.paypilot.controller.query.ExpenseQuery;
 import com.paypilot.controller.report.ReportFactory;
 import com.paypilot.controller.report.ReportGenerator;
 import com.paypilot.model.Expense;
+import com.paypilot.model.Money;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 public class MainDashboard extends JFrame {
@@ -23,10 +25,10 @@ public class MainDashboard extends JFrame {
     private RecurringExpenseManager recurringExpenseManager;
     private String currentUser;
 
-    private ArrayList<Expense> expenses;
+    private List<Expense> expenses;
     private ArrayList<Expense> filteredExpenses;
 
-    private DefaultTableModel tableModel;
+    private ExpenseTableModel tableModel;
     private JTable table;
     private JComboBox<String> filterCategoryBox;
     private JLabel totalLabel, avgLabel, maxLabel;
@@ -42,24 +44,14 @@ public class MainDashboard extends JFrame {
 
         UITheme.applyLookAndFeel();
         
-        // Process any due recurring expenses
-        processRecurringExpenses();
+        // Generate due recurring expenses in the background
+        RecurringExpenseScheduler.getInstance().start();
         
         initializeUI();
         loadExpenses();
         setVisible(true);
     }
     
-    /**
-     * Process recurring expenses on startup
-     */
-    private void processRecurringExpenses() {
-        int generated = recurringExpenseManager.processDueRecurringExpenses(currentUser);
-        if (generated > 0) {
-            System.out.println("Generated " + generated + " recurring expenses");
-        }
-    }
-
     private void initializeUI() {
         setTitle("PayPilot | " + currentUser);
         setSize(1300, 850);
@@ -290,9 +282,8 @@ public class MainDashboard extends JFrame {
 
         panel.add(topBar, BorderLayout.NORTH);
 
-        tableModel = new DefaultTableModel(new String[]{"Category", "Amount", "Description", "Date", "Type"}, 0) {
-            @Override public boolean isCellEditable(int row, int col) { return false; }
-        };
+        tableModel = new ExpenseTableModel(ExpenseTableModel.Column.CATEGORY, ExpenseTableModel.Column.AMOUNT,
+            ExpenseTableModel.Column.DESCRIPTION, ExpenseTableModel.Column.DATE, ExpenseTableModel.Column.TYPE);
         
         table = new JTable(tableModel);
         UITheme.styleTable(table);
@@ -379,38 +370,23 @@ public class MainDashboard extends JFrame {
     }
     
     private void refreshTable() {
-        tableModel.setRowCount(0);
-        List<Expense> list = filteredExpenses.isEmpty() ? expenses : filteredExpenses;
-        for (Expense exp : list) {
-            tableModel.addRow(new Object[]{
-                exp.getCategory(),
-                String.format("$%.2f", exp.getAmount()),
-                exp.getDescription(),
-                exp.getDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-                exp.isSplit() ? "Split" : "Personal"
-            });
-        }
+        tableModel.setExpenses(filteredExpenses.isEmpty() ? expenses : filteredExpenses);
     }
 
     private void updateStatistics() {
         List<Expense> source = filteredExpenses.isEmpty() ? expenses : filteredExpenses;
-        double total = source.stream().mapToDouble(Expense::getAmount).sum();
-        double max = source.stream().mapToDouble(Expense::getAmount).max().orElse(0);
-        double avg = source.isEmpty() ? 0 : total / source.size();
+        Aggregate shown = ExpenseQuery.all().limit(0)
+            .aggregate(ExpenseQuery.Measure.COUNT, ExpenseQuery.Measure.SUM, ExpenseQuery.Measure.MAX)
+            .execute(source)
+            .getTotals();
         
-        totalLabel.setText(String.format("$%.2f", total));
-        avgLabel.setText(String.format("$%.2f", avg));
-        maxLabel.setText(String.format("$%.2f", max));
+        totalLabel.setText(Money.format(shown.getSumCents()));
+        avgLabel.setText(Money.format(shown.getAverageCents()));
+        maxLabel.setText(Money.format(shown.getMaxCents()));
     }
     
     private Expense getExpenseFromTableRow(int row) {
-        String category = (String) tableModel.getValueAt(row, 0);
-        String amountStr = (String) tableModel.getValueAt(row, 1);
-        double amount = Double.parseDouble(amountStr.replace("$", ""));
-        String desc = (String) tableModel.getValueAt(row, 2);
-        return expenses.stream()
-            .filter(e -> e.getCategory().equals(category) && Math.abs(e.getAmount() - amount) < 0.01 && e.getDescription().equals(desc))
-            .findFirst().orElse(null);
+        return tableModel.getExpenseAt(row);
     }
 
     private void filterByCategory() {
@@ -442,9 +418,8 @@ public class MainDashboard extends JFrame {
     }
     
     private void sortByAmount() {
-        List<Expense> list = filteredExpenses.isEmpty() ? expenses : filteredExpenses;
-        list.sort((e1, e2) -> Double.compare(e2.getAmount(), e1.getAmount()));
-        refreshTable();
+        Comparator<Expense> largestFirst = (e1, e2) -> Double.compare(e2.getAmount(), e1.getAmount());
+        tableModel.sortBy(largestFirst);
     }
 
     private void openGroupPanel() { new GroupPanel(this, currentUser, groupController).setVisible(true); }
@@ -470,7 +445,9 @@ public class MainDashboard extends JFrame {
     }
 
     private void logout() {
+        AuthenticationController authController = new AuthenticationController();
+        authController.logout(currentUser);
         dispose();
-        SwingUtilities.invokeLater(() -> new LoginView(new AuthenticationController()).setVisible(true));
+        SwingUtilities.invokeLater(() -> new LoginView(authController).setVisible(true));
     }
 }
\ No newline at end of file
@@ -1,8 +1,16 @@
 package com.paypilot.view;
 
 import com.paypilot.controller.*;
+import com.paypilot.controller.event.ChangeListener;
+import com.paypilot.controller.event.EventBus;
+import com.paypilot.controller.event.ExpenseEvent;
+import com.paypilot.controller.query.ExpenseQuery;
+import com.paypilot.controller.query.ExpenseQueryResult;
 import com.paypilot.controller.report.*;
+import com.paypilot.dao.ExpenseSearchIndex;
 import com.paypilot.model.Expense;
+import com.paypilot.model.ExpenseSnapshot;
+import com.paypilot.model.Money;
 import com.paypilot.model.ExpenseCategory;
 
 import javax.swing.*;
@@ -10,7 +18,6 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.*;
 import java.awt.*;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
 
@@ -29,17 +36,20 @@ public class ModernMainDashboard extends JFrame {
     private String currentUser;
 
     // UI Components
-    private DefaultTableModel tableModel;
+    private ExpenseTableModel tableModel;
     private JTable expenseTable;
     private JComboBox<String> filterCategoryBox;
     private JComboBox<String> filterPeriodBox;
+    private ExpenseSearchBox searchBox;
     private JLabel totalExpenseLabel, monthlyExpenseLabel, weeklyExpenseLabel, countLabel;
     private JPanel contentPanel;
     private CardLayout cardLayout;
 
     // Data
-    private ArrayList<Expense> allExpenses;
-    private ArrayList<Expense> filteredExpenses;
+    private ExpenseSnapshot snapshot;
+    private long loadedVersion = -1;
+    private final ChangeListener<ExpenseEvent> expenseListener = this::onExpenseChanges;
+    private final BackgroundLoader<ExpenseSnapshot> snapshotLoader = new BackgroundLoader<>("expenses");
 
     public ModernMainDashboard(String username) {
         this.currentUser = username;
@@ -47,21 +57,20 @@ public class ModernMainDashboard extends JFrame {
         this.undoManager = new UndoManager();
         this.budgetManager = new BudgetManager();
         this.recurringExpenseManager = new RecurringExpenseManager(expenseManager);
-        this.allExpenses = new ArrayList<>();
-        this.filteredExpenses = new ArrayList<>();
 
         UITheme.applyLookAndFeel();
-        processRecurringExpenses();
+        RecurringExpenseScheduler.getInstance().start(); // Generated expenses arrive as ExpenseEvents
         initializeUI();
         loadExpenses();
+        EventBus.getInstance().subscribe(ExpenseEvent.class, expenseListener);
         setVisible(true);
     }
 
-    private void processRecurringExpenses() {
-        int generated = recurringExpenseManager.processDueRecurringExpenses(currentUser);
-        if (generated > 0) {
-            System.out.println("✓ Generated " + generated + " recurring expenses");
-        }
+    @Override
+    public void dispose() {
+        EventBus.getInstance().unsubscribe(expenseListener);
+        snapshotLoader.cancel();
+        super.dispose();
     }
 
     private void initializeUI() {
@@ -347,13 +356,8 @@ public class ModernMainDashboard extends JFrame {
         panel.add(createTableToolbar(), BorderLayout.NORTH);
 
         // Table
-        String[] columns = {"Category", "Amount", "Description", "Date", "Type"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int col) {
-                return false;
-            }
-        };
+        tableModel = new ExpenseTableModel(ExpenseTableModel.Column.CATEGORY, ExpenseTableModel.Column.AMOUNT,
+            ExpenseTableModel.Column.DESCRIPTION, ExpenseTableModel.Column.DATE, ExpenseTableModel.Column.TYPE);
 
         expenseTable = new JTable(tableModel);
         UITheme.styleTable(expenseTable);
@@ -391,6 +395,15 @@ public class ModernMainDashboard extends JFrame {
         JPanel leftTools = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 0));
         leftTools.setOpaque(false);
 
+        searchBox = new ExpenseSearchBox(expenseManager, currentUser, (query, results) -> {
+            if (results == null) {
+                applyFilters();
+            } else {
+                showSearchResults(results);
+                updateStatistics();
+            }
+        });
+
         JLabel filterLabel = new JLabel("Filter:");
         filterLabel.setFont(UITheme.FONT_BOLD);
         filterLabel.setForeground(UITheme.TEXT_DARK);
@@ -408,6 +421,7 @@ public class ModernMainDashboard extends JFrame {
         JButton resetBtn = UITheme.createSecondaryButton("Reset");
         resetBtn.addActionListener(e -> resetFilters());
 
+        leftTools.add(searchBox);
         leftTools.add(filterLabel);
         leftTools.add(filterCategoryBox);
         leftTools.add(filterPeriodBox);
@@ -435,10 +449,7 @@ public class ModernMainDashboard extends JFrame {
     // === ACTION METHODS ===
 
     private void showView(String viewName) {
-        cardLayout.show(contentPanel, viewName);
-        if ("PERSONAL".equals(viewName) || "DASHBOARD".equals(viewName)) {
-            loadExpenses();
-        }
+        cardLayout.show(contentPanel, viewName); // Views are kept current by ExpenseEvents
     }
 
     private void openAddExpenseDialog() {
@@ -457,7 +468,6 @@ public class ModernMainDashboard extends JFrame {
                         "Success", JOptionPane.INFORMATION_MESSAGE);
                 }
             }
-            loadExpenses();
         }
     }
 
@@ -475,7 +485,6 @@ public class ModernMainDashboard extends JFrame {
             if (form.isSucceeded()) {
                 Command editCommand = new EditExpenseCommand(expenseManager, currentUser, expense, form.getExpense());
                 undoManager.executeCommand(editCommand);
-                loadExpenses();
             }
         }
     }
@@ -492,133 +501,194 @@ public class ModernMainDashboard extends JFrame {
             Expense expense = getExpenseFromRow(selectedRow);
             if (expense != null) {
                 undoManager.executeCommand(new DeleteExpenseCommand(expenseManager, currentUser, expense));
-                loadExpenses();
             }
         }
     }
 
     private void performUndo() {
         if (undoManager.undo()) {
-            loadExpenses();
             UITheme.showMessage(this, "Action undone successfully", "Undo", JOptionPane.INFORMATION_MESSAGE);
         } else {
             UITheme.showMessage(this, "Nothing to undo", "Undo", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
+    /**
+     * Load the user's expenses in the background; the window shows placeholders until then
+     */
     private void loadExpenses() {
-        allExpenses = expenseManager.getAllExpenses(currentUser);
-        updateCategoryFilter();
-        applyFilters();
-        
-        // Real-time update: Refresh all panels
-        refreshAllPanels();
+        if (snapshot == null) {
+            for (JLabel label : new JLabel[]{totalExpenseLabel, monthlyExpenseLabel, weeklyExpenseLabel, countLabel}) {
+                label.setText(BackgroundLoader.PLACEHOLDER);
+            }
+        }
+        snapshotLoader.load(() -> expenseManager.getSnapshot(currentUser), loaded -> {
+            snapshot = expenseManager.getSnapshot(currentUser); // Includes changes published during the load
+            loadedVersion = snapshot.getVersion();
+            updateCategoryFilter();
+            applyFilters();
+        });
     }
     
     /**
-     * Refresh all panels for real-time updates
+     * Patch the dashboard table and cards with this frame's expense changes
+     * The other panels subscribe on their own.
      */
-    private void refreshAllPanels() {
-        // Refresh each panel in the content area for real-time updates
-        Component[] components = contentPanel.getComponents();
-        for (Component comp : components) {
-            if (comp instanceof ChartsDashboardPanel) {
-                ((ChartsDashboardPanel) comp).refreshData();
-            } else if (comp instanceof PersonalPanel) {
-                ((PersonalPanel) comp).refreshData();
+    private void onExpenseChanges(List<ExpenseEvent> events) {
+        if (snapshotLoader.isLoading()) {
+            return; // The load in flight picks these up
+        }
+        List<ExpenseEvent> pending = new ArrayList<>();
+        for (ExpenseEvent event : events) {
+            if (currentUser.equals(event.getUsername()) && event.getVersion() > loadedVersion) {
+                pending.add(event);
             }
         }
-        
-        // Force repaint of entire content panel
-        contentPanel.revalidate();
-        contentPanel.repaint();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (!tableModel.apply(pending, this::matchesFilters)) {
+            loadExpenses(); // Cleared
+            return;
+        }
+        loadedVersion = pending.get(pending.size() - 1).getVersion();
+        snapshot = expenseManager.getSnapshot(currentUser);
+        if (!expenseManager.getUniqueCategories(currentUser).equals(getFilterCategories())) {
+            updateCategoryFilter();
+        }
+        updateStatistics();
+    }
+
+    private List<String> getFilterCategories() {
+        List<String> categories = new ArrayList<>();
+        for (int i = 1; i < filterCategoryBox.getItemCount(); i++) { // Skip "All Categories"
+            categories.add(filterCategoryBox.getItemAt(i));
+        }
+        return categories;
     }
 
     private void applyFilters() {
-        filteredExpenses.clear();
-        
-        List<Expense> workingList = new ArrayList<>(allExpenses);
-        
-        // Category filter
-        String selectedCategory = (String) filterCategoryBox.getSelectedItem();
-        if (selectedCategory != null && !"All Categories".equals(selectedCategory)) {
-            workingList = workingList.stream()
-                .filter(e -> e.getCategory().equals(selectedCategory))
-                .collect(java.util.stream.Collectors.toList());
+        if (snapshot == null) {
+            return; // Combo boxes fire while the UI is being built
         }
-        
-        // Period filter
-        String selectedPeriod = (String) filterPeriodBox.getSelectedItem();
-        if (selectedPeriod != null) {
-            LocalDate now = LocalDate.now();
-            switch (selectedPeriod) {
-                case "Today":
-                    workingList = workingList.stream()
-                        .filter(e -> e.getDate().equals(now))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "This Week":
-                    LocalDate weekStart = now.minusDays(now.getDayOfWeek().getValue() - 1);
-                    workingList = workingList.stream()
-                        .filter(e -> !e.getDate().isBefore(weekStart))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "This Month":
-                    workingList = workingList.stream()
-                        .filter(e -> e.getDate().getMonth() == now.getMonth() && 
-                                   e.getDate().getYear() == now.getYear())
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-            }
+        if (!searchBox.getQuery().isEmpty()) {
+            showSearchResults(expenseManager.search(currentUser, searchBox.getQuery()));
+            updateStatistics();
+            return;
+        }
+        snapshot = expenseManager.getSnapshot(currentUser); // May be behind after showing search hits
+        loadedVersion = snapshot.getVersion();
+        if (getSelectedCategory() == null && "All Time".equals(filterPeriodBox.getSelectedItem())) {
+            tableModel.setExpenses(snapshot.getExpenses()); // The snapshot itself, not a copy
+        } else {
+            tableModel.setExpenses(new ArrayList<>(filterQuery().execute(snapshot).getExpenses()));
         }
-        
-        filteredExpenses = new ArrayList<>(workingList);
-        refreshTable();
         updateStatistics();
     }
 
+    /**
+     * Show search hits that pass the category and period filters; later changes arrive as events
+     */
+    private void showSearchResults(ExpenseSearchIndex.Results results) {
+        loadedVersion = results.getVersion();
+        snapshot = expenseManager.getSnapshot(currentUser);
+        tableModel.setExpenses(new ArrayList<>(filterQuery().execute(results.getExpenses()).getExpenses()));
+    }
+
+    /**
+     * @return Selected category, or null for all
+     */
+    private String getSelectedCategory() {
+        String selected = (String) filterCategoryBox.getSelectedItem();
+        return selected == null || "All Categories".equals(selected) ? null : selected;
+    }
+
+    /**
+     * @return First and last day of the selected period
+     */
+    private LocalDate[] getSelectedPeriod() {
+        LocalDate now = LocalDate.now();
+        String selected = (String) filterPeriodBox.getSelectedItem();
+        switch (selected == null ? "" : selected) {
+            case "Today":
+                return new LocalDate[]{now, now};
+            case "This Week":
+                return new LocalDate[]{now.minusDays(now.getDayOfWeek().getValue() - 1), LocalDate.MAX};
+            case "This Month":
+                return new LocalDate[]{now.withDayOfMonth(1), now.withDayOfMonth(now.lengthOfMonth())};
+            default:
+                return new LocalDate[]{LocalDate.MIN, LocalDate.MAX};
+        }
+    }
+
+    /**
+     * Query for the selected category and period; the planner reads them from the snapshot's indexes
+     */
+    private ExpenseQuery filterQuery() {
+        ExpenseQuery query = ExpenseQuery.all();
+        String category = getSelectedCategory();
+        if (category != null) {
+            query = query.inCategories(category);
+        }
+        LocalDate[] period = getSelectedPeriod();
+        return query.between(period[0], period[1]);
+    }
+
+    /**
+     * Whether the expense passes the search, category and period filters
+     */
+    private boolean matchesFilters(Expense e) {
+        return filterQuery().matches(e)
+            && (searchBox.getQuery().isEmpty() || expenseManager.matchesSearch(e, searchBox.getQuery()));
+    }
+
     private void resetFilters() {
+        searchBox.clear();
         filterCategoryBox.setSelectedIndex(0);
         filterPeriodBox.setSelectedIndex(0);
         applyFilters();
     }
 
-    private void refreshTable() {
-        tableModel.setRowCount(0);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-        
-        for (Expense expense : filteredExpenses) {
-            tableModel.addRow(new Object[]{
-                expense.getCategory(),
-                String.format("$%.2f", expense.getAmount()),
-                expense.getDescription(),
-                expense.getDate().format(formatter),
-                expense.isSplit() ? "Split" : "Personal"
-            });
-        }
-    }
-
     private void updateStatistics() {
         LocalDate now = LocalDate.now();
+        List<Expense> filteredExpenses = tableModel.getExpenses();
+        LocalDate[] period = getSelectedPeriod();
         
-        double total = filteredExpenses.stream().mapToDouble(Expense::getAmount).sum();
-        
-        double monthly = filteredExpenses.stream()
-            .filter(e -> e.getDate().getMonth() == now.getMonth() && 
-                        e.getDate().getYear() == now.getYear())
-            .mapToDouble(Expense::getAmount).sum();
-        
+        // Without a search the sums are answered from the snapshot's rollup: O(log d)
+        long total = centsBetween(period[0], period[1]);
+        long monthly = centsBetween(max(period[0], now.withDayOfMonth(1)),
+                                    min(period[1], now.withDayOfMonth(now.lengthOfMonth())));
         LocalDate weekStart = now.minusDays(now.getDayOfWeek().getValue() - 1);
-        double weekly = filteredExpenses.stream()
-            .filter(e -> !e.getDate().isBefore(weekStart))
-            .mapToDouble(Expense::getAmount).sum();
+        long weekly = centsBetween(max(period[0], weekStart), period[1]);
         
-        totalExpenseLabel.setText(String.format("$%.2f", total));
-        monthlyExpenseLabel.setText(String.format("$%.2f", monthly));
-        weeklyExpenseLabel.setText(String.format("$%.2f", weekly));
+        totalExpenseLabel.setText(Money.format(total));
+        monthlyExpenseLabel.setText(Money.format(monthly));
+        weeklyExpenseLabel.setText(Money.format(weekly));
         countLabel.setText(String.valueOf(filteredExpenses.size()));
     }
 
+    /**
+     * Spending shown for the selected category dated from..to
+     * The rollup knows nothing about text matches, so a search sums the visible hits.
+     */
+    private long centsBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        ExpenseQuery query = filterQuery().between(from, to).limit(0).aggregate(ExpenseQuery.Measure.SUM);
+        ExpenseQueryResult result = searchBox.getQuery().isEmpty()
+            ? query.execute(snapshot) : query.execute(tableModel.getExpenses());
+        return result.getTotals().getSumCents();
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
     private void updateCategoryFilter() {
         String currentSelection = (String) filterCategoryBox.getSelectedItem();
         filterCategoryBox.removeAllItems();
@@ -635,8 +705,7 @@ public class ModernMainDashboard extends JFrame {
     }
 
     private Expense getExpenseFromRow(int row) {
-        if (row < 0 || row >= filteredExpenses.size()) return null;
-        return filteredExpenses.get(row);
+        return tableModel.getExpenseAt(row);
     }
 
     private void openBudgetSettings() {
@@ -687,8 +756,9 @@ public class ModernMainDashboard extends JFrame {
     private void logout() {
         int confirm = UITheme.showConfirm(this, "Are you sure you want to logout?", "Logout");
         if (confirm == JOptionPane.YES_OPTION) {
-            dispose();
             AuthenticationController authController = new AuthenticationController();
+            authController.logout(currentUser);
+            dispose();
             LoginView loginView = new LoginView(authController);
             loginView.setVisible(true);
         }
@@ -1,16 +1,23 @@
 package com.paypilot.view;
 
 import com.paypilot.controller.*;
+import com.paypilot.controller.event.BudgetEvent;
+import com.paypilot.controller.event.ChangeListener;
+import com.paypilot.controller.event.EventBus;
+import com.paypilot.controller.event.ExpenseEvent;
+import com.paypilot.controller.query.Aggregate;
+import com.paypilot.controller.query.ExpenseQuery;
+import com.paypilot.dao.ExpenseSearchIndex;
+import com.paypilot.model.ExpenseSnapshot;
 import com.paypilot.model.Expense;
+import com.paypilot.model.Money;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.*;
 import java.awt.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class PersonalPanel extends JPanel {
     private static final long serialVersionUID = 1L;
@@ -23,16 +30,21 @@ public class PersonalPanel extends JPanel {
     private String currentUser;
 
     // UI Components
-    private DefaultTableModel tableModel;
+    private ExpenseTableModel tableModel;
     private JTable table;
     private JComboBox<String> filterCategoryBox;
+    private ExpenseSearchBox searchBox;
     private JLabel totalLabel, avgLabel, maxLabel;
     private BudgetProgressPanel budgetProgressPanel;
 
     // State
-    private ArrayList<Expense> expenses;
-    private ArrayList<Expense> filteredExpenses;
+    private String filterCategory; // null = all categories
+    private long loadedVersion = -1;
     private boolean isUpdatingComboBox = false;
+    private final ChangeListener<ExpenseEvent> expenseListener = this::onExpenseChanges;
+    private final ChangeListener<BudgetEvent> budgetListener = this::onBudgetChanges;
+    private final BackgroundLoader<ExpenseSnapshot> snapshotLoader = new BackgroundLoader<>("expenses");
+    private final BackgroundLoader<BudgetManager.BudgetStatus> budgetLoader = new BackgroundLoader<>("budget status");
 
     public PersonalPanel(String username, ExpenseManager expenseManager,
                          UndoManager undoManager, JFrame parent) {
@@ -41,8 +53,6 @@ public class PersonalPanel extends JPanel {
         this.undoManager = undoManager;
         this.budgetManager = new BudgetManager();
         this.parentFrame = parent;
-        this.expenses = new ArrayList<>();
-        this.filteredExpenses = new ArrayList<>();
 
         setBackground(UITheme.BG_COLOR);
         setLayout(new BorderLayout(0, 20));
@@ -122,6 +132,15 @@ public class PersonalPanel extends JPanel {
         toolbar.setBackground(Color.WHITE);
         toolbar.setBorder(new EmptyBorder(0, 0, 15, 0));
 
+        searchBox = new ExpenseSearchBox(expenseManager, currentUser, (query, results) -> {
+            if (results == null) {
+                showSnapshot(expenseManager.getSnapshot(currentUser));
+            } else {
+                showSearchResults(results);
+            }
+            updateStatistics();
+        });
+
         JLabel filterLbl = new JLabel("Filter:");
         filterLbl.setFont(UITheme.FONT_BOLD);
         
@@ -137,6 +156,7 @@ public class PersonalPanel extends JPanel {
         JButton sortBtn = UITheme.createSecondaryButton("Sort Amount");
         sortBtn.addActionListener(e -> sortByAmount());
 
+        toolbar.add(searchBox);
         toolbar.add(filterLbl);
         toolbar.add(filterCategoryBox);
         toolbar.add(resetBtn);
@@ -163,9 +183,7 @@ public class PersonalPanel extends JPanel {
         panel.add(topBar, BorderLayout.NORTH);
 
         // --- Table ---
-        tableModel = new DefaultTableModel(new String[]{"Date", "Category", "Amount", "Description", "Type", "📎"}, 0) {
-            @Override public boolean isCellEditable(int row, int col) { return false; }
-        };
+        tableModel = new ExpenseTableModel(ExpenseTableModel.Column.values());
 
         table = new JTable(tableModel);
         UITheme.styleTable(table);
@@ -290,40 +308,145 @@ public class PersonalPanel extends JPanel {
 
     // --- Logic ---
 
+    /**
+     * Reload the expenses in the background; the current rows stay until they arrive
+     */
     public void refreshData() {
-        expenses = expenseManager.getAllExpenses(currentUser);
-        filteredExpenses.clear();
-        updateCategoryFilter();
-        refreshTable();
-        updateStatistics();
+        if (loadedVersion < 0) {
+            totalLabel.setText(BackgroundLoader.PLACEHOLDER);
+            avgLabel.setText(BackgroundLoader.PLACEHOLDER);
+            maxLabel.setText(BackgroundLoader.PLACEHOLDER);
+        }
+        snapshotLoader.load(() -> expenseManager.getSnapshot(currentUser), loaded -> {
+            // Changes published during the load are already in the latest snapshot
+            ExpenseSnapshot snapshot = expenseManager.getSnapshot(currentUser);
+            if (snapshot.getVersion() != loadedVersion) { // Same version: keep the table, filter and sort order
+                filterCategory = null;
+                updateCategoryFilter();
+                showSnapshot(snapshot);
+                updateStatistics();
+            }
+        });
         updateBudgetDisplay(); // Update budget when expenses change
     }
 
-    private void refreshTable() {
-        tableModel.setRowCount(0);
-        List<Expense> list = filteredExpenses.isEmpty() ? expenses : filteredExpenses;
-        
-        for (Expense exp : list) {
-            tableModel.addRow(new Object[]{
-                exp.getDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-                exp.getCategory(),
-                String.format("$%.2f", exp.getAmount()),
-                exp.getDescription(),
-                exp.isSplit() ? "Split" : "Personal",
-                exp.hasReceipt() ? "📎" : ""
-            });
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus.getInstance().subscribe(ExpenseEvent.class, expenseListener);
+        EventBus.getInstance().subscribe(BudgetEvent.class, budgetListener);
+        refreshData(); // Catch up on changes made while unsubscribed
+    }
+
+    @Override
+    public void removeNotify() {
+        EventBus.getInstance().unsubscribe(expenseListener);
+        EventBus.getInstance().unsubscribe(budgetListener);
+        snapshotLoader.cancel(); // addNotify() loads again
+        budgetLoader.cancel();
+        super.removeNotify();
+    }
+
+    /**
+     * Patch the table rows touched by this frame's expense changes
+     */
+    private void onExpenseChanges(List<ExpenseEvent> events) {
+        if (snapshotLoader.isLoading()) {
+            return; // The load in flight picks these up
+        }
+        List<ExpenseEvent> pending = new ArrayList<>();
+        for (ExpenseEvent event : events) {
+            if (currentUser.equals(event.getUsername()) && event.getVersion() > loadedVersion) {
+                pending.add(event); // Not someone else's, nor already included by refreshData()
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (!tableModel.apply(pending, this::matchesFilter)) {
+            loadedVersion = -1; // Cleared: rebuild from the current snapshot
+            refreshData();
+            return;
+        }
+        loadedVersion = pending.get(pending.size() - 1).getVersion();
+        List<String> categories = expenseManager.getUniqueCategories(currentUser);
+        if (!categories.equals(getFilterCategories())) {
+            Object selected = filterCategoryBox.getSelectedItem();
+            updateCategoryFilter();
+            isUpdatingComboBox = true;
+            filterCategoryBox.setSelectedItem(selected);
+            isUpdatingComboBox = false;
+        }
+        updateStatistics();
+        updateBudgetDisplay();
+    }
+
+    private void onBudgetChanges(List<BudgetEvent> events) {
+        for (BudgetEvent event : events) {
+            if (currentUser.equals(event.getUsername())) {
+                updateBudgetDisplay();
+                return;
+            }
         }
     }
 
+    private List<String> getFilterCategories() {
+        List<String> categories = new ArrayList<>();
+        for (int i = 1; i < filterCategoryBox.getItemCount(); i++) { // Skip "All Categories"
+            categories.add(filterCategoryBox.getItemAt(i));
+        }
+        return categories;
+    }
+
+    private boolean matchesFilter(Expense expense) {
+        return (filterCategory == null || expense.getCategory().equalsIgnoreCase(filterCategory))
+            && (searchBox.getQuery().isEmpty() || expenseManager.matchesSearch(expense, searchBox.getQuery()));
+    }
+
+    /**
+     * @return Query for the selected category, or null when showing all
+     */
+    private ExpenseQuery categoryQuery() {
+        return filterCategory == null ? null : ExpenseQuery.all().inCategories(filterCategory);
+    }
+
+    /**
+     * Show the snapshot, or the part of it matching the search and category filter
+     * A category is read from the snapshot's index, oldest first.
+     */
+    private void showSnapshot(ExpenseSnapshot snapshot) {
+        if (!searchBox.getQuery().isEmpty()) {
+            showSearchResults(expenseManager.search(currentUser, searchBox.getQuery()));
+            return;
+        }
+        loadedVersion = snapshot.getVersion();
+        ExpenseQuery query = categoryQuery();
+        if (query == null) {
+            tableModel.setExpenses(snapshot.getExpenses()); // Shared, not copied
+        } else {
+            tableModel.setExpenses(new ArrayList<>(query.execute(snapshot).getExpenses()));
+        }
+    }
+
+    /**
+     * Show search hits in the selected category; later changes arrive as events
+     */
+    private void showSearchResults(ExpenseSearchIndex.Results results) {
+        loadedVersion = results.getVersion();
+        ExpenseQuery query = categoryQuery();
+        tableModel.setExpenses(new ArrayList<>(query == null ? results.getExpenses()
+            : query.execute(results.getExpenses()).getExpenses()));
+    }
+
     private void updateStatistics() {
-        List<Expense> source = filteredExpenses.isEmpty() ? expenses : filteredExpenses;
-        double total = source.stream().mapToDouble(Expense::getAmount).sum();
-        double max = source.stream().mapToDouble(Expense::getAmount).max().orElse(0);
-        double avg = source.isEmpty() ? 0 : total / source.size();
-
-        totalLabel.setText(String.format("$%.2f", total));
-        avgLabel.setText(String.format("$%.2f", avg));
-        maxLabel.setText(String.format("$%.2f", max));
+        Aggregate shown = ExpenseQuery.all().limit(0)
+            .aggregate(ExpenseQuery.Measure.COUNT, ExpenseQuery.Measure.SUM, ExpenseQuery.Measure.MAX)
+            .execute(tableModel.getExpenses())
+            .getTotals();
+
+        totalLabel.setText(Money.format(shown.getSumCents()));
+        avgLabel.setText(Money.format(shown.getAverageCents()));
+        maxLabel.setText(Money.format(shown.getMaxCents()));
     }
 
     private void editSelectedExpense() {
@@ -344,8 +467,7 @@ public class PersonalPanel extends JPanel {
             Expense newExpense = form.getExpense();
             // Use Command Pattern via UndoManager
             Command editCmd = new EditExpenseCommand(expenseManager, currentUser, oldExpense, newExpense);
-            undoManager.executeCommand(editCmd);
-            refreshData();
+            undoManager.executeCommand(editCmd); // The ExpenseEvent patches the table
         }
     }
 
@@ -361,35 +483,18 @@ public class PersonalPanel extends JPanel {
             if (expense != null) {
                 Command delCmd = new DeleteExpenseCommand(expenseManager, currentUser, expense);
                 undoManager.executeCommand(delCmd);
-                refreshData();
             }
         }
     }
 
     private Expense getExpenseFromTableRow(int row) {
-        String dateStr = (String) tableModel.getValueAt(row, 0);
-        String category = (String) tableModel.getValueAt(row, 1);
-        String amountStr = (String) tableModel.getValueAt(row, 2);
-        String desc = (String) tableModel.getValueAt(row, 3);
-        
-        double amount = Double.parseDouble(amountStr.replace("$", "").trim());
-
-        return expenses.stream()
-            .filter(e -> e.getCategory().equals(category) &&
-                         Math.abs(e.getAmount() - amount) < 0.01 &&
-                         e.getDescription().equals(desc))
-            .findFirst()
-            .orElse(null);
+        return tableModel.getExpenseAt(row);
     }
 
     private void filterByCategory() {
         String selected = (String) filterCategoryBox.getSelectedItem();
-        if (selected == null || selected.equals("All Categories")) {
-            filteredExpenses.clear();
-        } else {
-            filteredExpenses = expenseManager.filterByCategory(currentUser, selected);
-        }
-        refreshTable();
+        filterCategory = selected == null || selected.equals("All Categories") ? null : selected;
+        showSnapshot(expenseManager.getSnapshot(currentUser));
         updateStatistics();
     }
 
@@ -404,16 +509,16 @@ public class PersonalPanel extends JPanel {
     }
 
     private void resetFilter() {
+        searchBox.clear();
         if(filterCategoryBox.getItemCount() > 0) filterCategoryBox.setSelectedIndex(0);
-        filteredExpenses.clear();
-        refreshTable();
+        filterCategory = null;
+        showSnapshot(expenseManager.getSnapshot(currentUser));
         updateStatistics();
     }
 
     private void sortByAmount() {
-        List<Expense> list = filteredExpenses.isEmpty() ? expenses : filteredExpenses;
-        list.sort((e1, e2) -> Double.compare(e2.getAmount(), e1.getAmount()));
-        refreshTable();
+        Comparator<Expense> largestFirst = (e1, e2) -> Double.compare(e2.getAmount(), e1.getAmount());
+        tableModel.sortBy(largestFirst); // Permutes the view; the snapshot stays as it is
     }
     
     /**
@@ -450,9 +555,8 @@ public class PersonalPanel extends JPanel {
         headerPanel.add(settingsBtn, BorderLayout.EAST);
         panel.add(headerPanel, BorderLayout.NORTH);
         
-        // Budget progress display
-        BudgetManager.BudgetStatus status = budgetManager.getBudgetStatus(currentUser, expenses);
-        budgetProgressPanel = new BudgetProgressPanel(status);
+        // Budget progress display, filled in by updateBudgetDisplay()
+        budgetProgressPanel = new BudgetProgressPanel(null);
         
         JScrollPane scrollPane = new JScrollPane(budgetProgressPanel);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
@@ -469,21 +573,18 @@ public class PersonalPanel extends JPanel {
     private void openBudgetSettings() {
         BudgetSettingsDialog dialog = new BudgetSettingsDialog(
             SwingUtilities.getWindowAncestor(this), currentUser, budgetManager);
-        dialog.setVisible(true);
-        
-        if (dialog.isSucceeded()) {
-            updateBudgetDisplay();
-        }
+        dialog.setVisible(true); // Saving publishes a BudgetEvent
     }
     
     /**
      * Update budget display panel
      */
     private void updateBudgetDisplay() {
-        BudgetManager.BudgetStatus status = budgetManager.getBudgetStatus(currentUser, expenses);
-        if (budgetProgressPanel != null) {
-            budgetProgressPanel.updateBudgetStatus(status);
-        }
+        budgetLoader.load(() -> budgetManager.getBudgetStatus(currentUser), status -> {
+            if (budgetProgressPanel != null) {
+                budgetProgressPanel.updateBudgetStatus(status);
+            }
+        });
     }
     
     /**
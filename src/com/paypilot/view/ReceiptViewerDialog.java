@@ -1,46 +1,49 @@
 package com.paypilot.view;
 
+import com.paypilot.dao.ReceiptImageStore;
+import com.paypilot.dao.ReceiptImageStore.ReceiptImage;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import javax.imageio.ImageIO;
 
 /**
  * ReceiptViewerDialog - Image viewer with zoom functionality
  * Displays receipt images with pan and zoom support
+ * The dialog opens right away and shows a placeholder until the receipt's
+ * thumbnail has loaded in the background. Each zoom level is drawn from the
+ * nearest pyramid level of ReceiptImageStore, one cached tile at a time, over
+ * the upscaled thumbnail while tiles are still decoding.
  */
 public class ReceiptViewerDialog extends JDialog {
     private static final long serialVersionUID = 1L;
     
-    private BufferedImage originalImage;
-    private JLabel imageLabel;
+    private final ReceiptImageStore imageStore = ReceiptImageStore.getInstance();
+    private ReceiptImage receipt; // null while loading
+    private TiledImageView imageView;
+    private JLabel zoomLabel;
     private JScrollPane scrollPane;
     private double zoomLevel = 1.0;
     private static final double ZOOM_STEP = 0.2;
+    private final BackgroundLoader<ReceiptImage> imageLoader = new BackgroundLoader<>("receipt image");
     
     public ReceiptViewerDialog(Window parent, String imagePath) {
         super(parent, "Receipt Viewer", ModalityType.APPLICATION_MODAL);
         
-        try {
-            File imageFile = new File(imagePath);
-            if (!imageFile.exists()) {
-                throw new Exception("Receipt file not found");
-            }
-            originalImage = ImageIO.read(imageFile);
-            
-            initializeUI();
-            setSize(800, 600);
-            setLocationRelativeTo(parent);
-            
-        } catch (Exception e) {
-            UITheme.showMessage(parent, "Failed to load receipt: " + e.getMessage(), 
+        initializeUI();
+        setSize(800, 600);
+        setLocationRelativeTo(parent);
+        
+        imageLoader.load(() -> imageStore.open(imagePath), image -> {
+            receipt = image;
+            updateImageDisplay();
+        }, error -> {
+            UITheme.showMessage(parent, "Failed to load receipt: " + error.getMessage(), 
                 "Error", JOptionPane.ERROR_MESSAGE);
             dispose();
-        }
+        });
     }
     
     private void initializeUI() {
@@ -52,12 +55,9 @@ public class ReceiptViewerDialog extends JDialog {
         mainPanel.add(toolbarPanel, BorderLayout.NORTH);
         
         // Image panel
-        imageLabel = new JLabel();
-        imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        imageLabel.setVerticalAlignment(SwingConstants.CENTER);
-        updateImageDisplay();
+        imageView = new TiledImageView();
         
-        scrollPane = new JScrollPane(imageLabel);
+        scrollPane = new JScrollPane(imageView);
         scrollPane.getViewport().setBackground(Color.DARK_GRAY);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
         
@@ -99,7 +99,7 @@ public class ReceiptViewerDialog extends JDialog {
         actualSizeBtn.setToolTipText("Actual Size");
         actualSizeBtn.addActionListener(e -> actualSize());
         
-        JLabel zoomLabel = new JLabel(String.format("%.0f%%", zoomLevel * 100));
+        zoomLabel = new JLabel(String.format("%.0f%%", zoomLevel * 100));
         zoomLabel.setFont(UITheme.FONT_REGULAR);
         zoomLabel.setForeground(UITheme.TEXT_MUTED);
         
@@ -123,6 +123,12 @@ public class ReceiptViewerDialog extends JDialog {
         return toolbar;
     }
     
+    @Override
+    public void dispose() {
+        imageLoader.cancel();
+        super.dispose();
+    }
+    
     private void zoomIn() {
         zoomLevel += ZOOM_STEP;
         if (zoomLevel > 5.0) zoomLevel = 5.0;
@@ -136,11 +142,12 @@ public class ReceiptViewerDialog extends JDialog {
     }
     
     private void fitToWindow() {
+        if (receipt == null) return; // Still loading
         int viewportWidth = scrollPane.getViewport().getWidth();
         int viewportHeight = scrollPane.getViewport().getHeight();
         
-        double widthRatio = (double) viewportWidth / originalImage.getWidth();
-        double heightRatio = (double) viewportHeight / originalImage.getHeight();
+        double widthRatio = (double) viewportWidth / receipt.getWidth();
+        double heightRatio = (double) viewportHeight / receipt.getHeight();
         
         zoomLevel = Math.min(widthRatio, heightRatio) * 0.95; // 95% to add padding
         updateImageDisplay();
@@ -152,20 +159,84 @@ public class ReceiptViewerDialog extends JDialog {
     }
     
     private void updateImageDisplay() {
-        int newWidth = (int) (originalImage.getWidth() * zoomLevel);
-        int newHeight = (int) (originalImage.getHeight() * zoomLevel);
-        
-        Image scaledImage = originalImage.getScaledInstance(newWidth, newHeight, Image.SCALE_SMOOTH);
-        imageLabel.setIcon(new ImageIcon(scaledImage));
-        
-        // Update zoom label in toolbar
-        Component[] components = ((JPanel)((JPanel)getContentPane().getComponent(0))
-            .getComponent(0)).getComponents();
-        for (Component comp : components) {
-            if (comp instanceof JLabel) {
-                ((JLabel) comp).setText(String.format("%.0f%%", zoomLevel * 100));
-                break;
+        zoomLabel.setText(String.format("%.0f%%", zoomLevel * 100));
+        imageView.revalidate(); // Nothing is scaled here; painting picks the level
+        imageView.repaint();
+    }
+    
+    /**
+     * Paints the visible tiles of the pyramid level that matches the zoom
+     */
+    private class TiledImageView extends JComponent {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        public Dimension getPreferredSize() {
+            if (receipt == null) {
+                return new Dimension(1, 1);
+            }
+            return new Dimension((int) Math.ceil(receipt.getWidth() * zoomLevel),
+                                 (int) Math.ceil(receipt.getHeight() * zoomLevel));
+        }
+        
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                if (receipt == null) {
+                    paintPlaceholder(g2);
+                    return;
+                }
+                Dimension size = getPreferredSize();
+                g2.translate(Math.max(0, (getWidth() - size.width) / 2), Math.max(0, (getHeight() - size.height) / 2));
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                
+                // Coarse but complete: tiles that are still decoding never leave holes
+                g2.drawImage(receipt.getThumbnail(), 0, 0, size.width, size.height, null);
+                int level = receipt.levelFor(zoomLevel);
+                if (level == receipt.getTopLevel()) {
+                    return; // The thumbnail is this level
+                }
+                paintTiles(g2, level);
+            } finally {
+                g2.dispose();
+            }
+        }
+        
+        private void paintTiles(Graphics2D g2, int level) {
+            double scale = zoomLevel * (1 << level); // Screen pixels per level pixel
+            int tileSize = ReceiptImageStore.TILE_SIZE;
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(getPreferredSize());
+            }
+            int firstX = Math.max(0, (int) (clip.x / scale) / tileSize);
+            int firstY = Math.max(0, (int) (clip.y / scale) / tileSize);
+            int lastX = Math.min((receipt.getLevelWidth(level) - 1) / tileSize, (int) ((clip.x + clip.width) / scale) / tileSize);
+            int lastY = Math.min((receipt.getLevelHeight(level) - 1) / tileSize, (int) ((clip.y + clip.height) / scale) / tileSize);
+            
+            for (int tileY = firstY; tileY <= lastY; tileY++) {
+                for (int tileX = firstX; tileX <= lastX; tileX++) {
+                    BufferedImage tile = imageStore.getCachedTile(receipt, level, tileX, tileY);
+                    if (tile == null) {
+                        imageStore.requestTile(receipt, level, tileX, tileY, loaded -> repaint());
+                        continue;
+                    }
+                    int x0 = (int) Math.round(tileX * tileSize * scale);
+                    int y0 = (int) Math.round(tileY * tileSize * scale);
+                    int x1 = (int) Math.round((tileX * tileSize + tile.getWidth()) * scale);
+                    int y1 = (int) Math.round((tileY * tileSize + tile.getHeight()) * scale);
+                    g2.drawImage(tile, x0, y0, x1 - x0, y1 - y0, null);
+                }
             }
         }
+        
+        private void paintPlaceholder(Graphics2D g2) {
+            String text = "Loading receipt…";
+            g2.setColor(Color.WHITE);
+            g2.setFont(UITheme.FONT_REGULAR);
+            FontMetrics fm = g2.getFontMetrics();
+            g2.drawString(text, (getWidth() - fm.stringWidth(text)) / 2, getHeight() / 2);
+        }
     }
 }
@@ -1,6 +1,7 @@
 package com.paypilot.view;
 
 import com.paypilot.controller.SettlementOptimizer;
+import com.paypilot.controller.SettlementOptimizer.Mode;
 import com.paypilot.controller.SettlementOptimizer.Transaction;
 import com.paypilot.controller.SettlementOptimizer.SettlementSavings;
 import javax.swing.*;
@@ -20,12 +21,12 @@ public class SettlementDialog extends JDialog {
     private Map<String, Double> balances;
     private List<Transaction> transactions;
     private SettlementSavings savings;
+    private JPanel contentPanel;
     
     public SettlementDialog(Window parent, String groupName, Map<String, Double> balances) {
         super(parent, "Settlement Plan - " + groupName, ModalityType.APPLICATION_MODAL);
         this.balances = balances;
-        this.transactions = SettlementOptimizer.optimizeSettlement(balances);
-        this.savings = SettlementOptimizer.calculateSavings(balances);
+        computePlan(Mode.GREEDY);
         
         initializeUI();
         setSize(600, 500);
@@ -42,14 +43,9 @@ public class SettlementDialog extends JDialog {
         mainPanel.add(headerPanel, BorderLayout.NORTH);
         
         // Content
-        JPanel contentPanel = new JPanel(new BorderLayout(0, 15));
+        contentPanel = new JPanel(new BorderLayout(0, 15));
         contentPanel.setOpaque(false);
-        
-        // Savings card
-        contentPanel.add(createSavingsCard(), BorderLayout.NORTH);
-        
-        // Transactions table
-        contentPanel.add(createTransactionsPanel(), BorderLayout.CENTER);
+        fillContent();
         
         mainPanel.add(contentPanel, BorderLayout.CENTER);
         
@@ -70,6 +66,24 @@ public class SettlementDialog extends JDialog {
         setContentPane(mainPanel);
     }
     
+    private void computePlan(Mode mode) {
+        this.transactions = SettlementOptimizer.optimizeSettlement(balances, mode);
+        this.savings = SettlementOptimizer.calculateSavings(balances, transactions);
+    }
+    
+    private void fillContent() {
+        contentPanel.removeAll();
+        
+        // Savings card
+        contentPanel.add(createSavingsCard(), BorderLayout.NORTH);
+        
+        // Transactions table
+        contentPanel.add(createTransactionsPanel(), BorderLayout.CENTER);
+        
+        contentPanel.revalidate();
+        contentPanel.repaint();
+    }
+    
     private JPanel createHeader() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setOpaque(false);
@@ -91,6 +105,21 @@ public class SettlementDialog extends JDialog {
         
         panel.add(textPanel, BorderLayout.CENTER);
         
+        // Algorithm selection
+        JComboBox<Mode> modeComboBox = new JComboBox<>(Mode.values());
+        modeComboBox.setFont(UITheme.FONT_REGULAR);
+        modeComboBox.setBackground(Color.WHITE);
+        modeComboBox.setToolTipText("Exact mode finds the fewest payments for groups of up to "
+            + SettlementOptimizer.EXACT_MAX_PEOPLE + " people with open balances");
+        modeComboBox.addActionListener(e -> {
+            computePlan((Mode) modeComboBox.getSelectedItem());
+            fillContent();
+        });
+        JPanel modePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        modePanel.setOpaque(false);
+        modePanel.add(modeComboBox);
+        panel.add(modePanel, BorderLayout.EAST);
+        
         return panel;
     }
     
@@ -1,5 +1,6 @@
 package com.paypilot.view;
 
+import com.paypilot.model.Money;
 import com.paypilot.model.SplitDetail;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -87,8 +88,8 @@ public class SplitExpenseDialog extends JDialog {
     
     private void addSplit() {
         try {
-            double amt = Double.parseDouble(amountField.getText());
-            splits.add(new SplitDetail(nameField.getText(), amt));
+            long amt = Money.parse(amountField.getText());
+            splits.add(SplitDetail.ofCents(nameField.getText(), amt));
             refresh();
         } catch(Exception e) {}
     }
@@ -97,23 +98,23 @@ public class SplitExpenseDialog extends JDialog {
         String s = JOptionPane.showInputDialog("How many people?");
         try {
             int n = Integer.parseInt(s);
-            double share = totalAmount / n;
+            long[] shares = Money.split(Money.ofAmount(totalAmount), n);
             splits.clear();
-            for(int i=1; i<=n; i++) splits.add(new SplitDetail("Person "+i, share));
+            for(int i=1; i<=n; i++) splits.add(SplitDetail.ofCents("Person "+i, shares[i-1]));
             refresh();
         } catch(Exception e) {}
     }
     
     private void refresh() {
         tableModel.setRowCount(0);
-        double sum = 0;
+        long sum = 0;
         for(SplitDetail s : splits) {
-            sum += s.getAmount();
+            sum += s.getCents();
             tableModel.addRow(new Object[]{s.getPersonName(), df.format(s.getAmount()), df.format(s.getAmount()/totalAmount*100)+"%"});
         }
-        double rem = totalAmount - sum;
-        remainingLbl.setText("Remaining: $" + df.format(rem));
-        remainingLbl.setForeground(Math.abs(rem) < 0.01 ? UITheme.SUCCESS : UITheme.DANGER);
+        long rem = Money.ofAmount(totalAmount) - sum;
+        remainingLbl.setText("Remaining: $" + df.format(Money.toAmount(rem)));
+        remainingLbl.setForeground(rem == 0 ? UITheme.SUCCESS : UITheme.DANGER);
     }
     
     public boolean isSucceeded() { return succeeded; }
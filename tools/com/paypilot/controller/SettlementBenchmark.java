@@ -0,0 +1,129 @@
+package com.paypilot.controller;
+
+import com.paypilot.controller.SettlementOptimizer.Mode;
+import com.paypilot.controller.SettlementOptimizer.Transaction;
+import java.util.*;
+
+/**
+ * SettlementBenchmark - Compares SettlementOptimizer with the previous
+ * O(n^2) double-based Min-Cash-Flow on random groups
+ * Reports best-of-N time, payment count and leftover cents per algorithm.
+ *
+ * Usage: java com.paypilot.controller.SettlementBenchmark [memberCount]
+ */
+public class SettlementBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int EXACT_GROUP_SIZE = 16;
+
+    public static void main(String[] args) {
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+
+        Map<String, Double> large = randomBalances(members, new Random(42));
+        System.out.printf("%,d members%n", members);
+        System.out.printf("%-22s %12s %10s %14s%n", "Algorithm", "Best ms", "Payments", "Unsettled cents");
+        report("Previous (O(n^2))", large, () -> previousAlgorithm(large));
+        report("Greedy heap", large, () -> SettlementOptimizer.optimizeSettlement(large, Mode.GREEDY));
+
+        Map<String, Double> small = randomBalances(EXACT_GROUP_SIZE, new Random(7));
+        System.out.printf("%n%d members%n", EXACT_GROUP_SIZE);
+        report("Previous (O(n^2))", small, () -> previousAlgorithm(small));
+        report("Greedy heap", small, () -> SettlementOptimizer.optimizeSettlement(small, Mode.GREEDY));
+        report("Exact subsets", small, () -> SettlementOptimizer.optimizeSettlement(small, Mode.EXACT));
+    }
+
+    private interface Plan {
+        List<Transaction> run();
+    }
+
+    private static void report(String name, Map<String, Double> balances, Plan plan) {
+        List<Transaction> result = null;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            result = plan.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-22s %12.2f %10d %14d%n", name, best / 1e6, result.size(), unsettledCents(balances, result));
+    }
+
+    /**
+     * Sum of absolute cents still owed after applying the plan
+     */
+    private static long unsettledCents(Map<String, Double> balances, List<Transaction> plan) {
+        Map<String, Long> remaining = new HashMap<>();
+        balances.forEach((person, balance) -> remaining.put(person, Math.round(balance * 100.0)));
+        for (Transaction t : plan) {
+            long cents = Math.round(t.amount * 100.0);
+            remaining.merge(t.from, cents, Long::sum);
+            remaining.merge(t.to, -cents, Long::sum);
+        }
+        return remaining.values().stream().mapToLong(Math::abs).sum();
+    }
+
+    /**
+     * Zero-sum balances built from random shared expenses, like a real group
+     */
+    private static Map<String, Double> randomBalances(int members, Random random) {
+        long[] cents = new long[members];
+        for (int e = 0; e < members * 3; e++) {
+            int payer = random.nextInt(members);
+            long total = 100 + random.nextInt(50_000);
+            int participants = 2 + random.nextInt(Math.min(members - 1, 6));
+            long share = total / participants;
+            cents[payer] += share * participants;
+            for (int p = 0; p < participants; p++) {
+                cents[(payer + p) % members] -= share;
+            }
+        }
+        Map<String, Double> balances = new HashMap<>();
+        for (int i = 0; i < members; i++) {
+            balances.put("member" + i, cents[i] / 100.0);
+        }
+        return balances;
+    }
+
+    /**
+     * The algorithm SettlementOptimizer used before, kept for comparison
+     */
+    private static List<Transaction> previousAlgorithm(Map<String, Double> balances) {
+        List<Transaction> transactions = new ArrayList<>();
+        Map<String, Double> workingBalances = new HashMap<>();
+        for (Map.Entry<String, Double> entry : balances.entrySet()) {
+            if (Math.abs(entry.getValue()) > 0.01) {
+                workingBalances.put(entry.getKey(), entry.getValue());
+            }
+        }
+        while (!workingBalances.isEmpty()) {
+            String maxCreditor = null;
+            double maxCredit = 0;
+            String maxDebtor = null;
+            double maxDebit = 0;
+            for (Map.Entry<String, Double> entry : workingBalances.entrySet()) {
+                if (entry.getValue() > maxCredit) {
+                    maxCredit = entry.getValue();
+                    maxCreditor = entry.getKey();
+                }
+            }
+            for (Map.Entry<String, Double> entry : workingBalances.entrySet()) {
+                if (entry.getValue() < maxDebit) {
+                    maxDebit = entry.getValue();
+                    maxDebtor = entry.getKey();
+                }
+            }
+            if (maxCreditor == null || maxDebtor == null) {
+                break;
+            }
+            double settlementAmount = Math.min(maxCredit, Math.abs(maxDebit));
+            transactions.add(new Transaction(maxDebtor, maxCreditor, Math.round(settlementAmount * 100.0)));
+            workingBalances.put(maxCreditor, maxCredit - settlementAmount);
+            workingBalances.put(maxDebtor, maxDebit + settlementAmount);
+            if (Math.abs(workingBalances.get(maxCreditor)) < 0.01) {
+                workingBalances.remove(maxCreditor);
+            }
+            if (Math.abs(workingBalances.get(maxDebtor)) < 0.01) {
+                workingBalances.remove(maxDebtor);
+            }
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,162 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Expense;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConcurrencyStressCheck - Hammers DatabaseManager from many threads and checks
+ * that per-key operations behave as if applied one at a time
+ * - Register: one writer saves 1, 2, 3... under a key; concurrent readers must
+ *   never see the value go backwards (no stale read after a newer one).
+ * - Existence: a thread that saved (deleted) a key must see dataExists true (false),
+ *   even while the write is still queued for the storage engine.
+ * - Append: threads append to one shared list; after a flush and cache clear,
+ *   the reloaded list holds every element exactly once.
+ * Runs against a temporary data directory that is deleted afterwards, so the
+ * real data/ store is never touched. All keys start with "stress_" and are
+ * deleted before the directory goes.
+ *
+ * Usage: java com.paypilot.dao.ConcurrencyStressCheck [threads] [opsPerThread]
+ */
+public class ConcurrencyStressCheck {
+    private static final String PREFIX = "stress_";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        File dataDir = Files.createTempDirectory("paypilot-stress-").toFile();
+        System.setProperty("paypilot.dataDir", dataDir.getPath()); // Before DatabaseManager is loaded
+        List<String> failures;
+        try {
+            failures = run(threads, ops);
+        } finally {
+            DatabaseManager.getInstance().shutdown();
+            deleteTree(dataDir);
+        }
+        if (failures.isEmpty()) {
+            System.out.println("OK");
+        } else {
+            failures.forEach(System.out::println);
+            System.exit(1);
+        }
+    }
+
+    private static List<String> run(int threads, int ops) throws Exception {
+        DatabaseManager db = DatabaseManager.getInstance();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong reads = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads * 3);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        long begin = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            String registerKey = PREFIX + "register_" + t;
+            String existsKey = PREFIX + "exists_" + t;
+            int thread = t;
+
+            tasks.add(pool.submit(() -> {
+                await(start);
+                for (long value = 1; value <= ops; value++) {
+                    db.saveData(registerKey, value);
+                }
+            }));
+            tasks.add(pool.submit(() -> {
+                await(start);
+                long last = 0;
+                for (int i = 0; i < ops; i++) {
+                    Long value = db.loadData(registerKey, Long.class);
+                    reads.incrementAndGet();
+                    long seen = value != null ? value : 0;
+                    if (seen < last) {
+                        failures.add(registerKey + " went back from " + last + " to " + seen);
+                        return;
+                    }
+                    last = seen;
+                }
+            }));
+            tasks.add(pool.submit(() -> {
+                await(start);
+                for (int i = 0; i < ops; i++) {
+                    if (i % 4 == 0) {
+                        db.saveData(existsKey, (long) i);
+                        if (!db.dataExists(existsKey)) {
+                            failures.add(existsKey + " missing right after save " + i);
+                            return;
+                        }
+                        db.deleteData(existsKey);
+                        if (db.dataExists(existsKey)) {
+                            failures.add(existsKey + " still present right after delete " + i);
+                            return;
+                        }
+                    } else {
+                        db.appendData(PREFIX + "shared", new Expense(thread * (long) ops + i, "Stress",
+                            1.0, "", LocalDate.now(), "stress"));
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+        long elapsed = System.nanoTime() - begin;
+
+        int expectedAppends = threads * (ops - (ops + 3) / 4);
+        db.flush();
+        db.clearCache(); // Force the reload to come from the storage engine
+        List<?> shared = db.loadData(PREFIX + "shared", List.class);
+        Set<Long> ids = new HashSet<>();
+        for (Object element : shared != null ? shared : Collections.emptyList()) {
+            ids.add(((Expense) element).getId());
+        }
+        if (shared == null || shared.size() != expectedAppends || ids.size() != expectedAppends) {
+            failures.add("Shared list has " + (shared == null ? 0 : shared.size()) + " elements ("
+                + ids.size() + " distinct), expected " + expectedAppends);
+        }
+        for (int t = 0; t < threads; t++) {
+            Long value = db.loadData(PREFIX + "register_" + t, Long.class);
+            if (value == null || value != ops) {
+                failures.add(PREFIX + "register_" + t + " reloaded as " + value + ", expected " + ops);
+            }
+        }
+
+        for (int t = 0; t < threads; t++) {
+            db.deleteData(PREFIX + "register_" + t);
+            db.deleteData(PREFIX + "exists_" + t);
+        }
+        db.deleteData(PREFIX + "shared");
+        db.flush();
+
+        System.out.printf("%d threads x %d ops in %.1f ms (%,d concurrent reads)%n",
+            threads * 3, ops, elapsed / 1e6, reads.get());
+        return failures;
+    }
+
+    private static void deleteTree(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
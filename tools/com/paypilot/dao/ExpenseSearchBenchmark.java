@@ -0,0 +1,110 @@
+package com.paypilot.dao;
+
+import com.paypilot.model.Expense;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * ExpenseSearchBenchmark - Times ExpenseSearchIndex against a linear scan on a large history
+ * Reports index build time and best-of-N latency per query for the index and
+ * for scanning every expense with ExpenseSearchIndex.matches(), then checks
+ * that both agree after random adds, edits and deletes.
+ *
+ * Usage: java com.paypilot.dao.ExpenseSearchBenchmark [expenses]
+ */
+public class ExpenseSearchBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Entertainment", "Health", "Utilities"};
+    private static final String[] WORDS = {"coffee", "lunch", "dinner", "groceries", "uber", "taxi", "train",
+        "netflix", "spotify", "pharmacy", "doctor", "electricity", "water", "internet", "cinema", "concert",
+        "bakery", "fuel", "parking", "gym", "books", "market", "pizza", "sushi", "rent", "insurance"};
+    private static final String[] QUERIES = {"cof", "coffee", "grocer", "groceiers", "uber lunch",
+        "food piz", "entertainment netflix", "x"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        Random random = new Random(42);
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expenses.add(randomExpense(i + 1, random));
+        }
+
+        long start = System.nanoTime();
+        ExpenseSearchIndex index = new ExpenseSearchIndex();
+        index.rebuild(expenses, 0);
+        System.out.printf("%,d expenses, index built in %.0f ms%n", count, (System.nanoTime() - start) / 1e6);
+
+        System.out.printf("%-24s %8s %12s %12s%n", "Query", "Hits", "Index ms", "Scan ms");
+        for (String query : QUERIES) {
+            int hits = index.search(query).getExpenses().size();
+            double indexed = best(() -> index.search(query));
+            double scanned = best(() -> scan(expenses, query));
+            System.out.printf("%-24s %,8d %12.2f %12.2f%n", "\"" + query + "\"", hits, indexed, scanned);
+        }
+
+        System.out.println(checkDeltas(Math.min(count, 5_000), random) ? "OK" : "Index and scan diverged");
+    }
+
+    private static double best(Runnable step) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            step.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static List<Expense> scan(List<Expense> expenses, String query) {
+        List<Expense> hits = new ArrayList<>();
+        for (Expense expense : expenses) {
+            if (ExpenseSearchIndex.matches(expense, query)) {
+                hits.add(expense);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Apply random mutations to a list and the index, then compare every query with a scan
+     */
+    private static boolean checkDeltas(int count, Random random) {
+        List<Expense> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expected.add(randomExpense(i + 1, random));
+        }
+        ExpenseSearchIndex index = new ExpenseSearchIndex();
+        index.rebuild(expected, 0);
+        long nextId = count + 1;
+        for (int i = 0; i < count * 2; i++) { // Enough deletes to trigger compaction
+            int choice = random.nextInt(3);
+            if (choice == 0 || expected.isEmpty()) {
+                Expense expense = randomExpense(nextId++, random);
+                expected.add(expense);
+                index.add(expense, i);
+            } else if (choice == 1) {
+                int position = random.nextInt(expected.size());
+                Expense edited = randomExpense(expected.get(position).getId(), random);
+                expected.remove(position);
+                expected.add(edited); // Edits move to the end of insertion order
+                index.update(edited, i);
+            } else {
+                Expense removed = expected.remove(random.nextInt(expected.size()));
+                index.remove(removed.getId(), i);
+            }
+        }
+        for (String query : QUERIES) {
+            if (!index.search(query).getExpenses().equals(scan(expected, query))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Expense randomExpense(long id, Random random) {
+        String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+            + " #" + random.nextInt(1000);
+        return new Expense(id, CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(50_000) / 100.0,
+            description, LocalDate.of(2024, 1, 1).plusDays(random.nextInt(700)), "bench");
+    }
+}
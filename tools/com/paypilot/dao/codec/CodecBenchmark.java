@@ -0,0 +1,92 @@
+package com.paypilot.dao.codec;
+
+import com.paypilot.model.Expense;
+import com.paypilot.model.SplitDetail;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * CodecBenchmark - Compares BinaryCodec with Java serialization
+ * Reports encoded size and best-of-N decode time for a synthetic expense history.
+ *
+ * Usage: java com.paypilot.dao.codec.CodecBenchmark [expenseCount]
+ */
+public class CodecBenchmark {
+    private static final String[] CATEGORIES = {
+        "Food & Dining", "Transportation", "Utilities", "Entertainment", "Shopping", "Rent"
+    };
+    private static final String[] DESCRIPTIONS = {
+        "Coffee", "Lunch with team", "Uber to office", "Electricity bill", "Movie night", ""
+    };
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        ArrayList<Expense> expenses = generate(count);
+
+        byte[] javaBytes = javaSerialize(expenses);
+        byte[] codecBytes = BinaryCodec.encode(expenses);
+
+        long javaNanos = Long.MAX_VALUE;
+        long codecNanos = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            javaDeserialize(javaBytes);
+            javaNanos = Math.min(javaNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            BinaryCodec.decode(codecBytes);
+            codecNanos = Math.min(codecNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("%,d expenses%n", count);
+        System.out.printf("%-20s %14s %12s%n", "Format", "Bytes", "Decode ms");
+        System.out.printf("%-20s %,14d %12.1f%n", "Java serialization", javaBytes.length, javaNanos / 1e6);
+        System.out.printf("%-20s %,14d %12.1f%n", "BinaryCodec", codecBytes.length, codecNanos / 1e6);
+        System.out.printf("Size ratio: %.1fx, decode speedup: %.1fx%n",
+            (double) javaBytes.length / codecBytes.length, (double) javaNanos / codecNanos);
+    }
+
+    private static ArrayList<Expense> generate(int count) {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.now().minusYears(5);
+        ArrayList<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Expense expense = new Expense(
+                CATEGORIES[random.nextInt(CATEGORIES.length)],
+                random.nextInt(50_000) / 100.0,
+                DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+                start.plusDays(random.nextInt(5 * 365)),
+                "benchmark_user");
+            if (random.nextInt(10) == 0) {
+                ArrayList<SplitDetail> splits = new ArrayList<>();
+                splits.add(new SplitDetail("alice", expense.getAmount() / 2));
+                splits.add(new SplitDetail("bob", expense.getAmount() / 2));
+                expense.setSplit(true);
+                expense.setSplitDetails(splits);
+            }
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private static byte[] javaSerialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+}
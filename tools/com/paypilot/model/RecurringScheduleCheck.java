@@ -0,0 +1,94 @@
+package com.paypilot.model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RecurringScheduleCheck - Checks the occurrence dates RecurringExpense computes
+ * - Month end: a rule starting Jan 31 falls on Feb 28 (29) and then Mar 31, both
+ *   in one catch-up run and when generated one month per run.
+ * - Old rules: a monthly rule whose lastGenerated drifted to the 28th keeps that
+ *   day and gets no extra occurrence in the same month.
+ * - Edits: after changing the recurrence type or interval the next date is one
+ *   new interval after lastGenerated.
+ * Touches no stored data.
+ *
+ * Usage: java com.paypilot.model.RecurringScheduleCheck
+ */
+public class RecurringScheduleCheck {
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) {
+        checkMonthEnd(2025);
+        checkMonthEnd(2024); // Leap year
+        checkDriftedRule();
+        checkEdits();
+
+        if (failures.isEmpty()) {
+            System.out.println("OK");
+        } else {
+            failures.forEach(System.out::println);
+            System.exit(1);
+        }
+    }
+
+    private static void checkMonthEnd(int year) {
+        LocalDate start = LocalDate.of(year, 1, 31);
+        LocalDate february = YearMonth.of(year, 2).atEndOfMonth();
+        LocalDate[] expected = {february, LocalDate.of(year, 3, 31), LocalDate.of(year, 4, 30), LocalDate.of(year, 5, 31)};
+
+        RecurringExpense catchUp = monthly(start);
+        expect("catch-up due by May 31 " + year, catchUp.countDueThrough(LocalDate.of(year, 5, 31)), 4);
+        expect("catch-up due by Mar 30 " + year, catchUp.countDueThrough(LocalDate.of(year, 3, 30)), 1);
+        for (int k = 1; k <= expected.length; k++) {
+            expect("catch-up occurrence " + k + " in " + year, catchUp.getOccurrence(k), expected[k - 1]);
+        }
+
+        RecurringExpense stepped = monthly(start);
+        for (LocalDate date : expected) {
+            expect("due on " + date, stepped.countDueThrough(date), 1);
+            expect("next after " + stepped.getLastGenerated(), stepped.getNextOccurrence(), date);
+            stepped.setLastGenerated(stepped.getNextOccurrence());
+        }
+    }
+
+    private static void checkDriftedRule() {
+        RecurringExpense rule = monthly(LocalDate.of(2025, 1, 31));
+        rule.setLastGenerated(LocalDate.of(2025, 3, 28)); // Stepped Feb 28 -> Mar 28 by older versions
+        expect("drifted rule due by Mar 31", rule.countDueThrough(LocalDate.of(2025, 3, 31)), 0);
+        expect("drifted rule next", rule.getNextOccurrence(), LocalDate.of(2025, 4, 28));
+    }
+
+    private static void checkEdits() {
+        RecurringExpense rule = new RecurringExpense("check", "Gym", 10, "edit",
+            RecurringExpense.RecurrenceType.WEEKLY, 0, LocalDate.of(2025, 1, 7));
+        rule.setLastGenerated(LocalDate.of(2025, 1, 14));
+        rule.setRecurrenceType(RecurringExpense.RecurrenceType.MONTHLY);
+        expect("weekly to monthly next", rule.getNextOccurrence(), LocalDate.of(2025, 2, 14));
+        expect("weekly to monthly due by Feb 13", rule.countDueThrough(LocalDate.of(2025, 2, 13)), 0);
+
+        rule.setRecurrenceType(RecurringExpense.RecurrenceType.CUSTOM);
+        rule.setCustomDays(10);
+        expect("custom 10 days next", rule.getNextOccurrence(), LocalDate.of(2025, 1, 24));
+        expect("custom 10 days due by Feb 13", rule.countDueThrough(LocalDate.of(2025, 2, 13)), 3);
+    }
+
+    private static RecurringExpense monthly(LocalDate start) {
+        return new RecurringExpense("check", "Rent", 100, "month end",
+            RecurringExpense.RecurrenceType.MONTHLY, 0, start);
+    }
+
+    private static void expect(String what, Object actual, Object expected) {
+        if (!expected.equals(actual)) {
+            failures.add(what + ": got " + actual + ", expected " + expected);
+        }
+    }
+
+    private static void expect(String what, long actual, long expected) {
+        if (actual != expected) {
+            failures.add(what + ": got " + actual + ", expected " + expected);
+        }
+    }
+}
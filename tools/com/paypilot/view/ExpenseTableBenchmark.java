@@ -0,0 +1,179 @@
+package com.paypilot.view;
+
+import com.paypilot.controller.event.ExpenseEvent;
+import com.paypilot.model.Expense;
+import com.paypilot.model.PersistentList;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * ExpenseTableBenchmark - Compares the previous DefaultTableModel refresh
+ * (clear, then format and add every row) with ExpenseTableModel on a large
+ * snapshot, both attached to a JTable
+ * Reports best-of-N time for a full refresh, a sort and a frame of appended
+ * expenses, then checks that random deltas under a sort leave the view in
+ * the same order as sorting from scratch.
+ *
+ * Runs headless: java -Djava.awt.headless=true com.paypilot.view.ExpenseTableBenchmark [rows]
+ */
+public class ExpenseTableBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int APPENDS = 100;
+    private static final String[] COLUMNS = {"Date", "Category", "Amount", "Description", "Type", "📎"};
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Fun", "Health"};
+    private static final Comparator<Expense> LARGEST_FIRST = (e1, e2) -> Double.compare(e2.getAmount(), e1.getAmount());
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(42);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            expenses.add(randomExpense(i + 1, random));
+        }
+        PersistentList<Expense> snapshot = PersistentList.of(expenses);
+        List<Expense> appended = new ArrayList<>();
+        for (int i = 0; i < APPENDS; i++) {
+            appended.add(randomExpense(rows + i + 1, random));
+        }
+
+        DefaultTableModel previous = new DefaultTableModel(COLUMNS, 0);
+        new JTable(previous);
+        ExpenseTableModel model = new ExpenseTableModel(ExpenseTableModel.Column.values());
+        new JTable(model);
+
+        System.out.printf("%,d rows%n", rows);
+        System.out.printf("%-34s %12s%n", "Operation", "Best ms");
+        report("Refresh, DefaultTableModel", () -> fill(previous, snapshot));
+        report("Refresh, ExpenseTableModel", () -> model.setExpenses(snapshot));
+        report("Sort, copy and refill", () -> {
+            List<Expense> sorted = new ArrayList<>(snapshot);
+            sorted.sort(LARGEST_FIRST);
+            fill(previous, sorted);
+        });
+        report("Sort, permutation", () -> {
+            model.setExpenses(snapshot);
+            model.sortBy(LARGEST_FIRST);
+        });
+        report(APPENDS + " appends, DefaultTableModel", () -> {
+            fill(previous, snapshot); // Untimed part is the same for both sides
+            long start = System.nanoTime();
+            for (Expense expense : appended) {
+                previous.addRow(toRow(expense));
+            }
+            return System.nanoTime() - start;
+        });
+        report(APPENDS + " appends, ExpenseTableModel", () -> {
+            model.setExpenses(snapshot);
+            List<ExpenseEvent> events = new ArrayList<>();
+            for (Expense expense : appended) {
+                events.add(ExpenseEvent.added("bench", expense, 0));
+            }
+            long start = System.nanoTime();
+            model.apply(events, e -> true);
+            return System.nanoTime() - start;
+        });
+
+        System.out.println(checkSortedDeltas(Math.min(rows, 2_000), random) ? "OK" : "Sorted deltas diverged");
+    }
+
+    private interface Step {
+        void run();
+    }
+
+    private interface TimedStep {
+        long run();
+    }
+
+    private static void report(String name, Step step) {
+        report(name, () -> {
+            long start = System.nanoTime();
+            step.run();
+            return System.nanoTime() - start;
+        });
+    }
+
+    private static void report(String name, TimedStep step) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            best = Math.min(best, step.run());
+        }
+        System.out.printf("%-34s %12.2f%n", name, best / 1e6);
+    }
+
+    /**
+     * Apply random adds, edits and deletes to a sorted model and compare with a fresh sort
+     */
+    private static boolean checkSortedDeltas(int rows, Random random) {
+        List<Expense> expected = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            expected.add(randomExpense(i + 1, random));
+        }
+        ExpenseTableModel model = new ExpenseTableModel(ExpenseTableModel.Column.values());
+        model.setExpenses(PersistentList.of(expected));
+        model.sortBy(LARGEST_FIRST);
+        long nextId = rows + 1;
+        for (int round = 0; round < 200; round++) {
+            List<ExpenseEvent> events = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                int choice = random.nextInt(3);
+                if (choice == 0 || expected.isEmpty()) {
+                    Expense expense = randomExpense(nextId++, random);
+                    expected.add(expense);
+                    events.add(ExpenseEvent.added("bench", expense, 0));
+                } else {
+                    int index = random.nextInt(expected.size());
+                    Expense old = expected.get(index);
+                    if (choice == 1) {
+                        Expense edited = randomExpense(old.getId(), random);
+                        expected.set(index, edited);
+                        events.add(ExpenseEvent.updated("bench", old, edited, 0));
+                    } else {
+                        expected.remove(index);
+                        events.add(ExpenseEvent.deleted("bench", old, 0));
+                    }
+                }
+            }
+            model.apply(events, e -> true);
+        }
+        List<Expense> sorted = new ArrayList<>(expected);
+        sorted.sort(LARGEST_FIRST);
+        if (model.getRowCount() != sorted.size()) {
+            return false;
+        }
+        for (int row = 0; row < sorted.size(); row++) {
+            if (sorted.get(row).getAmount() != model.getExpenseAt(row).getAmount()) {
+                return false;
+            }
+        }
+        return new HashSet<>(model.getExpenses()).equals(new HashSet<>(expected));
+    }
+
+    private static void fill(DefaultTableModel model, List<Expense> expenses) {
+        model.setRowCount(0);
+        for (Expense expense : expenses) {
+            model.addRow(toRow(expense));
+        }
+    }
+
+    /**
+     * Row as PersonalPanel built it before ExpenseTableModel
+     */
+    private static Object[] toRow(Expense exp) {
+        return new Object[]{
+            exp.getDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
+            exp.getCategory(),
+            String.format("$%.2f", exp.getAmount()),
+            exp.getDescription(),
+            exp.isSplit() ? "Split" : "Personal",
+            exp.hasReceipt() ? "📎" : ""
+        };
+    }
+
+    private static Expense randomExpense(long id, Random random) {
+        return new Expense(id, CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(50_000) / 100.0,
+            "Expense " + id, LocalDate.of(2024, 1, 1).plusDays(random.nextInt(700)), "bench");
+    }
+}